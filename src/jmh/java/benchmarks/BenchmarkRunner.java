@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Chạy toàn bộ benchmark một lượt cho mỗi số thread trong {@code -Djmh.threads}, vì JMH chỉ
+ * nhận một giá trị {@code -t} mỗi lần chạy. Kích thước catalog lấy từ {@code -Djmh.catalogSize}.
+ * Kết quả JSON nằm ở {@code target/jmh-<threads>t.json} để so sánh giữa các lần build.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String[] catalogSizes = System.getProperty("jmh.catalogSize", "1000,100000").split(",");
+        String include = System.getProperty("jmh.include", ".*");
+        for (String threads : System.getProperty("jmh.threads", "1,4").split(",")) {
+            Options options = new OptionsBuilder()
+                    .include("benchmarks\\." + include)
+                    .exclude(BenchmarkRunner.class.getSimpleName())
+                    .threads(Integer.parseInt(threads.trim()))
+                    .param("catalogSize", catalogSizes)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-" + threads.trim() + "t.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import models.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repositories.InMemoryBookRepository;
+import services.BookSearchPage;
+import services.BookService;
+import services.BookSuggestions;
+import stock.StockEngine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đọc, tìm kiếm và cập nhật tồn kho trên catalog trong bộ nhớ. Book được chọn ngẫu nhiên
+ * đều trên toàn catalog nên các thread hiếm khi chạm cùng một bộ đếm stock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+    private static final Duration FUZZY_BUDGET = Duration.ofMillis(50);
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    BookService bookService;
+    long[] bookIds;
+
+    @Setup
+    public void setUp() {
+        InMemoryBookRepository bookRepository = new InMemoryBookRepository();
+        bookIds = Catalog.fill(bookRepository, catalogSize, 1_000_000);
+        bookService = new BookService(bookRepository, new StockEngine());
+    }
+
+    private long randomBookId() {
+        return bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+    }
+
+    @Benchmark
+    public Book getBookById() {
+        return bookService.getBookById(randomBookId());
+    }
+
+    @Benchmark
+    public List<Book> searchBooks() {
+        String[] keywords = Catalog.KEYWORDS;
+        return bookService.searchBooks(keywords[ThreadLocalRandom.current().nextInt(keywords.length)]);
+    }
+
+    @Benchmark
+    public BookSearchPage searchBooksRanked() {
+        String[] keywords = Catalog.KEYWORDS;
+        return bookService.searchBooks(keywords[ThreadLocalRandom.current().nextInt(keywords.length)], 0, 20, null);
+    }
+
+    @Benchmark
+    public BookSearchPage searchBooksFuzzy() {
+        // bỏ một ký tự giữa từ để mô phỏng lỗi gõ
+        String keyword = Catalog.KEYWORDS[ThreadLocalRandom.current().nextInt(Catalog.KEYWORDS.length)];
+        String typo = keyword.substring(0, 2) + keyword.substring(3);
+        return bookService.searchBooksFuzzy(typo, 2, 20, FUZZY_BUDGET);
+    }
+
+    @Benchmark
+    public BookSuggestions autocomplete() {
+        String keyword = Catalog.KEYWORDS[ThreadLocalRandom.current().nextInt(Catalog.KEYWORDS.length)];
+        return bookService.autocomplete(keyword.substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public boolean updateStock() {
+        // trừ rồi cộng lại để tồn kho không cạn qua các iteration
+        long bookId = randomBookId();
+        return bookService.updateStock(bookId, -1) && bookService.updateStock(bookId, 1);
+    }
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryCartItemRepository;
+import repositories.InMemoryCartRepository;
+import repositories.InMemoryOrderRepository;
+import repositories.InMemoryUserRepository;
+import services.CartService;
+import services.CheckoutPipeline;
+import services.OrderService;
+import stock.StockEngine;
+import stock.StockReservations;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tạo giỏ và vòng checkout/hủy order. Repository giỏ và order được tạo lại mỗi iteration
+ * để kích thước của chúng không lớn dần theo thời gian chạy và làm lệch kết quả.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartOrderBenchmark {
+    private static final int USERS = 1_000;
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    InMemoryUserRepository userRepository;
+    InMemoryBookRepository bookRepository;
+    long[] userIds;
+    long[] bookIds;
+
+    CartService cartService;
+    OrderService orderService;
+    CheckoutPipeline checkoutPipeline;
+
+    @Setup
+    public void setUp() {
+        userRepository = new InMemoryUserRepository();
+        bookRepository = new InMemoryBookRepository();
+        userIds = Catalog.users(userRepository, USERS);
+        bookIds = Catalog.fill(bookRepository, catalogSize, 1_000_000);
+    }
+
+    @Setup(Level.Iteration)
+    public void newCartsAndOrders() {
+        InMemoryCartRepository cartRepository = new InMemoryCartRepository();
+        StockEngine stockEngine = new StockEngine();
+        StockReservations stockReservations = new StockReservations(stockEngine);
+        cartService = new CartService(userRepository, bookRepository, new InMemoryCartItemRepository(), cartRepository,
+                stockEngine, stockReservations);
+        orderService = new OrderService(cartRepository, new InMemoryOrderRepository(), bookRepository, stockEngine,
+                stockReservations);
+        checkoutPipeline = new CheckoutPipeline(orderService, cartRepository);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closePipeline() {
+        checkoutPipeline.close();
+    }
+
+    private long createRandomCart() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return cartService.createCart(userIds[random.nextInt(userIds.length)], bookIds[random.nextInt(bookIds.length)], 1);
+    }
+
+    @Benchmark
+    public long createCart() {
+        return createRandomCart();
+    }
+
+    @Benchmark
+    public long checkoutAndCancel() {
+        // hủy ngay để trả stock, giữ tồn kho ổn định qua các iteration
+        long orderId = orderService.checkoutCart(createRandomCart());
+        orderService.cancelOrder(orderId);
+        return orderId;
+    }
+
+    @Benchmark
+    public long checkoutAsyncAndCancel() {
+        long orderId = checkoutPipeline.submit(createRandomCart()).join();
+        orderService.cancelOrder(orderId);
+        return orderId;
+    }
+}
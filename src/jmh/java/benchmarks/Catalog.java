@@ -0,0 +1,46 @@
+package benchmarks;
+
+import models.Book;
+import models.User;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryUserRepository;
+
+/**
+ * Dữ liệu dùng chung cho các benchmark: catalog {@code size} book với từ khóa lặp lại theo
+ * chu kỳ, để mỗi lần tìm kiếm trả về một phần nhỏ catalog.
+ */
+final class Catalog {
+    static final String[] KEYWORDS = {"java", "spring", "database", "network", "kotlin", "algorithm", "cloud", "design"};
+
+    private Catalog() {
+    }
+
+    static long[] fill(InMemoryBookRepository repository, int size, int stock) {
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            String keyword = KEYWORDS[i % KEYWORDS.length];
+            ids[i] = repository.create(Book.builder()
+                    .title("Book " + i + " " + keyword)
+                    .author("Author " + (i % 997))
+                    .publisher("Publisher " + (i % 31))
+                    .isbn("978-" + i)
+                    .price(10.0 + i % 50)
+                    .stockQuantity(stock)
+                    .description("About " + keyword + " volume " + i)
+                    .build()).getId();
+        }
+        return ids;
+    }
+
+    static long[] users(InMemoryUserRepository repository, int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = repository.create(User.builder()
+                    .username("user" + i)
+                    .password("123456")
+                    .email("user" + i + "@bench.local")
+                    .build()).getId();
+        }
+        return ids;
+    }
+}
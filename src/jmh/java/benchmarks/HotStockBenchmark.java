@@ -0,0 +1,53 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import stock.StockEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mọi thread cùng trừ rồi trả tồn kho của một book, như lúc flash sale; so sánh bộ đếm
+ * thường với bộ đếm chia ô ({@code hot=true}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class HotStockBenchmark {
+    private static final long BOOK_ID = 1L;
+
+    @Param({"false", "true"})
+    boolean hot;
+
+    StockEngine stockEngine;
+
+    @Setup
+    public void setUp() {
+        stockEngine = new StockEngine();
+        stockEngine.track(BOOK_ID, 1_000_000);
+        stockEngine.setHot(BOOK_ID, hot);
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        if (!stockEngine.tryReserve(BOOK_ID, 1)) {
+            return false;
+        }
+        stockEngine.release(BOOK_ID, 1);
+        return true;
+    }
+}
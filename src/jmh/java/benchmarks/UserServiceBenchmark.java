@@ -0,0 +1,72 @@
+package benchmarks;
+
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repositories.InMemoryUserRepository;
+import security.PasswordConfig;
+import security.PasswordVerifier;
+import services.UserService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login qua {@link PasswordVerifier}. {@code iterations} mặc định bằng cấu hình production,
+ * nên kết quả phản ánh chi phí PBKDF2 thật; {@code catalogSize} ở đây là số user đã đăng ký.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    @Param({"100000"})
+    int iterations;
+
+    PasswordVerifier passwordVerifier;
+    UserService userService;
+    String[] emails;
+
+    @Setup
+    public void setUp() {
+        passwordVerifier = new PasswordVerifier(PasswordConfig.builder()
+                .iterations(iterations)
+                .queueCapacity(4_096)
+                .build());
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        // hash một lần rồi dùng lại, tránh tốn catalogSize lần PBKDF2 khi setup
+        String hashed = passwordVerifier.hash("123456").join();
+        emails = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            emails[i] = "user" + i + "@bench.local";
+            userRepository.create(User.builder().username("user" + i).password(hashed).email(emails[i]).build());
+        }
+        userService = new UserService(userRepository, passwordVerifier);
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordVerifier.close();
+    }
+
+    @Benchmark
+    public long login() {
+        return userService.login(emails[ThreadLocalRandom.current().nextInt(emails.length)], "123456");
+    }
+}
@@ -0,0 +1,16 @@
+package catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Đọc tuần tự từng bản ghi từ luồng đầu vào, không giữ lại các bản ghi đã trả.
+ */
+interface BookSource extends Closeable {
+
+    /**
+     * @return bản ghi tiếp theo, hoặc {@code null} khi hết dữ liệu
+     * @throws IOException khi đọc lỗi hoặc dữ liệu sai cú pháp đến mức không đọc tiếp được
+     */
+    ImportRow next() throws IOException;
+}
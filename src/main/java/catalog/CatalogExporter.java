@@ -0,0 +1,204 @@
+package catalog;
+
+import models.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import repositories.IBookRepository;
+import stock.StockEngine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Xuất toàn bộ catalog theo luồng qua {@link IBookRepository#forEachBook}.
+ * <p>
+ * Book được mã hóa thẳng vào một direct buffer {@value #CHUNK_SIZE} byte và đẩy xuống
+ * channel mỗi khi đầy, nên heap dùng không đổi theo kích thước catalog. Repository chỉ bị
+ * khóa trong lúc đọc từng đoạn book, không trong lúc ghi ra channel, nên export chậm không
+ * làm chậm việc mua bán. Kết quả không phải một snapshot: book được sửa trong lúc export có
+ * thể mang giá trị cũ hoặc mới. Tồn kho là giá trị hiện tại của {@link StockEngine}.
+ */
+@Service
+public class CatalogExporter {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,title,author,publisher,isbn,price,stockQuantity,description\n";
+
+    private final IBookRepository bookRepository;
+    private final StockEngine stockEngine;
+
+    public CatalogExporter(IBookRepository bookRepository) {
+        this(bookRepository, new StockEngine());
+    }
+
+    @Autowired
+    public CatalogExporter(IBookRepository bookRepository, StockEngine stockEngine) {
+        this.bookRepository = bookRepository;
+        this.stockEngine = stockEngine;
+    }
+
+    /**
+     * @return số book đã xuất; {@code out} không bị đóng
+     */
+    public long export(ExportFormat format, WritableByteChannel out) throws IOException {
+        ChunkWriter writer = new ChunkWriter(out, CHUNK_SIZE);
+        long[] count = new long[1];
+        try {
+            writeHeader(format, writer);
+            bookRepository.forEachBook(book -> {
+                writeBook(format, writer, stockEngine.withCurrentStock(book));
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count[0];
+    }
+
+    /**
+     * Như {@link #export(ExportFormat, WritableByteChannel)}; {@code out} được flush nhưng không bị đóng.
+     */
+    public long export(ExportFormat format, OutputStream out) throws IOException {
+        long count = export(format, Channels.newChannel(out));
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Ghi ra file {@code target} (ghi đè nếu đã có) qua {@link FileChannel}, buffer ngoài heap
+     * được chuyển thẳng cho hệ điều hành.
+     */
+    public long export(ExportFormat format, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return export(format, channel);
+        }
+    }
+
+    private static void writeHeader(ExportFormat format, ChunkWriter writer) {
+        switch (format) {
+            case CSV -> writer.putAscii(CSV_HEADER);
+            case BINARY -> writer.putInt(ExportFormat.BINARY_MAGIC);
+            case NDJSON -> {
+            }
+        }
+    }
+
+    private static void writeBook(ExportFormat format, ChunkWriter writer, Book book) {
+        switch (format) {
+            case CSV -> writeCsv(writer, book);
+            case NDJSON -> writeJson(writer, book);
+            case BINARY -> writeBinary(writer, book);
+        }
+    }
+
+    private static void writeCsv(ChunkWriter writer, Book book) {
+        writer.putAscii(String.valueOf(book.getId()));
+        for (String value : new String[]{book.getTitle(), book.getAuthor(), book.getPublisher(), book.getIsbn()}) {
+            writer.putByte(',');
+            writeCsvValue(writer, value);
+        }
+        writer.putByte(',');
+        writer.putAscii(Double.toString(book.getPrice()));
+        writer.putByte(',');
+        writer.putAscii(Integer.toString(book.getStockQuantity()));
+        writer.putByte(',');
+        writeCsvValue(writer, book.getDescription());
+        writer.putByte('\n');
+    }
+
+    private static void writeCsvValue(ChunkWriter writer, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            writer.putByte('"');
+            writer.putUtf8(value.replace("\"", "\"\""));
+            writer.putByte('"');
+        } else {
+            writer.putUtf8(value);
+        }
+    }
+
+    private static void writeJson(ChunkWriter writer, Book book) {
+        writer.putAscii("{\"id\":");
+        writer.putAscii(String.valueOf(book.getId()));
+        writeJsonField(writer, "title", book.getTitle());
+        writeJsonField(writer, "author", book.getAuthor());
+        writeJsonField(writer, "publisher", book.getPublisher());
+        writeJsonField(writer, "isbn", book.getIsbn());
+        writer.putAscii(",\"price\":");
+        writer.putAscii(Double.toString(book.getPrice()));
+        writer.putAscii(",\"stockQuantity\":");
+        writer.putAscii(Integer.toString(book.getStockQuantity()));
+        writeJsonField(writer, "description", book.getDescription());
+        writer.putAscii("}\n");
+    }
+
+    private static void writeJsonField(ChunkWriter writer, String name, String value) {
+        writer.putAscii(",\"");
+        writer.putAscii(name);
+        writer.putAscii("\":");
+        if (value == null) {
+            writer.putAscii("null");
+            return;
+        }
+        writer.putByte('"');
+        writer.putUtf8(jsonEscape(value));
+        writer.putByte('"');
+    }
+
+    private static String jsonEscape(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    private static void writeBinary(ChunkWriter writer, Book book) {
+        writer.putLong(book.getId());
+        writer.putDouble(book.getPrice());
+        writer.putInt(book.getStockQuantity());
+        for (String value : new String[]{book.getTitle(), book.getAuthor(), book.getPublisher(),
+                book.getIsbn(), book.getDescription()}) {
+            if (value == null) {
+                writer.putInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writer.putInt(bytes.length);
+                writer.putBytes(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package catalog;
+
+import models.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import repositories.IBookRepository;
+import services.BookService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nhập hàng loạt book từ CSV hoặc JSON.
+ * <p>
+ * Thread gọi {@link #importBooks} đọc tuần tự và gom bản ghi thành lô; các lô được kiểm tra
+ * theo đúng quy tắc của {@link BookService#createBook} và ghi bằng
+ * {@link IBookRepository#createAll} song song trên {@link ImportConfig#getParallelism()}
+ * thread. Hàng đợi lô có giới hạn, khi đầy thread đọc tự xử lý lô của mình nên việc đọc chậm
+ * lại theo tốc độ ghi và bộ nhớ dùng không phụ thuộc kích thước file.
+ * <p>
+ * Bản ghi bị từ chối được ghi vào báo cáo dạng CSV {@code line,error}. Thứ tự book được tạo
+ * (và id của chúng) không theo thứ tự trong file.
+ */
+@Service
+public class CatalogImporter {
+    private final IBookRepository bookRepository;
+    private final ImportConfig config;
+
+    public CatalogImporter(IBookRepository bookRepository) {
+        this(bookRepository, ImportConfig.builder().build());
+    }
+
+    @Autowired
+    public CatalogImporter(IBookRepository bookRepository, ImportConfig config) {
+        if (config.getBatchSize() <= 0 || config.getParallelism() <= 0 || config.getMaxPendingBatches() <= 0) {
+            throw new IllegalArgumentException("Batch size, parallelism and pending batches must be positive");
+        }
+        this.bookRepository = bookRepository;
+        this.config = config;
+    }
+
+    /**
+     * Nhập toàn bộ {@code in}; chỉ trả về khi mọi lô đã được ghi.
+     *
+     * @param rejects nơi ghi báo cáo bản ghi bị từ chối, không bị đóng sau khi import
+     * @throws IllegalArgumentException khi CSV thiếu cột bắt buộc
+     * @throws IOException              khi đọc đầu vào, ghi báo cáo lỗi hoặc dữ liệu sai cú pháp
+     */
+    public ImportResult importBooks(InputStream in, ImportFormat format, Writer rejects) throws IOException {
+        long start = System.nanoTime();
+        Progress progress = new Progress(rejects, config.getRejectSampleSize());
+        progress.writeHeader();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(config.getParallelism(), config.getParallelism(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getMaxPendingBatches()),
+                workerThreads(), new ThreadPoolExecutor.CallerRunsPolicy());
+        try (BookSource source = open(in, format)) {
+            List<ImportRow> batch = new ArrayList<>(config.getBatchSize());
+            ImportRow row;
+            while ((row = source.next()) != null && progress.failure.get() == null) {
+                batch.add(row);
+                if (batch.size() == config.getBatchSize()) {
+                    submit(workers, batch, progress);
+                    batch = new ArrayList<>(config.getBatchSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(workers, batch, progress);
+            }
+        } finally {
+            awaitWorkers(workers);
+        }
+        progress.rethrowFailure();
+        return progress.result(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static BookSource open(InputStream in, ImportFormat format) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvBookReader(in);
+            case JSON -> new JsonBookReader(in);
+        };
+    }
+
+    private void submit(ThreadPoolExecutor workers, List<ImportRow> batch, Progress progress) {
+        workers.execute(() -> {
+            try {
+                write(batch, progress);
+            } catch (RuntimeException e) {
+                progress.failure.compareAndSet(null, e);
+            }
+        });
+    }
+
+    private void write(List<ImportRow> batch, Progress progress) {
+        List<ImportRow> valid = new ArrayList<>(batch.size());
+        List<Book> books = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            progress.read.increment();
+            String error = row.error() != null ? row.error() : BookService.validationError(row.book());
+            if (error != null) {
+                progress.reject(row.line(), error);
+            } else {
+                valid.add(row);
+                books.add(row.book());
+            }
+        }
+        if (books.isEmpty()) {
+            return;
+        }
+        Long[] requestedIds = new Long[books.size()];
+        for (int i = 0; i < requestedIds.length; i++) {
+            requestedIds[i] = books.get(i).getId();
+        }
+        try {
+            bookRepository.createAll(books);
+            progress.imported.add(books.size());
+        } catch (RuntimeException e) {
+            // một book lỗi (ví dụ trùng id) làm cả lô bị hủy: ghi lại từng book để chỉ từ chối book đó;
+            // id được cấp cho lô đã hủy bị bỏ để book không có id lại được cấp id mới
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                book.setId(requestedIds[i]);
+                try {
+                    bookRepository.create(book);
+                    progress.imported.increment();
+                } catch (RuntimeException rowError) {
+                    progress.reject(valid.get(i).line(), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void awaitWorkers(ThreadPoolExecutor workers) throws IOException {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                // lô lớn trên repository chậm: tiếp tục chờ
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        }
+    }
+
+    private static ThreadFactory workerThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "catalog-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Bộ đếm và báo cáo lỗi dùng chung giữa thread đọc và các thread ghi của một lần import.
+     */
+    private static final class Progress {
+        final LongAdder read = new LongAdder();
+        final LongAdder imported = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final Writer report;
+        private final int sampleSize;
+        private final List<String> sample = new ArrayList<>();
+
+        Progress(Writer report, int sampleSize) {
+            this.report = report;
+            this.sampleSize = sampleSize;
+        }
+
+        void writeHeader() throws IOException {
+            report.write("line,error\n");
+        }
+
+        void reject(long line, String error) {
+            rejected.increment();
+            String entry = line + "," + quote(error == null ? "Unknown error" : error);
+            synchronized (this) {
+                if (sample.size() < sampleSize) {
+                    sample.add(entry);
+                }
+                try {
+                    report.write(entry);
+                    report.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        void rethrowFailure() throws IOException {
+            RuntimeException e = failure.get();
+            if (e instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        synchronized ImportResult result(Duration elapsed) {
+            return new ImportResult(read.sum(), imported.sum(), rejected.sum(), elapsed,
+                    Collections.unmodifiableList(new ArrayList<>(sample)));
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
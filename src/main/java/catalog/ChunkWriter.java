@@ -0,0 +1,102 @@
+package catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ghi giá trị vào một direct buffer cố định và đẩy xuống channel mỗi khi đầy, nên bộ nhớ
+ * dùng không phụ thuộc lượng dữ liệu và channel nhận thẳng buffer ngoài heap, không qua
+ * bản sao trung gian.
+ */
+final class ChunkWriter {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long written;
+
+    ChunkWriter(WritableByteChannel channel, int chunkSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(chunkSize);
+    }
+
+    /**
+     * @return số byte đã đẩy xuống channel
+     */
+    long written() {
+        return written;
+    }
+
+    void putInt(int value) {
+        ensure(Integer.BYTES).putInt(value);
+    }
+
+    void putLong(long value) {
+        ensure(Long.BYTES).putLong(value);
+    }
+
+    void putDouble(double value) {
+        ensure(Double.BYTES).putDouble(value);
+    }
+
+    void putByte(char value) {
+        ensure(1).put((byte) value);
+    }
+
+    /**
+     * Ghi chuỗi chỉ gồm ký tự ASCII (số, tên field).
+     */
+    void putAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            putByte(value.charAt(i));
+        }
+    }
+
+    void putUtf8(String value) {
+        putBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Ghi {@code bytes}, chia qua nhiều lần đẩy nếu lớn hơn chỗ trống của buffer.
+     */
+    void putBytes(byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(bytes.length - done, buffer.remaining());
+            buffer.put(bytes, done, chunk);
+            done += chunk;
+        }
+    }
+
+    void flush() throws IOException {
+        try {
+            drain();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+        return buffer;
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+}
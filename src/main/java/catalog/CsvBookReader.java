@@ -0,0 +1,178 @@
+package catalog;
+
+import models.Book;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Đọc CSV theo RFC 4180 (giá trị trong ngoặc kép được chứa dấu phẩy, xuống dòng và {@code ""}).
+ * Dòng đầu là header; tên cột không phân biệt hoa thường, bỏ qua {@code _} và khoảng trắng,
+ * nên {@code stockQuantity} và {@code stock_quantity} là một. Cột không biết bị bỏ qua.
+ */
+final class CsvBookReader implements BookSource {
+    private static final Set<Column> REQUIRED = EnumSet.of(Column.TITLE, Column.AUTHOR, Column.PRICE);
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    private int pushedBack = NONE;
+    private final StringBuilder field = new StringBuilder();
+    private Column[] columns;
+    private long line;
+
+    CsvBookReader(InputStream in) {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        if (columns == null) {
+            List<String> header = readRecord();
+            if (header == null) {
+                return null;
+            }
+            columns = columnsOf(header);
+        }
+        List<String> values;
+        do {
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isBlank());
+        return toRow(++line, values);
+    }
+
+    private static Column[] columnsOf(List<String> header) {
+        Column[] result = new Column[header.size()];
+        Set<Column> missing = EnumSet.copyOf(REQUIRED);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Column.of(header.get(i));
+            missing.remove(result[i]);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Missing column: " + missing.iterator().next().name().toLowerCase(Locale.ROOT));
+        }
+        return result;
+    }
+
+    private ImportRow toRow(long number, List<String> values) {
+        Book.BookBuilder book = Book.builder();
+        for (int i = 0; i < columns.length && i < values.size(); i++) {
+            if (columns[i] == null) {
+                continue;
+            }
+            String value = values.get(i).trim();
+            try {
+                switch (columns[i]) {
+                    case TITLE -> book.title(value);
+                    case AUTHOR -> book.author(value);
+                    case PUBLISHER -> book.publisher(emptyToNull(value));
+                    case ISBN -> book.isbn(emptyToNull(value));
+                    case DESCRIPTION -> book.description(emptyToNull(value));
+                    case PRICE -> book.price(value.isEmpty() ? 0 : Double.parseDouble(value));
+                    case STOCK_QUANTITY -> book.stockQuantity(value.isEmpty() ? 0 : Integer.parseInt(value));
+                }
+            } catch (NumberFormatException e) {
+                return ImportRow.rejected(number, "Invalid " + columns[i].name().toLowerCase(Locale.ROOT) + ": " + value);
+            }
+        }
+        return ImportRow.of(number, book.build());
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * @return các giá trị của bản ghi tiếp theo, hoặc {@code null} khi hết dữ liệu
+     */
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(columns == null ? 8 : columns.length);
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted value in record " + (line + 1));
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c < 0) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pushedBack = next;
+                    }
+                }
+                values.add(field.toString());
+                return values;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private enum Column {
+        TITLE, AUTHOR, PUBLISHER, ISBN, PRICE, STOCK_QUANTITY, DESCRIPTION;
+
+        static Column of(String name) {
+            String key = name.replace("_", "").replace(" ", "").replace("\uFEFF", "").toUpperCase(Locale.ROOT);
+            for (Column column : values()) {
+                if (column.name().replace("_", "").equals(key)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package catalog;
+
+import java.util.Locale;
+
+/**
+ * Định dạng dữ liệu của {@link CatalogExporter}. CSV và NDJSON đọc lại được bằng
+ * {@link CatalogImporter}.
+ */
+public enum ExportFormat {
+    /**
+     * Header {@code id,title,author,publisher,isbn,price,stockQuantity,description}, giá trị theo RFC 4180.
+     */
+    CSV,
+    /**
+     * Mỗi dòng một object JSON.
+     */
+    NDJSON,
+    /**
+     * Big-endian: 4 byte {@code BKX1}, rồi mỗi book là {@code long id, double price, int stock}
+     * và title, author, publisher, isbn, description, mỗi chuỗi là {@code int} độ dài UTF-8
+     * ({@code -1} nếu null) kèm các byte. Hết book là hết luồng.
+     */
+    BINARY;
+
+    static final int BINARY_MAGIC = 0x424B5831;
+
+    public static ExportFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported format: " + name);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package catalog;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ImportConfig {
+    /**
+     * Số book mỗi lần ghi {@link repositories.IBookRepository#createAll}.
+     */
+    @Builder.Default
+    int batchSize = 1_000;
+
+    /**
+     * Số thread kiểm tra và ghi lô, mặc định bằng số CPU.
+     */
+    @Builder.Default
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Số lô đã đọc đang chờ thread rảnh; đầy thì thread đọc tự xử lý lô, nên bộ nhớ không
+     * tăng theo kích thước file.
+     */
+    @Builder.Default
+    int maxPendingBatches = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Số lỗi tối đa giữ lại trong {@link ImportResult#getRejectSample()}.
+     */
+    @Builder.Default
+    int rejectSampleSize = 100;
+}
@@ -0,0 +1,25 @@
+package catalog;
+
+import java.util.Locale;
+
+/**
+ * Định dạng dữ liệu đầu vào của {@link CatalogImporter}.
+ */
+public enum ImportFormat {
+    /**
+     * Dòng đầu là header (tên cột như field của {@link models.Book}), giá trị theo RFC 4180.
+     */
+    CSV,
+    /**
+     * Một mảng JSON các book, hoặc các object nối tiếp nhau (NDJSON).
+     */
+    JSON;
+
+    public static ImportFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported format: " + name);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package catalog;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.List;
+
+@Value
+public class ImportResult {
+    long read;
+    long imported;
+    long rejected;
+    Duration elapsed;
+    /**
+     * Tối đa {@link ImportConfig#getRejectSampleSize()} lỗi dạng {@code "<dòng>,<lý do>"}; báo cáo đầy đủ ghi ra writer của lần import.
+     */
+    List<String> rejectSample;
+}
@@ -0,0 +1,19 @@
+package catalog;
+
+import models.Book;
+
+/**
+ * Một bản ghi đã đọc: {@code book} nếu đọc được, ngược lại {@code error} là lý do từ chối.
+ *
+ * @param line số thứ tự bản ghi trong file, bắt đầu từ 1 (không tính header)
+ */
+record ImportRow(long line, Book book, String error) {
+
+    static ImportRow of(long line, Book book) {
+        return new ImportRow(line, book, null);
+    }
+
+    static ImportRow rejected(long line, String error) {
+        return new ImportRow(line, null, error);
+    }
+}
@@ -0,0 +1,48 @@
+package catalog;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import models.Book;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Đọc từng book từ một mảng JSON hoặc chuỗi object nối tiếp, không nạp cả file vào bộ nhớ.
+ * Object sai kiểu dữ liệu bị từ chối và việc đọc tiếp tục ở object sau; JSON sai cú pháp
+ * làm dừng cả lần import.
+ */
+final class JsonBookReader implements BookSource {
+    private static final ObjectReader READER = new ObjectMapper()
+            .readerFor(Book.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final MappingIterator<Book> books;
+    private long line;
+
+    JsonBookReader(InputStream in) throws IOException {
+        this.books = READER.readValues(in);
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        if (!books.hasNextValue()) {
+            return null;
+        }
+        line++;
+        try {
+            Book book = books.nextValue();
+            return book == null ? ImportRow.rejected(line, "Empty record") : ImportRow.of(line, book);
+        } catch (JsonMappingException e) {
+            return ImportRow.rejected(line, "Invalid record: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        books.close();
+    }
+}
@@ -0,0 +1,94 @@
+package ids;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cấp id theo kiểu hi/lo: mỗi block id liên tiếp lấy từ {@link IdBlockSource} được cấp dần
+ * bằng một lần {@code getAndIncrement}. Block không thuộc về thread mà nằm trong một số ô dùng
+ * chung (cỡ số CPU), thread chọn ô theo id của nó; nhiều virtual thread sống ngắn dùng chung
+ * block của ô nên không phí block nào, còn các thread trên những ô khác nhau không tranh cùng
+ * một biến. Id tăng dần trong từng ô nhưng không theo thứ tự giữa các ô.
+ * <p>
+ * Ô hết block thì một thread lấy block mới dưới lock của ô, các thread khác trên ô đó chờ.
+ * Block đang dở không bị {@link #observe(long)} thu hồi; repository tự bỏ qua id đã tồn tại.
+ * Khi tắt, phần chưa dùng của tối đa một block mỗi ô bị bỏ qua.
+ */
+public class BlockIdGenerator implements IdGenerator {
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final IdBlockSource source;
+    private final int blockSize;
+    private final Stripe[] stripes;
+
+    public BlockIdGenerator() {
+        this(new MemoryIdBlockSource(), DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockIdGenerator(IdBlockSource source, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int count = cpus <= 1 ? 1 : Integer.highestOneBit(cpus - 1) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public long nextId() {
+        Stripe stripe = stripes[stripeOf(Thread.currentThread().threadId())];
+        while (true) {
+            Block block = stripe.block;
+            long id = block.next.getAndIncrement();
+            if (id <= block.end) {
+                return id;
+            }
+            stripe.refill(block);
+        }
+    }
+
+    @Override
+    public void observe(long id) {
+        source.advancePast(id);
+    }
+
+    private int stripeOf(long threadId) {
+        int h = (int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private static final class Block {
+        static final Block EMPTY = new Block(1, 0);
+
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Block block = Block.EMPTY;
+
+        void refill(Block exhausted) {
+            lock.lock();
+            try {
+                // thread khác có thể đã thay block trong lúc chờ lock
+                if (block == exhausted) {
+                    long start = source.reserve(blockSize);
+                    block = new Block(start, start + blockSize - 1);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
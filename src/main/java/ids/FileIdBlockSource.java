@@ -0,0 +1,63 @@
+package ids;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cấp block và ghi mốc cao nhất đã cấp xuống file (có fsync) trước khi trả block về,
+ * nên sau khi khởi động lại không id nào bị cấp trùng; id chưa dùng của block cuối bị bỏ qua.
+ * <p>
+ * Mỗi lần {@link #reserve(int)} tốn một lần fsync, nên block nên đủ lớn (hàng nghìn id).
+ */
+public class FileIdBlockSource implements IdBlockSource, Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+    private long highWater;
+    private long floor;
+
+    public FileIdBlockSource(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() >= Long.BYTES) {
+            channel.read(buffer, 0);
+            highWater = buffer.flip().getLong();
+        }
+    }
+
+    @Override
+    public synchronized long reserve(int size) {
+        long start = Math.max(highWater, floor) + 1;
+        long end = start + size - 1;
+        buffer.clear().putLong(end).flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot persist id block", e);
+        }
+        highWater = end;
+        return start;
+    }
+
+    @Override
+    public synchronized void advancePast(long id) {
+        floor = Math.max(floor, id);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,18 @@
+package ids;
+
+/**
+ * Nơi cấp các block id liên tiếp cho {@link BlockIdGenerator}.
+ */
+public interface IdBlockSource {
+    /**
+     * Giữ chỗ {@code size} id liên tiếp.
+     *
+     * @return id đầu tiên của block
+     */
+    long reserve(int size);
+
+    /**
+     * Đảm bảo các block về sau chỉ chứa id lớn hơn {@code id}.
+     */
+    void advancePast(long id);
+}
@@ -0,0 +1,18 @@
+package ids;
+
+/**
+ * Nguồn id cho các model. Mọi cài đặt đều an toàn khi gọi từ nhiều thread.
+ */
+public interface IdGenerator {
+    /**
+     * @return id mới, dương và chưa từng được generator này cấp
+     */
+    long nextId();
+
+    /**
+     * Báo rằng {@code id} đã được dùng (id gán tay, dữ liệu khôi phục) để generator
+     * không cấp lại id đó cho các block hoặc mốc thời gian về sau.
+     */
+    default void observe(long id) {
+    }
+}
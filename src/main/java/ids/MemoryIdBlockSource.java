@@ -0,0 +1,23 @@
+package ids;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cấp block từ một bộ đếm trong bộ nhớ; chỉ dùng khi id không cần sống qua lần khởi động
+ * lại, hoặc khi dữ liệu khôi phục gọi {@link #advancePast(long)} cho mọi id đã có.
+ */
+public class MemoryIdBlockSource implements IdBlockSource {
+    private final AtomicLong highWater = new AtomicLong();
+
+    @Override
+    public long reserve(int size) {
+        return highWater.getAndAdd(size) + 1;
+    }
+
+    @Override
+    public void advancePast(long id) {
+        if (highWater.get() < id) {
+            highWater.accumulateAndGet(id, Math::max);
+        }
+    }
+}
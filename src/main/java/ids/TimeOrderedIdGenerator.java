@@ -0,0 +1,76 @@
+package ids;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Id 64 bit sắp theo thời gian, duy nhất giữa nhiều node:
+ * {@code [41 bit mili giây từ 2024-01-01][10 bit node][12 bit sequence]}.
+ * <p>
+ * Trạng thái (mili giây, sequence) nằm trong một {@link AtomicLong} và chỉ tăng: khi đồng
+ * hồ chạy lùi hoặc hết 4096 id trong một mili giây, generator mượn trước mili giây tiếp
+ * theo thay vì chờ. Sau khi khởi động lại, gọi {@link #observe(long)} với các id đã khôi
+ * phục để không cấp trùng nếu đồng hồ đã bị lùi.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private final LongSupplier clock;
+    // (mili giây << SEQUENCE_BITS) | sequence của id cấp gần nhất
+    private final AtomicLong state = new AtomicLong();
+
+    public TimeOrderedIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public TimeOrderedIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.node = nodeId;
+        this.clock = clock;
+    }
+
+    @Override
+    public long nextId() {
+        long now = Math.max(0L, clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        while (true) {
+            long last = state.get();
+            long next = now > last ? now : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return compose(next);
+            }
+        }
+    }
+
+    @Override
+    public void observe(long id) {
+        if (nodeOf(id) != node) {
+            return;
+        }
+        long logical = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (id & SEQUENCE_MASK);
+        if (state.get() < logical) {
+            state.accumulateAndGet(logical, Math::max);
+        }
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    private long compose(long logical) {
+        return ((logical >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | (node << SEQUENCE_BITS)
+                | (logical & SEQUENCE_MASK);
+    }
+}
@@ -0,0 +1,90 @@
+package metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Đo thời gian và đếm số lời gọi mỗi method của một bean vào timer {@value #METER_NAME},
+ * gắn tag {@code layer}, {@code component}, {@code method} và {@code outcome}.
+ * <p>
+ * Timer được tạo một lần cho mỗi method rồi giữ lại, nên mỗi lời gọi chỉ tốn một lần
+ * {@code get} không khóa trên map và một lần {@link Timer#record}; histogram phân vị do
+ * Micrometer giữ trên recorder của HdrHistogram, ghi không khóa.
+ * <p>
+ * Method trả {@link CompletionStage} được tính đến khi future hoàn thành, không phải lúc
+ * method trả về.
+ */
+public class CallMetricsInterceptor implements MethodInterceptor {
+    public static final String METER_NAME = "app.calls";
+
+    private final Supplier<MeterRegistry> registry;
+    private final String layer;
+    private final String component;
+    private final ConcurrentHashMap<Method, Timers> timers = new ConcurrentHashMap<>();
+
+    public CallMetricsInterceptor(Supplier<MeterRegistry> registry, String layer, String component) {
+        this.registry = registry;
+        this.layer = layer;
+        this.component = component;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        Timers timers = timersOf(method);
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            timers.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        if (result instanceof CompletableFuture<?> future) {
+            // trả future phụ thuộc để người gọi chỉ thấy kết quả sau khi đã ghi số đo
+            return future.whenComplete((value, error) -> timers.record(error, start));
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, error) -> timers.record(error, start));
+            return result;
+        }
+        timers.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timers timersOf(Method method) {
+        Timers existing = timers.get(method);
+        if (existing != null) {
+            return existing;
+        }
+        return timers.computeIfAbsent(method, m -> new Timers(timer(m, "success"), timer(m, "error")));
+    }
+
+    private Timer timer(Method method, String outcome) {
+        return Timer.builder(METER_NAME)
+                .description("Thời gian và số lời gọi method của service và repository")
+                .tag("layer", layer)
+                .tag("component", component)
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .register(registry.get());
+    }
+
+    private record Timers(Timer success, Timer error) {
+        void record(Throwable error, long start) {
+            (error == null ? success : this.error).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Service;
+import repositories.IBaseRepository;
+
+/**
+ * Bọc mọi bean {@link Service} và mọi {@link IBaseRepository} bằng proxy có
+ * {@link CallMetricsInterceptor}. Repository được proxy theo interface, service theo class.
+ * <p>
+ * {@link MeterRegistry} chỉ được lấy khi timer đầu tiên được tạo, để post processor này
+ * không kéo registry khởi tạo sớm trước các bean khác.
+ */
+public class CallMetricsPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public CallMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        String layer = layerOf(bean);
+        if (layer == null) {
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(!(bean instanceof IBaseRepository));
+        factory.addAdvice(new CallMetricsInterceptor(registry::getObject, layer, beanName));
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    static String layerOf(Object bean) {
+        if (bean instanceof IBaseRepository) {
+            return "repository";
+        }
+        if (AnnotationUtils.findAnnotation(bean.getClass(), Service.class) != null) {
+            return "service";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bật đo lời gọi service/repository; tắt bằng {@code app.metrics.enabled=false}.
+ * Phân vị và histogram của {@value CallMetricsInterceptor#METER_NAME} cấu hình qua
+ * {@code management.metrics.distribution.*} trong application.properties.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.metrics.enabled", matchIfMissing = true)
+public class MetricsConfig {
+
+    @Bean
+    public static CallMetricsPostProcessor callMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new CallMetricsPostProcessor(registry);
+    }
+}
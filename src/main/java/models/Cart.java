@@ -4,13 +4,18 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import utils.LongIntHashMap;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cart {
     private long id;
     private User user;
+    // dòng đơn kiểu cũ, giữ Book tại thời điểm thêm vào giỏ
     private CartItem cartItem;
+    // bookId -> quantity, dùng cho giỏ nhiều sách
+    @Builder.Default
+    private LongIntHashMap items = new LongIntHashMap(4);
 }
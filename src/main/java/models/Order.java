@@ -4,13 +4,19 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import utils.LongIntHashMap;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
     private long id;
+    private long userId;
+    // tổng số sách của order
     private int quantity;
     private Book book;
+    // bookId -> quantity khi order được tạo từ giỏ nhiều sách
+    @Builder.Default
+    private LongIntHashMap items = new LongIntHashMap(4);
 }
@@ -0,0 +1,206 @@
+package org.example.finaltest;
+
+import catalog.ImportConfig;
+import ids.BlockIdGenerator;
+import ids.FileIdBlockSource;
+import ids.IdBlockSource;
+import ids.IdGenerator;
+import ids.MemoryIdBlockSource;
+import org.springframework.beans.factory.annotation.Value;
+import persistence.FsyncPolicy;
+import persistence.ModelCodecs;
+import persistence.WalConfig;
+import persistence.WriteAheadLogs;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import repositories.CachingBookRepository;
+import repositories.IBookRepository;
+import repositories.ICartItemRepository;
+import repositories.ICartRepository;
+import repositories.IOrderRepository;
+import repositories.IUserRepository;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryCartItemRepository;
+import repositories.InMemoryCartRepository;
+import repositories.InMemoryOrderRepository;
+import repositories.InMemoryUserRepository;
+import repositories.MappedBookRepository;
+import security.PasswordConfig;
+import security.PasswordVerifier;
+import services.CheckoutPipeline;
+import services.IdempotencyConfig;
+import services.IdempotencyStore;
+import services.OrderService;
+import services.PipelineConfig;
+import stock.LedgerConfig;
+import stock.ReservationConfig;
+import stock.StockEngine;
+import stock.StockLedger;
+import stock.StockReservations;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Khai báo repository và các thành phần không nằm trong package được component-scan.
+ */
+@Configuration
+public class AppConfig {
+
+    /**
+     * Nguồn block id dùng chung cho mọi repository. Đặt {@code app.data.dir} thì mốc id cao nhất
+     * được ghi xuống {@code <dir>/ids.seq}, nên id không bị cấp lại sau khi khởi động lại
+     * (file được đóng qua {@code close()} tự suy ra khi tắt).
+     */
+    @Bean
+    public IdBlockSource idBlockSource(@Value("${app.data.dir:}") String dataDir) throws IOException {
+        return dataDir.isBlank() ? new MemoryIdBlockSource() : new FileIdBlockSource(Path.of(dataDir, "ids.seq"));
+    }
+
+    @Bean
+    public IdGenerator idGenerator(IdBlockSource idBlockSource,
+                                   @Value("${app.ids.block-size:1024}") int blockSize) {
+        return new BlockIdGenerator(idBlockSource, blockSize);
+    }
+
+    /**
+     * Write-ahead log của các repository, trong {@code <app.data.dir>/wal}; để trống
+     * {@code app.data.dir} thì repository chỉ nằm trong bộ nhớ.
+     */
+    @Bean(destroyMethod = "close")
+    public WriteAheadLogs writeAheadLogs(@Value("${app.data.dir:}") String dataDir,
+                                         @Value("${app.persistence.fsync-policy:GROUP_COMMIT}") FsyncPolicy fsyncPolicy,
+                                         @Value("${app.persistence.snapshot-every:10000}") int snapshotEvery,
+                                         @Value("${app.persistence.async-flush-interval:100ms}") Duration asyncFlushInterval) {
+        WalConfig config = WalConfig.builder()
+                .fsyncPolicy(fsyncPolicy)
+                .snapshotEvery(snapshotEvery)
+                .asyncFlushInterval(asyncFlushInterval)
+                .build();
+        return new WriteAheadLogs(dataDir.isBlank() ? null : Path.of(dataDir, "wal"), config);
+    }
+
+    /**
+     * Kho book theo {@code app.book-store}: {@code memory} giữ trong bộ nhớ với write-ahead log,
+     * {@code mapped} dùng {@link MappedBookRepository} trong {@code <app.data.dir>/books}. Repository
+     * được đóng khi tắt qua {@link CachingBookRepository#close()}.
+     */
+    @Bean(destroyMethod = "close")
+    public IBookRepository bookRepository(IdGenerator idGenerator, WriteAheadLogs logs,
+                                          @Value("${app.book-store:memory}") String bookStore,
+                                          @Value("${app.data.dir:}") String dataDir,
+                                          @Value("${app.book-cache.maximum-size:10000}") int cacheSize)
+            throws IOException {
+        IBookRepository store = switch (bookStore) {
+            case "memory" -> logs.attach(new InMemoryBookRepository(idGenerator), "books", ModelCodecs.BOOK);
+            case "mapped" -> {
+                if (dataDir.isBlank()) {
+                    throw new IllegalArgumentException("app.data.dir is required for the mapped book store");
+                }
+                yield new MappedBookRepository(Path.of(dataDir, "books"), idGenerator);
+            }
+            default -> throw new IllegalArgumentException("Unknown book store: " + bookStore);
+        };
+        return new CachingBookRepository(store, cacheSize);
+    }
+
+    @Bean
+    public IUserRepository userRepository(IdGenerator idGenerator, WriteAheadLogs logs) throws IOException {
+        return logs.attach(new InMemoryUserRepository(idGenerator), "users", ModelCodecs.USER);
+    }
+
+    @Bean
+    public ICartItemRepository cartItemRepository(IdGenerator idGenerator, WriteAheadLogs logs) throws IOException {
+        return logs.attach(new InMemoryCartItemRepository(idGenerator), "cart-items", ModelCodecs.CART_ITEM);
+    }
+
+    @Bean
+    public ICartRepository cartRepository(IdGenerator idGenerator, WriteAheadLogs logs) throws IOException {
+        return logs.attach(new InMemoryCartRepository(idGenerator), "carts", ModelCodecs.CART);
+    }
+
+    @Bean
+    public IOrderRepository orderRepository(IdGenerator idGenerator, WriteAheadLogs logs) throws IOException {
+        return logs.attach(new InMemoryOrderRepository(idGenerator), "orders", ModelCodecs.ORDER);
+    }
+
+    @Bean(destroyMethod = "close")
+    public PasswordVerifier passwordVerifier(@Value("${app.password.iterations:100000}") int iterations,
+                                             @Value("${app.password.queue-capacity:256}") int queueCapacity) {
+        return new PasswordVerifier(PasswordConfig.builder()
+                .iterations(iterations)
+                .queueCapacity(queueCapacity)
+                .build());
+    }
+
+    @Bean
+    public ImportConfig importConfig(@Value("${app.import.batch-size:1000}") int batchSize,
+                                     @Value("${app.import.parallelism:0}") int parallelism) {
+        ImportConfig.ImportConfigBuilder builder = ImportConfig.builder().batchSize(batchSize);
+        if (parallelism > 0) {
+            builder.parallelism(parallelism).maxPendingBatches(2 * parallelism);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sổ tồn kho, mặc định ở {@code <app.data.dir>/stock.ledger} để tồn kho được giữ qua lần khởi
+     * động lại cùng với book; chỉ nằm trong bộ nhớ khi cả {@code app.stock.ledger.path} và
+     * {@code app.data.dir} đều trống. Sổ fsync theo cùng {@code app.persistence.fsync-policy} với
+     * write-ahead log, nên dòng trừ kho của một checkout bền cùng lúc với order.
+     */
+    @Bean(destroyMethod = "close")
+    public StockLedger stockLedger(@Value("${app.stock.ledger.path:}") String path,
+                                   @Value("${app.data.dir:}") String dataDir,
+                                   @Value("${app.stock.ledger.retained-entries:100000}") int retainedEntries,
+                                   @Value("${app.persistence.fsync-policy:GROUP_COMMIT}") FsyncPolicy fsyncPolicy,
+                                   @Value("${app.persistence.async-flush-interval:100ms}") Duration asyncFlushInterval)
+            throws IOException {
+        if (path.isBlank() && dataDir.isBlank()) {
+            return new StockLedger(retainedEntries);
+        }
+        LedgerConfig config = LedgerConfig.builder()
+                .retainedEntries(retainedEntries)
+                .fsyncPolicy(fsyncPolicy)
+                .asyncFlushInterval(asyncFlushInterval)
+                .build();
+        return StockLedger.open(path.isBlank() ? Path.of(dataDir, "stock.ledger") : Path.of(path), config);
+    }
+
+    /**
+     * Giữ hàng cho giỏ; thread nền trả hàng của giỏ hết hạn mỗi {@code app.stock.reservation.tick}.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public StockReservations stockReservations(StockEngine stockEngine,
+                                               @Value("${app.stock.reservation.ttl:15m}") Duration ttl,
+                                               @Value("${app.stock.reservation.tick:1s}") Duration tick) {
+        return new StockReservations(stockEngine, ReservationConfig.builder().ttl(ttl).tick(tick).build(),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Checkout bất đồng bộ qua {@code POST /api/carts/{cartId}/checkout-async}; tắt bằng
+     * {@code app.checkout.pipeline.enabled=false} thì endpoint đó chạy checkout ngay trên thread request.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.checkout.pipeline.enabled", matchIfMissing = true)
+    public CheckoutPipeline checkoutPipeline(OrderService orderService, ICartRepository cartRepository,
+                                             @Value("${app.checkout.pipeline.partitions:0}") int partitions,
+                                             @Value("${app.checkout.pipeline.ring-size:1024}") int ringSize,
+                                             @Value("${app.checkout.pipeline.batch-size:64}") int batchSize) {
+        PipelineConfig.PipelineConfigBuilder builder = PipelineConfig.builder().ringSize(ringSize).batchSize(batchSize);
+        if (partitions > 0) {
+            builder.partitions(partitions);
+        }
+        return new CheckoutPipeline(orderService, cartRepository, builder.build());
+    }
+
+    @Bean
+    public IdempotencyStore idempotencyStore(@Value("${app.idempotency.max-keys:100000}") int maxKeys,
+                                             @Value("${app.idempotency.ttl:24h}") Duration ttl) {
+        return new IdempotencyStore(IdempotencyConfig.builder().maxKeys(maxKeys).ttl(ttl).build(),
+                System::currentTimeMillis);
+    }
+}
@@ -3,7 +3,7 @@ package org.example.finaltest;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"org.example.finaltest", "catalog", "metrics", "services", "stock", "web"})
 public class FinalTestApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,20 @@
+package persistence;
+
+/**
+ * Khi nào dữ liệu của write-ahead log được ép xuống đĩa.
+ */
+public enum FsyncPolicy {
+    /**
+     * Mỗi lần ghi tự fsync trước khi trả về cho người gọi. fsync chạy ngoài lock ghi nên các lần
+     * ghi khác không phải chờ đĩa, nhưng số lần fsync bằng số lần ghi. Bền nhất, chậm nhất.
+     */
+    PER_WRITE,
+    /**
+     * Người gọi chờ fsync, nhưng nhiều lần ghi đồng thời dùng chung một lần fsync.
+     */
+    GROUP_COMMIT,
+    /**
+     * fsync định kỳ ở luồng nền; có thể mất các lần ghi trong khoảng cuối khi sập.
+     */
+    ASYNC
+}
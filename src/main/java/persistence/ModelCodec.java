@@ -0,0 +1,14 @@
+package persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mã hóa nhị phân một model cho write-ahead log và snapshot.
+ */
+public interface ModelCodec<M> {
+    void write(DataOutput out, M model) throws IOException;
+
+    M read(DataInput in) throws IOException;
+}
@@ -0,0 +1,202 @@
+package persistence;
+
+import models.Book;
+import models.Cart;
+import models.CartItem;
+import models.Order;
+import models.User;
+import utils.LongIntHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec cho các model của ứng dụng. Object lồng nhau (Book trong CartItem, User
+ * trong Cart...) được ghi đầy đủ, giống cách chúng được lưu trong repository.
+ * Đổi định dạng ở đây phải tăng {@link #FORMAT_VERSION}.
+ */
+public final class ModelCodecs {
+    public static final int FORMAT_VERSION = 3;
+
+    public static final ModelCodec<Book> BOOK = new ModelCodec<>() {
+        @Override
+        public void write(DataOutput out, Book book) throws IOException {
+            writeNullableLong(out, book.getId());
+            writeString(out, book.getTitle());
+            writeString(out, book.getAuthor());
+            writeString(out, book.getPublisher());
+            writeString(out, book.getIsbn());
+            out.writeDouble(book.getPrice());
+            out.writeInt(book.getStockQuantity());
+            writeString(out, book.getDescription());
+        }
+
+        @Override
+        public Book read(DataInput in) throws IOException {
+            return Book.builder()
+                    .id(readNullableLong(in))
+                    .title(readString(in))
+                    .author(readString(in))
+                    .publisher(readString(in))
+                    .isbn(readString(in))
+                    .price(in.readDouble())
+                    .stockQuantity(in.readInt())
+                    .description(readString(in))
+                    .build();
+        }
+    };
+
+    public static final ModelCodec<User> USER = new ModelCodec<>() {
+        @Override
+        public void write(DataOutput out, User user) throws IOException {
+            writeNullableLong(out, user.getId());
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            writeString(out, user.getEmail());
+            writeString(out, user.getFullName());
+            writeString(out, user.getAddress());
+            writeString(out, user.getPhone());
+        }
+
+        @Override
+        public User read(DataInput in) throws IOException {
+            return User.builder()
+                    .id(readNullableLong(in))
+                    .username(readString(in))
+                    .password(readString(in))
+                    .email(readString(in))
+                    .fullName(readString(in))
+                    .address(readString(in))
+                    .phone(readString(in))
+                    .build();
+        }
+    };
+
+    public static final ModelCodec<CartItem> CART_ITEM = new ModelCodec<>() {
+        @Override
+        public void write(DataOutput out, CartItem cartItem) throws IOException {
+            out.writeLong(cartItem.getId());
+            writeNullable(out, BOOK, cartItem.getBook());
+            out.writeInt(cartItem.getQuantity());
+        }
+
+        @Override
+        public CartItem read(DataInput in) throws IOException {
+            return CartItem.builder()
+                    .id(in.readLong())
+                    .book(readNullable(in, BOOK))
+                    .quantity(in.readInt())
+                    .build();
+        }
+    };
+
+    public static final ModelCodec<Cart> CART = new ModelCodec<>() {
+        @Override
+        public void write(DataOutput out, Cart cart) throws IOException {
+            out.writeLong(cart.getId());
+            writeNullable(out, USER, cart.getUser());
+            writeNullable(out, CART_ITEM, cart.getCartItem());
+            writeItems(out, cart.getItems());
+        }
+
+        @Override
+        public Cart read(DataInput in) throws IOException {
+            return Cart.builder()
+                    .id(in.readLong())
+                    .user(readNullable(in, USER))
+                    .cartItem(readNullable(in, CART_ITEM))
+                    .items(readItems(in))
+                    .build();
+        }
+    };
+
+    public static final ModelCodec<Order> ORDER = new ModelCodec<>() {
+        @Override
+        public void write(DataOutput out, Order order) throws IOException {
+            out.writeLong(order.getId());
+            out.writeLong(order.getUserId());
+            out.writeInt(order.getQuantity());
+            writeNullable(out, BOOK, order.getBook());
+            writeItems(out, order.getItems());
+        }
+
+        @Override
+        public Order read(DataInput in) throws IOException {
+            return Order.builder()
+                    .id(in.readLong())
+                    .userId(in.readLong())
+                    .quantity(in.readInt())
+                    .book(readNullable(in, BOOK))
+                    .items(readItems(in))
+                    .build();
+        }
+    };
+
+    private ModelCodecs() {
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    static void writeItems(DataOutput out, LongIntHashMap items) throws IOException {
+        if (items == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(items.size());
+        for (long bookId : items.keys()) {
+            out.writeLong(bookId);
+            out.writeInt(items.getOrDefault(bookId, 0));
+        }
+    }
+
+    static LongIntHashMap readItems(DataInput in) throws IOException {
+        int count = in.readInt();
+        LongIntHashMap items = new LongIntHashMap(Math.max(4, count));
+        for (int i = 0; i < count; i++) {
+            items.put(in.readLong(), in.readInt());
+        }
+        return items;
+    }
+
+    static <M> void writeNullable(DataOutput out, ModelCodec<M> codec, M value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            codec.write(out, value);
+        }
+    }
+
+    static <M> M readNullable(DataInput in, ModelCodec<M> codec) throws IOException {
+        return in.readBoolean() ? codec.read(in) : null;
+    }
+}
@@ -0,0 +1,25 @@
+package persistence;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+@Value
+@Builder
+public class WalConfig {
+    @Builder.Default
+    FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+
+    /**
+     * Số bản ghi log giữa hai lần chụp snapshot.
+     */
+    @Builder.Default
+    int snapshotEvery = 10_000;
+
+    /**
+     * Chu kỳ fsync khi dùng {@link FsyncPolicy#ASYNC}.
+     */
+    @Builder.Default
+    Duration asyncFlushInterval = Duration.ofMillis(100);
+}
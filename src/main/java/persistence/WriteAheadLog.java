@@ -0,0 +1,647 @@
+package persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repositories.InMemoryRepository;
+import repositories.RepositoryJournal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Write-ahead log + snapshot cho một {@link InMemoryRepository}.
+ * <p>
+ * Mỗi create/update/delete được ghi thành một bản ghi nhị phân
+ * {@code [length][crc32][op][lsn][id][model]} vào {@code <name>-<generation>.wal}.
+ * Sau {@link WalConfig#getSnapshotEvery()} bản ghi, toàn bộ dữ liệu được chụp vào
+ * {@code <name>-<lsn>.snap} và log chuyển sang generation mới; file cũ chỉ bị xóa
+ * sau khi snapshot đã được ghi xong. Khi mở, snapshot hợp lệ mới nhất được nạp rồi
+ * phần đuôi log được phát lại; bản ghi cuối bị ghi dở (crc sai) sẽ bị cắt bỏ.
+ * <p>
+ * Thay đổi được áp dụng vào bộ nhớ rồi ghi log trong cùng một lock; fsync chạy ngoài lock và
+ * người gọi chỉ nhận kết quả sau khi bản ghi đã bền (trừ {@link FsyncPolicy#ASYNC}). Log giữ
+ * giá trị cũ của các bản ghi chưa được fsync: ghi log hoặc fsync lỗi thì mọi thay đổi chưa bền
+ * bị hoàn tác trong repository (từ mới tới cũ) và log ngừng nhận ghi, nên bộ nhớ không bao giờ
+ * giữ thay đổi mà log không có. Người đọc đồng thời có thể thấy một thay đổi trước khi nó bền.
+ */
+public class WriteAheadLog<M> implements RepositoryJournal<M>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final int LOG_MAGIC = 0x57414C31;
+    private static final int SNAPSHOT_MAGIC = 0x534E5031;
+    private static final int LOG_HEADER_SIZE = 16;
+    private static final String LOG_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path directory;
+    private final String name;
+    private final ModelCodec<M> codec;
+    private final WalConfig config;
+    private final InMemoryRepository<M> repository;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+    private volatile FileChannel channel;
+    private long generation;
+    private volatile long lastLsn;
+    private long sinceSnapshot;
+    private volatile IOException failure;
+
+    private final Object syncMonitor = new Object();
+    // chỉ ghi khi giữ syncMonitor
+    private volatile long durableLsn;
+    private boolean syncing;
+    // giá trị cũ của các bản ghi sau durableLsn, cũ trước; chỉ dùng khi giữ writeLock
+    private final ArrayDeque<Undo<M>> undo = new ArrayDeque<>();
+
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final ScheduledExecutorService background;
+
+    private WriteAheadLog(InMemoryRepository<M> repository, Path directory, String name,
+                          ModelCodec<M> codec, WalConfig config) {
+        this.repository = repository;
+        this.directory = directory;
+        this.name = name;
+        this.codec = codec;
+        this.config = config;
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Khôi phục {@code repository} từ thư mục rồi gắn log vào nó.
+     */
+    public static <M> WriteAheadLog<M> open(InMemoryRepository<M> repository, Path directory, String name,
+                                            ModelCodec<M> codec, WalConfig config) throws IOException {
+        Files.createDirectories(directory);
+        WriteAheadLog<M> wal = new WriteAheadLog<>(repository, directory, name, codec, config);
+        wal.recover();
+        repository.setJournal(wal);
+        if (config.getFsyncPolicy() == FsyncPolicy.ASYNC) {
+            long interval = config.getAsyncFlushInterval().toMillis();
+            wal.background.scheduleWithFixedDelay(wal::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        return wal;
+    }
+
+    @Override
+    public <R> R record(Operation operation, long id, M model, Supplier<R> apply) {
+        long lsn;
+        boolean snapshotDue;
+        FileChannel written;
+        R result;
+        writeLock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log is unusable", failure);
+            }
+            M previous = repository.findById(id);
+            result = apply.get();
+            if (result == null) {
+                return null;
+            }
+            lsn = lastLsn + 1;
+            written = channel;
+            long position = -1;
+            try {
+                position = written.position();
+                append(operation, lsn, id, model);
+            } catch (IOException e) {
+                markFailed(e);
+                undo.addLast(new Undo<>(lsn, id, previous, position));
+                rollbackUndurable();
+                throw new UncheckedIOException(e);
+            }
+            trimUndo();
+            undo.addLast(new Undo<>(lsn, id, previous, position));
+            lastLsn = lsn;
+            snapshotDue = ++sinceSnapshot >= config.getSnapshotEvery();
+        } finally {
+            writeLock.unlock();
+        }
+        if (config.getFsyncPolicy() == FsyncPolicy.PER_WRITE) {
+            forceOwn(written, lsn);
+        } else if (config.getFsyncPolicy() == FsyncPolicy.GROUP_COMMIT) {
+            awaitDurable(lsn);
+        }
+        if (snapshotDue && !snapshotting.get() && !background.isShutdown()) {
+            background.execute(this::snapshotQuietly);
+        }
+        return result;
+    }
+
+    private void append(Operation operation, long lsn, long id, M model) throws IOException {
+        buffer.reset();
+        bufferOut.writeByte(operation.ordinal());
+        bufferOut.writeLong(lsn);
+        bufferOut.writeLong(id);
+        if (operation != Operation.DELETE) {
+            codec.write(bufferOut, model);
+        }
+        byte[] payload = buffer.toByteArray();
+        crc.reset();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    /**
+     * fsync riêng cho bản ghi {@code lsn} của {@link FsyncPolicy#PER_WRITE}, ngoài lock ghi.
+     * Mọi bản ghi trước nó đã nằm trong file nên cũng bền theo.
+     */
+    private void forceOwn(FileChannel written, long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        try {
+            written.force(false);
+        } catch (ClosedChannelException e) {
+            // snapshot đã fsync rồi đóng generation cũ; nếu không phải vậy thì là lỗi thật
+            if (written == channel) {
+                failDurability(e);
+            }
+        } catch (IOException e) {
+            failDurability(e);
+        }
+        synchronized (syncMonitor) {
+            if (failure != null && durableLsn < lsn) {
+                throw new UncheckedIOException("Write-ahead log is unusable", failure);
+            }
+            durableLsn = Math.max(durableLsn, lsn);
+        }
+    }
+
+    /**
+     * Chờ tới khi bản ghi {@code lsn} đã được fsync; luồng đến trước fsync hộ cho cả nhóm.
+     */
+    private void awaitDurable(long lsn) {
+        while (true) {
+            synchronized (syncMonitor) {
+                while (durableLsn < lsn && syncing) {
+                    try {
+                        syncMonitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for fsync", e);
+                    }
+                }
+                if (durableLsn >= lsn) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log is unusable", failure);
+                }
+                syncing = true;
+            }
+            long target = lastLsn;
+            boolean forced = false;
+            try {
+                channel.force(false);
+                forced = true;
+            } catch (IOException e) {
+                failDurability(e);
+            } finally {
+                synchronized (syncMonitor) {
+                    syncing = false;
+                    if (forced && failure == null) {
+                        durableLsn = Math.max(durableLsn, target);
+                    }
+                    syncMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * fsync lỗi: các bản ghi chưa bền có thể không bao giờ xuống đĩa, nên hoàn tác chúng trong
+     * repository và ngừng nhận ghi.
+     */
+    private void failDurability(IOException e) {
+        writeLock.lock();
+        try {
+            markFailed(e);
+            rollbackUndurable();
+        } finally {
+            writeLock.unlock();
+        }
+        throw new UncheckedIOException(e);
+    }
+
+    /**
+     * Đặt {@link #failure} trong syncMonitor: nơi nâng {@link #durableLsn} kiểm tra nó trong cùng
+     * monitor, nên một bản ghi hoặc được báo là bền, hoặc bị hoàn tác, không bao giờ cả hai.
+     */
+    private void markFailed(IOException e) {
+        synchronized (syncMonitor) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    // chỉ gọi khi giữ writeLock
+    private void trimUndo() {
+        long durable = durableLsn;
+        while (!undo.isEmpty() && undo.peekFirst().lsn() <= durable) {
+            undo.pollFirst();
+        }
+    }
+
+    /**
+     * Đưa repository về trạng thái ở {@link #durableLsn}, từ bản ghi mới nhất trở về, rồi cắt
+     * phần đuôi log chưa bền (nếu cắt được) để lần mở sau không phát lại thay đổi đã hoàn tác.
+     * Chỉ gọi khi giữ writeLock và đã đặt {@link #failure}.
+     */
+    private void rollbackUndurable() {
+        trimUndo();
+        long truncateAt = -1;
+        Undo<M> entry;
+        while ((entry = undo.pollLast()) != null) {
+            if (entry.previous() == null) {
+                repository.forget(entry.id());
+            } else {
+                repository.restore(entry.id(), entry.previous());
+            }
+            if (entry.position() >= 0) {
+                truncateAt = entry.position();
+            }
+        }
+        if (truncateAt >= 0) {
+            try {
+                channel.truncate(truncateAt);
+            } catch (IOException e) {
+                log.warn("Could not truncate undone records of write-ahead log {}", name, e);
+            }
+        }
+    }
+
+    /**
+     * fsync mọi bản ghi đã ghi tới thời điểm gọi.
+     */
+    public void flush() {
+        awaitDurable(lastLsn);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush write-ahead log {}", name, e);
+        }
+    }
+
+    /**
+     * Chụp snapshot ngay và bắt đầu generation log mới.
+     */
+    public void snapshot() throws IOException {
+        if (!snapshotting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            takeSnapshot();
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to snapshot {}", name, e);
+        }
+    }
+
+    private void takeSnapshot() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        List<M> models = new ArrayList<>();
+        long snapshotLsn;
+        FileChannel previous;
+        acquireSyncToken();
+        writeLock.lock();
+        try {
+            snapshotLsn = lastLsn;
+            if (snapshotLsn == generation) {
+                return;
+            }
+            // mọi thao tác ghi đều đi qua writeLock nên dữ liệu đứng yên khi duyệt
+            repository.forEachStored((id, model) -> {
+                ids.add(id);
+                models.add(model);
+            });
+            channel.force(false);
+            previous = channel;
+            channel = openLog(snapshotLsn);
+            generation = snapshotLsn;
+            sinceSnapshot = 0;
+            synchronized (syncMonitor) {
+                durableLsn = Math.max(durableLsn, snapshotLsn);
+            }
+            undo.clear();
+        } finally {
+            writeLock.unlock();
+            releaseSyncToken();
+        }
+        previous.close();
+
+        Path target = file(snapshotLsn, SNAPSHOT_SUFFIX);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32 checksum = new CRC32();
+            DataOutputStream data = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16), checksum));
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeInt(ModelCodecs.FORMAT_VERSION);
+            data.writeLong(snapshotLsn);
+            data.writeInt(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                data.writeLong(ids.get(i));
+                codec.write(data, models.get(i));
+            }
+            data.flush();
+            new DataOutputStream(Channels.newOutputStream(out)).writeLong(checksum.getValue());
+            out.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path path : listFiles()) {
+            if (generationOf(path) < snapshotLsn) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private void acquireSyncToken() {
+        synchronized (syncMonitor) {
+            while (syncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for fsync", e);
+                }
+            }
+            syncing = true;
+        }
+    }
+
+    private void releaseSyncToken() {
+        synchronized (syncMonitor) {
+            syncing = false;
+            syncMonitor.notifyAll();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = listFiles();
+        long snapshotLsn = 0;
+        for (int i = files.size() - 1; i >= 0; i--) {
+            Path path = files.get(i);
+            if (path.toString().endsWith(SNAPSHOT_SUFFIX) && loadSnapshot(path)) {
+                snapshotLsn = generationOf(path);
+                break;
+            }
+        }
+        lastLsn = snapshotLsn;
+        generation = snapshotLsn;
+        Path current = null;
+        long firstGeneration = generationBefore(files, snapshotLsn);
+        List<Path> logs = files.stream()
+                .filter(path -> path.toString().endsWith(LOG_SUFFIX))
+                .filter(path -> generationOf(path) >= firstGeneration)
+                .toList();
+        for (int i = 0; i < logs.size(); i++) {
+            Path path = logs.get(i);
+            replay(path, snapshotLsn, i == logs.size() - 1);
+            current = path;
+            generation = generationOf(path);
+        }
+        channel = current == null ? openLog(snapshotLsn) : openExistingLog(current);
+        durableLsn = lastLsn;
+    }
+
+    /**
+     * Generation log chứa bản ghi ngay sau snapshot: generation lớn nhất không vượt quá {@code lsn}.
+     */
+    private long generationBefore(List<Path> files, long lsn) {
+        long result = 0;
+        for (Path path : files) {
+            long generationOfPath = generationOf(path);
+            if (path.toString().endsWith(LOG_SUFFIX) && generationOfPath <= lsn) {
+                result = Math.max(result, generationOfPath);
+            }
+        }
+        return result;
+    }
+
+    private boolean loadSnapshot(Path path) {
+        CRC32 checksum = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            DataInputStream data = new DataInputStream(new CheckedInputStream(raw, checksum));
+            if (data.readInt() != SNAPSHOT_MAGIC || data.readInt() != ModelCodecs.FORMAT_VERSION) {
+                return false;
+            }
+            data.readLong();
+            int count = data.readInt();
+            List<Long> ids = new ArrayList<>(count);
+            List<M> models = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(data.readLong());
+                models.add(codec.read(data));
+            }
+            long expected = checksum.getValue();
+            if (new DataInputStream(raw).readLong() != expected) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                repository.restore(ids.get(i), models.get(i));
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable snapshot {}", path, e);
+            return false;
+        }
+    }
+
+    private void replay(Path path, long afterLsn, boolean last) throws IOException {
+        long validEnd = LOG_HEADER_SIZE;
+        try (DataInputStream data = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (data.readInt() != LOG_MAGIC || data.readInt() != ModelCodecs.FORMAT_VERSION) {
+                throw new IOException("Not a write-ahead log: " + path);
+            }
+            data.readLong();
+            CRC32 checksum = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int expected;
+                byte[] payload;
+                try {
+                    expected = data.readInt();
+                    if (length < 17) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+                applyRecord(payload, afterLsn);
+                validEnd += 8 + length;
+            }
+        }
+        if (validEnd < Files.size(path)) {
+            if (!last) {
+                throw new IOException("Corrupted write-ahead log before its tail: " + path);
+            }
+            log.warn("Truncating torn tail of {} at {}", path, validEnd);
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(validEnd);
+            }
+        }
+    }
+
+    private void applyRecord(byte[] payload, long afterLsn) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Operation operation = Operation.values()[in.readByte()];
+        long lsn = in.readLong();
+        long id = in.readLong();
+        if (lsn <= afterLsn) {
+            return;
+        }
+        if (operation == Operation.DELETE) {
+            repository.forget(id);
+        } else {
+            repository.restore(id, codec.read(in));
+        }
+        lastLsn = Math.max(lastLsn, lsn);
+    }
+
+    private FileChannel openLog(long generationLsn) throws IOException {
+        Path path = file(generationLsn, LOG_SUFFIX);
+        FileChannel created = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC).putInt(ModelCodecs.FORMAT_VERSION).putLong(generationLsn).flip();
+        while (header.hasRemaining()) {
+            created.write(header);
+        }
+        created.force(true);
+        return created;
+    }
+
+    private FileChannel openExistingLog(Path path) throws IOException {
+        FileChannel existing = FileChannel.open(path, StandardOpenOption.WRITE);
+        existing.position(existing.size());
+        return existing;
+    }
+
+    private Path file(long generationLsn, String suffix) {
+        return directory.resolve(String.format("%s-%020d%s", name, generationLsn, suffix));
+    }
+
+    private long generationOf(Path path) {
+        String fileName = path.getFileName().toString();
+        int start = name.length() + 1;
+        return Long.parseLong(fileName.substring(start, fileName.indexOf('.', start)));
+    }
+
+    private List<Path> listFiles() throws IOException {
+        String prefix = name + "-";
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream
+                    .filter(path -> {
+                        String fileName = path.getFileName().toString();
+                        return fileName.startsWith(prefix)
+                                && (fileName.endsWith(LOG_SUFFIX) || fileName.endsWith(SNAPSHOT_SUFFIX))
+                                && fileName.substring(prefix.length(), fileName.indexOf('.')).chars()
+                                .allMatch(Character::isDigit);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public long lastLsn() {
+        return lastLsn;
+    }
+
+    /**
+     * Giá trị của {@code id} trước bản ghi {@code lsn}; {@code previous == null} nghĩa là chưa tồn tại.
+     *
+     * @param position vị trí bản ghi trong file log, {@code -1} nếu chưa biết
+     */
+    private record Undo<M>(long lsn, long id, M previous, long position) {
+    }
+
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            // chờ snapshot đang chạy xong để không xóa file khi log đã được mở lại
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            if (failure == null) {
+                channel.force(false);
+            }
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
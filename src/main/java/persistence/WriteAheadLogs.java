@@ -0,0 +1,61 @@
+package persistence;
+
+import repositories.InMemoryRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gắn {@link WriteAheadLog} cho các repository của ứng dụng trong cùng một thư mục và đóng
+ * chúng cùng lúc. Không có thư mục thì {@link #attach} không làm gì: repository chỉ nằm
+ * trong bộ nhớ.
+ */
+public class WriteAheadLogs implements Closeable {
+    private final Path directory;
+    private final WalConfig config;
+    private final List<WriteAheadLog<?>> logs = new ArrayList<>();
+
+    /**
+     * @param directory thư mục chứa log và snapshot, {@code null} để tắt việc ghi log
+     */
+    public WriteAheadLogs(Path directory, WalConfig config) {
+        this.directory = directory;
+        this.config = config;
+    }
+
+    /**
+     * Khôi phục {@code repository} từ log {@code name} rồi ghi mọi thay đổi về sau vào đó.
+     *
+     * @return chính {@code repository}
+     */
+    public synchronized <M, R extends InMemoryRepository<M>> R attach(R repository, String name, ModelCodec<M> codec)
+            throws IOException {
+        if (directory != null) {
+            logs.add(WriteAheadLog.open(repository, directory, name, codec, config));
+        }
+        return repository;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (WriteAheadLog<?> log : logs) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        logs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
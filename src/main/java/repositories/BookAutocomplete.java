@@ -0,0 +1,37 @@
+package repositories;
+
+import search.PrefixIndex;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Hai {@link PrefixIndex} cho title và author của các book đang lưu; trọng số của một gợi ý
+ * là số book có title (hoặc author) đó.
+ */
+final class BookAutocomplete {
+    private final PrefixIndex titles = new PrefixIndex();
+    private final PrefixIndex authors = new PrefixIndex();
+
+    /**
+     * Cập nhật khi book đổi title/author; {@code null} cho phía không có (tạo mới hoặc xóa).
+     */
+    void replace(String oldTitle, String oldAuthor, String newTitle, String newAuthor) {
+        if (!Objects.equals(oldTitle, newTitle)) {
+            titles.remove(oldTitle);
+            titles.add(newTitle);
+        }
+        if (!Objects.equals(oldAuthor, newAuthor)) {
+            authors.remove(oldAuthor);
+            authors.add(newAuthor);
+        }
+    }
+
+    List<String> titles(String prefix, int limit) {
+        return titles.complete(prefix, limit);
+    }
+
+    List<String> authors(String prefix, int limit) {
+        return authors.complete(prefix, limit);
+    }
+}
@@ -0,0 +1,19 @@
+package repositories;
+
+import search.InvertedIndex;
+
+/**
+ * Cách các repository book đưa text vào {@link InvertedIndex}: title nặng nhất, rồi author,
+ * nên khi xếp hạng, sách có từ khóa ở tên đứng trước sách chỉ nhắc tới nó trong mô tả.
+ */
+final class BookIndexing {
+    private static final int[] WEIGHTS = {3, 2, 1, 1, 1};
+
+    private BookIndexing() {
+    }
+
+    static void put(InvertedIndex index, long id, String title, String author, String publisher,
+                    String isbn, String description) {
+        index.put(id, WEIGHTS, title, author, publisher, isbn, description);
+    }
+}
@@ -0,0 +1,323 @@
+package repositories;
+
+import models.Book;
+import search.RankedResult;
+import search.SearchCursor;
+import utils.ConcurrentLongObjectMap;
+import utils.FrequencySketch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator đọc qua cache cho {@link IBookRepository}, giới hạn số book và loại bỏ theo
+ * W-TinyLFU: book mới vào một cửa sổ LRU nhỏ (1%), khi rời cửa sổ chỉ được nhận vào vùng
+ * chính (SLRU probation/protected) nếu {@link FrequencySketch} ước lượng nó được đọc nhiều
+ * hơn nạn nhân sắp bị loại. Nhờ vậy một lượt quét toàn catalog không đẩy book phổ biến ra.
+ * <p>
+ * Đọc trúng cache chỉ tra map đồng thời; việc ghi nhận truy cập vào chính sách chạy dưới
+ * một lock và bị bỏ qua khi lock đang bận. {@link #update} và {@link #delete} xóa đúng
+ * entry của book đó sau khi ghi xuống repository gốc. Mỗi stripe khóa có một bộ đếm lần
+ * xóa, nên kết quả đọc từ repository gốc không được đưa vào cache nếu trong lúc đọc có
+ * một lần ghi vào book đó.
+ * <p>
+ * {@link #close()} đóng luôn repository gốc nếu nó cần đóng: {@link MappedBookRepository} được
+ * ghi xuống đĩa và đóng file, các vùng đã map được giải phóng khi GC thu hồi.
+ */
+public class CachingBookRepository implements IBookRepository, Closeable {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int STRIPES = 64;
+
+    private final IBookRepository delegate;
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final ConcurrentLongObjectMap<Node> data = new ConcurrentLongObjectMap<>();
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protectedQueue = new Queue();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingBookRepository(IBookRepository delegate, int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public Book findById(long id) {
+        Node node = data.get(id);
+        if (node != null) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    onAccess(node);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return copy(node.value);
+        }
+
+        misses.increment();
+        long stamp = invalidations.get(stripe(id));
+        Book loaded = delegate.findById(id);
+        if (loaded != null) {
+            insert(id, copy(loaded), stamp);
+        }
+        return loaded;
+    }
+
+    @Override
+    public Book create(Book book) {
+        return delegate.create(book);
+    }
+
+    @Override
+    public List<Book> createAll(List<Book> books) {
+        try {
+            return delegate.createAll(books);
+        } catch (RuntimeException e) {
+            // lô bị hủy: book vừa được tạo rồi xóa lại có thể đã lọt vào cache
+            for (Book book : books) {
+                if (book.getId() != null) {
+                    invalidate(book.getId());
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Book update(long id, Book book) {
+        try {
+            return delegate.update(id, book);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public List<Book> searchByKeyword(String keyword) {
+        return delegate.searchByKeyword(keyword);
+    }
+
+    @Override
+    public RankedResult searchRanked(String keyword, int offset, int limit, SearchCursor after) {
+        return delegate.searchRanked(keyword, offset, limit, after);
+    }
+
+    @Override
+    public RankedResult searchFuzzy(String keyword, int maxEdits, int limit, long budgetNanos) {
+        return delegate.searchFuzzy(keyword, maxEdits, limit, budgetNanos);
+    }
+
+    /**
+     * Đọc thẳng từ repository gốc: một lượt duyệt toàn catalog không đi qua cache.
+     */
+    @Override
+    public void forEachBook(Consumer<? super Book> action) {
+        delegate.forEachBook(action);
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        return delegate.suggestTitles(prefix, limit);
+    }
+
+    @Override
+    public List<String> suggestAuthors(String prefix, int limit) {
+        return delegate.suggestAuthors(prefix, limit);
+    }
+
+    public void invalidate(long id) {
+        policyLock.lock();
+        try {
+            invalidations.incrementAndGet(stripe(id));
+            Node node = data.remove(id);
+            if (node != null) {
+                queueOf(node).unlink(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    private void insert(long id, Book value, long stamp) {
+        policyLock.lock();
+        try {
+            // có lần ghi xen giữa lúc đọc repository gốc: giá trị có thể đã cũ
+            if (invalidations.get(stripe(id)) != stamp || data.containsKey(id)) {
+                return;
+            }
+            Node node = new Node(id, value);
+            data.put(id, node);
+            sketch.increment(id);
+            window.addLast(node, WINDOW);
+            if (window.size > windowMaximum) {
+                Node candidate = window.head.next;
+                window.unlink(candidate);
+                probation.addLast(candidate, PROBATION);
+            }
+            evictIfNeeded();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue < 0) {
+            // đã bị xóa khỏi cache
+            return;
+        }
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW -> window.moveToLast(node);
+            case PROBATION -> {
+                probation.unlink(node);
+                protectedQueue.addLast(node, PROTECTED);
+                if (protectedQueue.size > protectedMaximum) {
+                    Node demoted = protectedQueue.head.next;
+                    protectedQueue.unlink(demoted);
+                    probation.addLast(demoted, PROBATION);
+                }
+            }
+            default -> protectedQueue.moveToLast(node);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (data.size() > maximumSize) {
+            Node victim = probation.head.next;
+            Node candidate = probation.head.prev;
+            Node evicted;
+            if (victim == probation.head) {
+                evicted = protectedQueue.size > 0 ? protectedQueue.head.next : window.head.next;
+            } else if (victim == candidate) {
+                evicted = victim;
+            } else {
+                // TinyLFU: ứng viên từ cửa sổ chỉ thắng khi được đọc nhiều hơn nạn nhân
+                evicted = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+            }
+            queueOf(evicted).unlink(evicted);
+            data.remove(evicted.key);
+            evictions.increment();
+        }
+    }
+
+    private Queue queueOf(Node node) {
+        return switch (node.queue) {
+            case WINDOW -> window;
+            case PROBATION -> probation;
+            default -> protectedQueue;
+        };
+    }
+
+    private static int stripe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58);
+    }
+
+    private static Book copy(Book book) {
+        return book.toBuilder().build();
+    }
+
+    private static final class Node {
+        final long key;
+        final Book value;
+        int queue = -1;
+        Node prev;
+        Node next;
+
+        Node(long key, Book value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Danh sách liên kết đôi vòng có node gác {@code head}; đầu danh sách là LRU.
+     */
+    private static final class Queue {
+        final Node head = new Node(0L, null);
+        int size;
+
+        Queue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void addLast(Node node, int queue) {
+            node.queue = queue;
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        void unlink(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.queue = -1;
+            size--;
+        }
+
+        void moveToLast(Node node) {
+            int queue = node.queue;
+            unlink(node);
+            addLast(node, queue);
+        }
+    }
+}
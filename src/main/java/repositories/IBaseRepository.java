@@ -2,10 +2,29 @@ package repositories;
 
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Repository
 public interface IBaseRepository<Model> {
     Model findById(long id);
     Model create(Model model);
     Model update(long id, Model model);
     void delete(long id);
+
+    /**
+     * Tạo nhiều model trong một lời gọi, tất cả hoặc không gì cả: một model lỗi thì các model
+     * đã tạo trước nó trong lô bị xóa lại rồi exception được ném tiếp. Model đầu vào có thể đã
+     * bị gán id dù lô thất bại.
+     * Cài đặt mặc định gọi {@link #create} lần lượt và không nguyên tử; repository nên override.
+     *
+     * @return các model đã tạo, cùng thứ tự với {@code models}
+     */
+    default List<Model> createAll(List<Model> models) {
+        List<Model> created = new ArrayList<>(models.size());
+        for (Model model : models) {
+            created.add(create(model));
+        }
+        return created;
+    }
 }
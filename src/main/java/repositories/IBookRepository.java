@@ -2,12 +2,44 @@ package repositories;
 
 import models.Book;
 import org.springframework.stereotype.Repository;
+import search.RankedResult;
+import search.SearchCursor;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public interface IBookRepository extends IBaseRepository<Book> {
     List<Book> searchByKeyword(String keyword);
 
+    /**
+     * Id của các book khớp {@code keyword}, xếp theo độ liên quan (BM25), theo trang.
+     *
+     * @param after cursor của trang trước, {@code null} để lấy từ đầu
+     */
+    RankedResult searchRanked(String keyword, int offset, int limit, SearchCursor after);
+
+    /**
+     * Tìm chịu lỗi gõ: mỗi từ khóa khớp cả term cách nó không quá {@code maxEdits} lần sửa.
+     * Có thể trả kết quả chưa đầy đủ ({@link RankedResult#isPartial()}) khi quá {@code budgetNanos}.
+     */
+    RankedResult searchFuzzy(String keyword, int maxEdits, int limit, long budgetNanos);
+
+    /**
+     * Tối đa {@code limit} title có một từ bắt đầu bằng {@code prefix}, title nhiều book trước.
+     */
+    List<String> suggestTitles(String prefix, int limit);
+
+    /**
+     * Như {@link #suggestTitles(String, int)}, cho author.
+     */
+    List<String> suggestAuthors(String prefix, int limit);
+
+    /**
+     * Duyệt mọi book mà không dựng danh sách, dùng cho export. Book được tạo hoặc sửa trong lúc
+     * duyệt có thể được thấy hoặc không; {@code action} không chạy trong lock của repository.
+     */
+    void forEachBook(Consumer<? super Book> action);
+
 //    Book findById(long id);
 }
@@ -2,8 +2,21 @@ package repositories;
 
 import models.Order;
 
+import java.util.Comparator;
 import java.util.List;
 
 public interface IOrderRepository extends IBaseRepository<Order> {
     List<Order> findByUserId(long userId);
+
+    /**
+     * Phân trang theo keyset: trả về tối đa {@code limit} order của user có id lớn hơn
+     * {@code afterOrderId}, sắp xếp tăng dần theo id. Trang tiếp theo dùng id cuối cùng làm cursor.
+     */
+    default List<Order> findByUserId(long userId, long afterOrderId, int limit) {
+        return findByUserId(userId).stream()
+                .filter(order -> order.getId() > afterOrderId)
+                .sorted(Comparator.comparingLong(Order::getId))
+                .limit(limit)
+                .toList();
+    }
 }
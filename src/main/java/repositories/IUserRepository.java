@@ -3,7 +3,38 @@ package repositories;
 import models.User;
 import org.springframework.stereotype.Repository;
 
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
 @Repository
 public interface IUserRepository extends IBaseRepository<User> {
     User findByEmail(String email);
+
+    /**
+     * Tạo user nếu email (sau khi chuẩn hóa) chưa được dùng.
+     * Cài đặt mặc định không nguyên tử; repository nên override bằng một index đồng thời.
+     *
+     * @return user đã tạo, hoặc {@code null} nếu email đã tồn tại
+     */
+    default User createIfEmailAbsent(User user) {
+        return createIfEmailAbsent(user, UnaryOperator.identity());
+    }
+
+    /**
+     * Như {@link #createIfEmailAbsent(User)} nhưng chỉ gọi {@code prepare} (ví dụ hash mật khẩu)
+     * sau khi email đã được giữ chỗ, nên lần đăng ký trùng email bị từ chối trước khi tốn công
+     * chuẩn bị. {@code prepare} lỗi thì email được trả lại.
+     *
+     * @return user đã tạo, hoặc {@code null} nếu email đã tồn tại
+     */
+    default User createIfEmailAbsent(User user, UnaryOperator<User> prepare) {
+        if (findByEmail(user.getEmail()) != null) {
+            return null;
+        }
+        return create(prepare.apply(user));
+    }
+
+    static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,109 @@
+package repositories;
+
+import ids.IdGenerator;
+import models.Book;
+import search.InvertedIndex;
+import search.RankedResult;
+import search.SearchCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * {@link IBookRepository} lưu trong bộ nhớ, an toàn khi nhiều request thread gọi cùng lúc.
+ * <p>
+ * {@link #searchByKeyword(String)} dùng {@link InvertedIndex} trên title, author,
+ * publisher, isbn và description; index được cập nhật ngay trong lock của segment
+ * chứa book nên luôn khớp với dữ liệu đã lưu. Gợi ý title/author cho ô tìm kiếm được
+ * cập nhật cùng lúc với index.
+ */
+public class InMemoryBookRepository extends InMemoryRepository<Book> implements IBookRepository {
+    private final InvertedIndex index = new InvertedIndex();
+    private final BookAutocomplete autocomplete = new BookAutocomplete();
+
+    public InMemoryBookRepository() {
+    }
+
+    public InMemoryBookRepository(IdGenerator idGenerator) {
+        super(idGenerator);
+    }
+
+    @Override
+    protected Long idOf(Book book) {
+        return book.getId();
+    }
+
+    @Override
+    protected void assignId(Book book, long id) {
+        book.setId(id);
+    }
+
+    @Override
+    protected Book copy(Book book, long id) {
+        return book.toBuilder().id(id).build();
+    }
+
+    @Override
+    protected void onStored(long id, Book previous, Book current) {
+        if (previous == null || !sameText(previous, current)) {
+            BookIndexing.put(index, id, current.getTitle(), current.getAuthor(), current.getPublisher(),
+                    current.getIsbn(), current.getDescription());
+            autocomplete.replace(previous == null ? null : previous.getTitle(),
+                    previous == null ? null : previous.getAuthor(), current.getTitle(), current.getAuthor());
+        }
+    }
+
+    @Override
+    protected void onRemoved(long id, Book previous) {
+        index.remove(id);
+        autocomplete.replace(previous.getTitle(), previous.getAuthor(), null, null);
+    }
+
+    @Override
+    public List<Book> searchByKeyword(String keyword) {
+        long[] ids = index.search(keyword);
+        List<Book> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Book book = findById(id);
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public RankedResult searchRanked(String keyword, int offset, int limit, SearchCursor after) {
+        return index.searchRanked(keyword, offset, limit, after);
+    }
+
+    @Override
+    public RankedResult searchFuzzy(String keyword, int maxEdits, int limit, long budgetNanos) {
+        return index.searchFuzzy(keyword, maxEdits, limit, budgetNanos);
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        return autocomplete.titles(prefix, limit);
+    }
+
+    @Override
+    public List<String> suggestAuthors(String prefix, int limit) {
+        return autocomplete.authors(prefix, limit);
+    }
+
+    @Override
+    public void forEachBook(Consumer<? super Book> action) {
+        forEachStored((id, book) -> action.accept(copy(book, id)));
+    }
+
+    private static boolean sameText(Book a, Book b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getAuthor(), b.getAuthor())
+                && Objects.equals(a.getPublisher(), b.getPublisher())
+                && Objects.equals(a.getIsbn(), b.getIsbn())
+                && Objects.equals(a.getDescription(), b.getDescription());
+    }
+}
@@ -0,0 +1,29 @@
+package repositories;
+
+import ids.IdGenerator;
+import models.CartItem;
+
+public class InMemoryCartItemRepository extends InMemoryRepository<CartItem> implements ICartItemRepository {
+
+    public InMemoryCartItemRepository() {
+    }
+
+    public InMemoryCartItemRepository(IdGenerator idGenerator) {
+        super(idGenerator);
+    }
+
+    @Override
+    protected Long idOf(CartItem cartItem) {
+        return cartItem.getId() == 0L ? null : cartItem.getId();
+    }
+
+    @Override
+    protected void assignId(CartItem cartItem, long id) {
+        cartItem.setId(id);
+    }
+
+    @Override
+    protected CartItem copy(CartItem cartItem, long id) {
+        return cartItem.toBuilder().id(id).build();
+    }
+}
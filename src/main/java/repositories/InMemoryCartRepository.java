@@ -0,0 +1,71 @@
+package repositories;
+
+import ids.IdGenerator;
+import models.Cart;
+import utils.ConcurrentLongObjectMap;
+import utils.LongIntHashMap;
+
+/**
+ * {@link ICartRepository} lưu trong bộ nhớ kèm index phụ userId -> id giỏ, nên
+ * {@link #findByUserId(long)} là một lần tra map thay vì duyệt mọi giỏ. Mỗi user có một giỏ;
+ * nếu có nhiều hơn thì index trỏ tới giỏ được lưu gần nhất.
+ */
+public class InMemoryCartRepository extends InMemoryRepository<Cart> implements ICartRepository {
+    private final ConcurrentLongObjectMap<Long> cartIdByUser = new ConcurrentLongObjectMap<>();
+
+    public InMemoryCartRepository() {
+    }
+
+    public InMemoryCartRepository(IdGenerator idGenerator) {
+        super(idGenerator);
+    }
+
+    @Override
+    protected Long idOf(Cart cart) {
+        return cart.getId() == 0L ? null : cart.getId();
+    }
+
+    @Override
+    protected void assignId(Cart cart, long id) {
+        cart.setId(id);
+    }
+
+    @Override
+    protected Cart copy(Cart cart, long id) {
+        // items là map có thể sửa nên phải copy sâu
+        LongIntHashMap items = cart.getItems() == null ? new LongIntHashMap(4) : new LongIntHashMap(cart.getItems());
+        return cart.toBuilder().id(id).items(items).build();
+    }
+
+    @Override
+    protected void onStored(long id, Cart previous, Cart current) {
+        Long userId = userIdOf(current);
+        if (previous != null) {
+            Long previousUserId = userIdOf(previous);
+            if (previousUserId != null && !previousUserId.equals(userId)) {
+                onRemoved(id, previous);
+            }
+        }
+        if (userId != null) {
+            cartIdByUser.put(userId, id);
+        }
+    }
+
+    @Override
+    protected void onRemoved(long id, Cart previous) {
+        Long userId = userIdOf(previous);
+        if (userId != null) {
+            cartIdByUser.compute(userId, (key, cartId) -> cartId != null && cartId == id ? null : cartId);
+        }
+    }
+
+    @Override
+    public Cart findByUserId(long userId) {
+        Long cartId = cartIdByUser.get(userId);
+        return cartId == null ? null : findById(cartId);
+    }
+
+    private static Long userIdOf(Cart cart) {
+        return cart.getUser() == null ? null : cart.getUser().getId();
+    }
+}
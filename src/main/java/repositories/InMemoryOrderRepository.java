@@ -0,0 +1,131 @@
+package repositories;
+
+import ids.IdGenerator;
+import models.Order;
+import utils.ConcurrentLongObjectMap;
+import utils.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link IOrderRepository} lưu trong bộ nhớ kèm index phụ userId -> danh sách id order.
+ * <p>
+ * Mỗi user giữ một mảng {@code long[]} đã sắp xếp, thường chỉ cần nối vào cuối vì id
+ * tăng dần. Phân trang theo keyset chỉ copy đúng đoạn id của trang được hỏi.
+ */
+public class InMemoryOrderRepository extends InMemoryRepository<Order> implements IOrderRepository {
+    private final ConcurrentLongObjectMap<OrderIds> idsByUser = new ConcurrentLongObjectMap<>();
+
+    public InMemoryOrderRepository() {
+    }
+
+    public InMemoryOrderRepository(IdGenerator idGenerator) {
+        super(idGenerator);
+    }
+
+    @Override
+    protected Long idOf(Order order) {
+        return order.getId() == 0L ? null : order.getId();
+    }
+
+    @Override
+    protected void assignId(Order order, long id) {
+        order.setId(id);
+    }
+
+    @Override
+    protected Order copy(Order order, long id) {
+        // items là map có thể sửa nên phải copy sâu
+        LongIntHashMap items = order.getItems() == null ? new LongIntHashMap(4) : new LongIntHashMap(order.getItems());
+        return order.toBuilder().id(id).items(items).build();
+    }
+
+    @Override
+    protected void onStored(long id, Order previous, Order current) {
+        if (previous != null && previous.getUserId() != current.getUserId()) {
+            onRemoved(id, previous);
+        }
+        idsByUser.computeIfAbsent(current.getUserId(), userId -> new OrderIds()).add(id);
+    }
+
+    @Override
+    protected void onRemoved(long id, Order previous) {
+        OrderIds ids = idsByUser.get(previous.getUserId());
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    @Override
+    public List<Order> findByUserId(long userId) {
+        return findByUserId(userId, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Order> findByUserId(long userId, long afterOrderId, int limit) {
+        OrderIds ids = idsByUser.get(userId);
+        if (ids == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        long[] page = ids.after(afterOrderId, limit);
+        List<Order> orders = new ArrayList<>(page.length);
+        for (long id : page) {
+            Order order = findById(id);
+            // order có thể vừa bị xóa sau khi lấy trang id
+            if (order != null) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Danh sách id order đã sắp xếp của một user; các thao tác khóa trên chính object này.
+     * Danh sách rỗng được giữ lại để tránh race giữa xóa entry và thêm order mới.
+     */
+    private static final class OrderIds {
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized void add(long id) {
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        synchronized void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+
+        synchronized long[] after(long afterId, int limit) {
+            int index = Arrays.binarySearch(ids, 0, size, afterId);
+            int from = index >= 0 ? index + 1 : -index - 1;
+            int to = from + Math.min(limit, size - from);
+            return Arrays.copyOfRange(ids, from, to);
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package repositories;
+
+import ids.BlockIdGenerator;
+import ids.IdGenerator;
+import utils.ConcurrentLongObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cơ sở chung cho các repository lưu trong bộ nhớ trên {@link ConcurrentLongObjectMap}.
+ * <p>
+ * Repository lưu bản sao của model và không bao giờ sửa bản sao đã lưu, nên object
+ * trả về cho người gọi có thể bị sửa tùy ý; thay đổi chỉ có hiệu lực sau
+ * {@link #update(long, Object)}. Lớp con duy trì index phụ qua {@link #onStored} và
+ * {@link #onRemoved}, hai hàm này chạy trong lock của segment chứa khóa.
+ * <p>
+ * Model chưa có id được cấp id từ {@link IdGenerator}; id gán tay và id khôi phục được
+ * báo lại cho generator qua {@link IdGenerator#observe(long)}.
+ */
+public abstract class InMemoryRepository<M> implements IBaseRepository<M> {
+    private final ConcurrentLongObjectMap<M> store = new ConcurrentLongObjectMap<>();
+    private final IdGenerator idGenerator;
+    private volatile RepositoryJournal<M> journal = RepositoryJournal.none();
+
+    protected InMemoryRepository() {
+        this(new BlockIdGenerator());
+    }
+
+    protected InMemoryRepository(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * @return id của model, hoặc {@code null} nếu model chưa có id
+     */
+    protected abstract Long idOf(M model);
+
+    protected abstract void assignId(M model, long id);
+
+    /**
+     * @return bản sao của {@code model} mang id {@code id}
+     */
+    protected abstract M copy(M model, long id);
+
+    protected void onStored(long id, M previous, M current) {
+    }
+
+    protected void onRemoved(long id, M previous) {
+    }
+
+    public void setJournal(RepositoryJournal<M> journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public M findById(long id) {
+        M model = store.get(id);
+        return model == null ? null : copy(model, id);
+    }
+
+    @Override
+    public M create(M model) {
+        Long requested = idOf(model);
+        if (requested != null) {
+            idGenerator.observe(requested);
+        }
+        long id = requested == null ? nextFreeId() : requested;
+        M stored = copy(model, id);
+        journal.record(RepositoryJournal.Operation.CREATE, id, stored,
+                () -> store.compute(id, (key, old) -> {
+                    if (old != null) {
+                        throw new IllegalArgumentException("Entity already exists with id: " + id);
+                    }
+                    onStored(key, null, stored);
+                    return stored;
+                }));
+        assignId(model, id);
+        return copy(stored, id);
+    }
+
+    /**
+     * Tạo lần lượt; lỗi giữa chừng thì xóa (qua journal) các model đã tạo của lô. Lô không được
+     * cô lập: người đọc đồng thời có thể thấy các model sắp bị xóa lại.
+     */
+    @Override
+    public List<M> createAll(List<M> models) {
+        List<M> created = new ArrayList<>(models.size());
+        try {
+            for (M model : models) {
+                created.add(create(model));
+            }
+        } catch (RuntimeException e) {
+            for (int i = created.size() - 1; i >= 0; i--) {
+                try {
+                    delete(idOf(created.get(i)));
+                } catch (RuntimeException undo) {
+                    e.addSuppressed(undo);
+                }
+            }
+            throw e;
+        }
+        return created;
+    }
+
+    @Override
+    public M update(long id, M model) {
+        M stored = copy(model, id);
+        M updated = journal.record(RepositoryJournal.Operation.UPDATE, id, stored,
+                () -> store.compute(id, (key, old) -> {
+                    if (old == null) {
+                        return null;
+                    }
+                    onStored(key, old, stored);
+                    return stored;
+                }));
+        return updated == null ? null : copy(updated, id);
+    }
+
+    @Override
+    public void delete(long id) {
+        journal.record(RepositoryJournal.Operation.DELETE, id, null, () -> removeStored(id));
+    }
+
+    /**
+     * Ghi thẳng vào store, bỏ qua journal; dùng khi khôi phục dữ liệu.
+     */
+    public void restore(long id, M model) {
+        idGenerator.observe(id);
+        M stored = copy(model, id);
+        store.compute(id, (key, old) -> {
+            onStored(key, old, stored);
+            return stored;
+        });
+    }
+
+    /**
+     * Xóa thẳng khỏi store, bỏ qua journal; dùng khi khôi phục dữ liệu.
+     */
+    public void forget(long id) {
+        removeStored(id);
+    }
+
+    private long nextFreeId() {
+        long id;
+        // block của thread có thể chứa id đã được gán tay trước đó
+        do {
+            id = idGenerator.nextId();
+        } while (store.containsKey(id));
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private M removeStored(long id) {
+        Object[] removed = new Object[1];
+        store.compute(id, (key, old) -> {
+            if (old != null) {
+                onRemoved(key, old);
+                removed[0] = old;
+            }
+            return null;
+        });
+        return (M) removed[0];
+    }
+
+    /**
+     * Duyệt các bản sao đang lưu; object truyền cho {@code action} không được sửa.
+     */
+    public void forEachStored(ConcurrentLongObjectMap.EntryConsumer<M> action) {
+        store.forEach(action);
+    }
+
+    public int size() {
+        return store.size();
+    }
+}
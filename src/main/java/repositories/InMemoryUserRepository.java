@@ -0,0 +1,94 @@
+package repositories;
+
+import ids.IdGenerator;
+import models.User;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link IUserRepository} lưu trong bộ nhớ với index email (đã chuẩn hóa) -> id.
+ * <p>
+ * {@link #createIfEmailAbsent(User, UnaryOperator)} giữ chỗ email bằng một lần {@code putIfAbsent}
+ * trên index, nên hai lần đăng ký đồng thời cùng email chỉ có một lần thành công, và lần thua
+ * bị từ chối trước khi {@code prepare} (hash mật khẩu) chạy.
+ */
+public class InMemoryUserRepository extends InMemoryRepository<User> implements IUserRepository {
+    private static final Long RESERVED = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, Long> idByEmail = new ConcurrentHashMap<>();
+
+    public InMemoryUserRepository() {
+    }
+
+    public InMemoryUserRepository(IdGenerator idGenerator) {
+        super(idGenerator);
+    }
+
+    @Override
+    protected Long idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected void assignId(User user, long id) {
+        user.setId(id);
+    }
+
+    @Override
+    protected User copy(User user, long id) {
+        return user.toBuilder().id(id).build();
+    }
+
+    @Override
+    protected void onStored(long id, User previous, User current) {
+        String email = IUserRepository.normalizeEmail(current.getEmail());
+        String previousEmail = previous == null ? null : IUserRepository.normalizeEmail(previous.getEmail());
+        if (email != null && !email.equals(previousEmail)) {
+            idByEmail.compute(email, (key, owner) -> {
+                if (owner != null && owner != id && !owner.equals(RESERVED)) {
+                    throw new IllegalArgumentException("Email already exists");
+                }
+                return id;
+            });
+        }
+        if (previousEmail != null && !previousEmail.equals(email)) {
+            idByEmail.remove(previousEmail, id);
+        }
+    }
+
+    @Override
+    protected void onRemoved(long id, User previous) {
+        String email = IUserRepository.normalizeEmail(previous.getEmail());
+        if (email != null) {
+            idByEmail.remove(email, id);
+        }
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        String key = IUserRepository.normalizeEmail(email);
+        if (key == null) {
+            return null;
+        }
+        Long id = idByEmail.get(key);
+        return id == null || id.equals(RESERVED) ? null : findById(id);
+    }
+
+    @Override
+    public User createIfEmailAbsent(User user, UnaryOperator<User> prepare) {
+        String key = IUserRepository.normalizeEmail(user.getEmail());
+        if (key == null) {
+            return create(prepare.apply(user));
+        }
+        if (idByEmail.putIfAbsent(key, RESERVED) != null) {
+            return null;
+        }
+        try {
+            return create(prepare.apply(user));
+        } catch (RuntimeException e) {
+            idByEmail.remove(key, RESERVED);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package repositories;
+
+import ids.BlockIdGenerator;
+import ids.IdGenerator;
+import models.Book;
+import search.InvertedIndex;
+import search.RankedResult;
+import search.SearchCursor;
+import storage.MappedFile;
+import utils.LongIntHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link IBookRepository} lưu book ngoài heap, trong các file cột được map vào bộ nhớ.
+ * <p>
+ * Mỗi book là một dòng: id, price, stockQuantity và cờ live là các cột độ rộng cố
+ * định; title, author, publisher, isbn, description nằm trong một string heap và cột
+ * {@code books.str} giữ offset của chúng. Object {@link Book} chỉ được tạo khi có
+ * người đọc, nên heap Java chỉ chứa bảng id -> dòng.
+ * <p>
+ * Khi mở lại chỉ cần quét cột id và live để dựng bảng id -> dòng. Index tìm kiếm
+ * và gợi ý title/author được dựng ở lần tìm kiếm đầu tiên rồi cập nhật theo từng
+ * thay đổi. Dòng bị xóa và chuỗi cũ sau khi cập nhật không được thu hồi.
+ * <p>
+ * Dữ liệu được ghi xuống đĩa theo page cache của hệ điều hành; gọi {@link #flush()}
+ * hoặc {@link #close()} để ép ghi.
+ */
+public class MappedBookRepository implements IBookRepository, Closeable {
+    private static final int MAGIC = 0x424B5331;
+    private static final int VERSION = 1;
+    private static final long HEADER_ROWS = 8;
+    private static final long HEADER_HEAP_END = 16;
+    private static final long HEADER_SEQUENCE = 24;
+
+    private static final int SCAN_CHUNK = 256;
+    private static final int STRING_FIELDS = 5;
+    private static final long NULL_STRING = -1L;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MappedFile meta;
+    private final MappedFile ids;
+    private final MappedFile live;
+    private final MappedFile prices;
+    private final MappedFile stocks;
+    private final MappedFile strings;
+    private final MappedFile heap;
+    private final LongIntHashMap rows = new LongIntHashMap();
+    private final IdGenerator idGenerator;
+    private volatile InvertedIndex index;
+    private BookAutocomplete autocomplete;
+
+    public MappedBookRepository(Path directory) throws IOException {
+        this(directory, new BlockIdGenerator());
+    }
+
+    /**
+     * @param idGenerator nguồn id cho book chưa có id; được báo id lớn nhất đã lưu khi mở
+     */
+    public MappedBookRepository(Path directory, IdGenerator idGenerator) throws IOException {
+        this.idGenerator = idGenerator;
+        Files.createDirectories(directory);
+        meta = new MappedFile(directory.resolve("books.meta"), 12);
+        ids = new MappedFile(directory.resolve("books.id"), 24);
+        live = new MappedFile(directory.resolve("books.live"), 24);
+        prices = new MappedFile(directory.resolve("books.price"), 24);
+        stocks = new MappedFile(directory.resolve("books.stock"), 24);
+        strings = new MappedFile(directory.resolve("books.str"), 24);
+        heap = new MappedFile(directory.resolve("books.heap"), 26);
+        open();
+    }
+
+    private void open() throws IOException {
+        if (meta.size() == 0 || meta.getInt(0) == 0) {
+            meta.putInt(0, MAGIC);
+            meta.putInt(4, VERSION);
+            meta.putLong(HEADER_ROWS, 0L);
+            meta.putLong(HEADER_HEAP_END, 0L);
+            meta.putLong(HEADER_SEQUENCE, 0L);
+            return;
+        }
+        if (meta.getInt(0) != MAGIC || meta.getInt(4) != VERSION) {
+            throw new IOException("Not a book store: " + meta);
+        }
+        int rowCount = rowCount();
+        for (int row = 0; row < rowCount; row++) {
+            if (live.getByte(row) != 0) {
+                rows.put(ids.getLong((long) row * 8), row);
+            }
+        }
+        idGenerator.observe(meta.getLong(HEADER_SEQUENCE));
+    }
+
+    private int rowCount() {
+        return (int) meta.getLong(HEADER_ROWS);
+    }
+
+    @Override
+    public Book findById(long id) {
+        lock.readLock().lock();
+        try {
+            int row = rows.getOrDefault(id, -1);
+            return row < 0 ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Book create(Book book) {
+        lock.writeLock().lock();
+        try {
+            long sequence = meta.getLong(HEADER_SEQUENCE);
+            long id;
+            if (book.getId() == null) {
+                do {
+                    id = idGenerator.nextId();
+                } while (rows.containsKey(id));
+            } else {
+                id = book.getId();
+                idGenerator.observe(id);
+            }
+            sequence = Math.max(sequence, id);
+            if (rows.containsKey(id)) {
+                throw new IllegalArgumentException("Book already exists with id: " + id);
+            }
+            int row = rowCount();
+            ids.putLong((long) row * 8, id);
+            writeRow(row, book, null);
+            live.putByte(row, (byte) 1);
+            meta.putLong(HEADER_SEQUENCE, sequence);
+            meta.putLong(HEADER_ROWS, row + 1L);
+            rows.put(id, row);
+            if (index != null) {
+                indexRow(id, row);
+                autocomplete.replace(null, null, readString(row, 0), readString(row, 1));
+            }
+            book.setId(id);
+            return materialize(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tạo cả lô trong một lần giữ write lock, để import hàng loạt không phải tranh lock
+     * theo từng book. Lỗi giữa chừng thì các book đã tạo của lô bị xóa lại trước khi nhả lock,
+     * nên người đọc không bao giờ thấy một lô dở.
+     */
+    @Override
+    public List<Book> createAll(List<Book> books) {
+        lock.writeLock().lock();
+        try {
+            List<Book> created = new ArrayList<>(books.size());
+            try {
+                for (Book book : books) {
+                    created.add(create(book));
+                }
+            } catch (RuntimeException e) {
+                for (int i = created.size() - 1; i >= 0; i--) {
+                    delete(created.get(i).getId());
+                }
+                throw e;
+            }
+            return created;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Book update(long id, Book book) {
+        lock.writeLock().lock();
+        try {
+            int row = rows.getOrDefault(id, -1);
+            if (row < 0) {
+                return null;
+            }
+            Book previous = materialize(row);
+            boolean textChanged = writeRow(row, book, previous);
+            if (index != null && textChanged) {
+                indexRow(id, row);
+                autocomplete.replace(previous.getTitle(), previous.getAuthor(), readString(row, 0), readString(row, 1));
+            }
+            return materialize(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = rows.getOrDefault(id, -1);
+            if (row < 0) {
+                return;
+            }
+            live.putByte(row, (byte) 0);
+            rows.remove(id);
+            if (index != null) {
+                index.remove(id);
+                autocomplete.replace(readString(row, 0), readString(row, 1), null, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> searchByKeyword(String keyword) {
+        ensureIndex();
+        lock.readLock().lock();
+        try {
+            long[] matches = index.search(keyword);
+            List<Book> result = new ArrayList<>(matches.length);
+            for (long id : matches) {
+                int row = rows.getOrDefault(id, -1);
+                if (row >= 0) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public RankedResult searchRanked(String keyword, int offset, int limit, SearchCursor after) {
+        ensureIndex();
+        lock.readLock().lock();
+        try {
+            return index.searchRanked(keyword, offset, limit, after);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public RankedResult searchFuzzy(String keyword, int maxEdits, int limit, long budgetNanos) {
+        ensureIndex();
+        lock.readLock().lock();
+        try {
+            return index.searchFuzzy(keyword, maxEdits, limit, budgetNanos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        ensureIndex();
+        lock.readLock().lock();
+        try {
+            return autocomplete.titles(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> suggestAuthors(String prefix, int limit) {
+        ensureIndex();
+        lock.readLock().lock();
+        try {
+            return autocomplete.authors(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Đọc lần lượt từng đoạn {@value #SCAN_CHUNK} dòng dưới read lock rồi nhả lock trước khi
+     * gọi {@code action}, nên lượt duyệt dài không chặn việc ghi.
+     */
+    @Override
+    public void forEachBook(Consumer<? super Book> action) {
+        Book[] chunk = new Book[SCAN_CHUNK];
+        int row = 0;
+        boolean done = false;
+        while (!done) {
+            int n = 0;
+            lock.readLock().lock();
+            try {
+                int end = rowCount();
+                for (; row < end && n < chunk.length; row++) {
+                    if (live.getByte(row) != 0) {
+                        chunk[n++] = materialize(row);
+                    }
+                }
+                done = row >= end;
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = 0; i < n; i++) {
+                action.accept(chunk[i]);
+                chunk[i] = null;
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            for (MappedFile file : files()) {
+                file.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedFile file : files()) {
+                file.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private MappedFile[] files() {
+        return new MappedFile[]{ids, live, prices, stocks, strings, heap, meta};
+    }
+
+    private void ensureIndex() {
+        if (index != null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                return;
+            }
+            InvertedIndex built = new InvertedIndex();
+            BookAutocomplete suggestions = new BookAutocomplete();
+            autocomplete = suggestions;
+            index = built;
+            rows.forEach((id, row) -> {
+                indexRow(id, row);
+                suggestions.replace(null, null, readString(row, 0), readString(row, 1));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexRow(long id, int row) {
+        BookIndexing.put(index, id, readString(row, 0), readString(row, 1), readString(row, 2),
+                readString(row, 3), readString(row, 4));
+    }
+
+    /**
+     * Ghi các cột của {@code book} vào dòng {@code row}; chuỗi chỉ được thêm vào heap
+     * khi khác với giá trị trong {@code previous}.
+     *
+     * @return {@code true} nếu có trường chuỗi thay đổi
+     */
+    private boolean writeRow(int row, Book book, Book previous) {
+        prices.putDouble((long) row * 8, book.getPrice());
+        stocks.putInt((long) row * 4, book.getStockQuantity());
+        String[] values = textOf(book);
+        String[] old = previous == null ? new String[STRING_FIELDS] : textOf(previous);
+        boolean changed = false;
+        for (int field = 0; field < STRING_FIELDS; field++) {
+            if (previous == null || !Objects.equals(values[field], old[field])) {
+                strings.putLong(stringSlot(row, field), appendString(values[field]));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static String[] textOf(Book book) {
+        return new String[]{book.getTitle(), book.getAuthor(), book.getPublisher(),
+                book.getIsbn(), book.getDescription()};
+    }
+
+    private static long stringSlot(int row, int field) {
+        return ((long) row * STRING_FIELDS + field) * 8;
+    }
+
+    private long appendString(String value) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long position = (meta.getLong(HEADER_HEAP_END) + 3) & ~3L;
+        heap.putInt(position, bytes.length);
+        heap.write(position + 4, bytes);
+        meta.putLong(HEADER_HEAP_END, position + 4 + bytes.length);
+        return position;
+    }
+
+    private String readString(int row, int field) {
+        long position = strings.getLong(stringSlot(row, field));
+        if (position == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[heap.getInt(position)];
+        heap.read(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Book materialize(int row) {
+        return Book.builder()
+                .id(ids.getLong((long) row * 8))
+                .title(readString(row, 0))
+                .author(readString(row, 1))
+                .publisher(readString(row, 2))
+                .isbn(readString(row, 3))
+                .price(prices.getDouble((long) row * 8))
+                .stockQuantity(stocks.getInt((long) row * 4))
+                .description(readString(row, 4))
+                .build();
+    }
+}
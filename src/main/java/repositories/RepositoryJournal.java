@@ -0,0 +1,30 @@
+package repositories;
+
+import java.util.function.Supplier;
+
+/**
+ * Điểm móc để ghi lại các thay đổi của {@link InMemoryRepository} (ví dụ write-ahead log).
+ */
+public interface RepositoryJournal<M> {
+
+    enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Chạy {@code apply} và ghi lại thay đổi nếu {@code apply} trả về khác {@code null}.
+     * Các lần gọi phải được tuần tự hóa để thứ tự ghi khớp với thứ tự áp dụng.
+     */
+    <R> R record(Operation operation, long id, M model, Supplier<R> apply);
+
+    static <M> RepositoryJournal<M> none() {
+        return new RepositoryJournal<>() {
+            @Override
+            public <R> R record(Operation operation, long id, M model, Supplier<R> apply) {
+                return apply.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,389 @@
+package search;
+
+import utils.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index từ token đến các khóa {@code long} (ví dụ id của Book).
+ * <p>
+ * Mỗi khóa được gán một doc id {@code int} tăng dần, nên posting list luôn là dãy
+ * tăng và có thể nén delta. Cập nhật là xóa doc cũ rồi thêm doc mới; posting list
+ * và bảng doc id được dọn định kỳ khi số doc đã xóa vượt quá số doc còn sống.
+ * <p>
+ * Truy vấn nhiều token là phép AND, bắt đầu từ posting list ngắn nhất, nên chi phí
+ * tỉ lệ với độ dài các posting list liên quan chứ không với kích thước catalog.
+ * <p>
+ * {@link #searchRanked} chấm điểm BM25 trên cùng tập kết quả đó: posting list lưu số lần
+ * xuất hiện của term, mỗi field có trọng số riêng (BM25F rút gọn: tf và độ dài doc được
+ * nhân theo trọng số field), và chỉ giữ top-k trong một heap cỡ k.
+ * <p>
+ * {@link #searchFuzzy} chịu được lỗi gõ: mỗi token được mở rộng thành các term gần đúng tìm
+ * qua {@link NGramIndex}.
+ */
+public class InvertedIndex {
+    private static final long[] EMPTY = new long[0];
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_EXPANSIONS = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final NGramIndex grams = new NGramIndex();
+    private final LongIntHashMap docByKey = new LongIntHashMap();
+    private final BitSet live = new BitSet();
+    private long[] keyByDoc = new long[16];
+    private PostingList[][] postingsByDoc = new PostingList[16][];
+    private int[] lengthByDoc = new int[16];
+    private long totalLength;
+    private int nextDoc;
+
+    /**
+     * Thêm mới hoặc thay thế nội dung được index của {@code key}, mọi field cùng trọng số.
+     */
+    public void put(long key, String... fields) {
+        int[] weights = new int[fields.length];
+        Arrays.fill(weights, 1);
+        put(key, weights, fields);
+    }
+
+    /**
+     * Như {@link #put(long, String...)}, mỗi token trong {@code fields[i]} được tính
+     * {@code weights[i]} lần khi chấm điểm.
+     */
+    public void put(long key, int[] weights, String... fields) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        int length = 0;
+        for (int f = 0; f < fields.length; f++) {
+            for (String token : Tokenizer.tokenize(fields[f])) {
+                terms.merge(token, weights[f], Integer::sum);
+                length += weights[f];
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            if (nextDoc == Integer.MAX_VALUE || nextDoc > 2 * docByKey.size() + 1024) {
+                compactDocIds();
+            }
+            int docId = nextDoc++;
+            ensureDocCapacity(docId);
+            PostingList[] lists = new PostingList[terms.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                PostingList list = postings.get(term.getKey());
+                if (list == null) {
+                    list = new PostingList(term.getKey());
+                    postings.put(term.getKey(), list);
+                    grams.add(term.getKey());
+                }
+                list.append(docId, term.getValue());
+                lists[i++] = list;
+            }
+            keyByDoc[docId] = key;
+            postingsByDoc[docId] = lists;
+            lengthByDoc[docId] = length;
+            totalLength += length;
+            docByKey.put(key, docId);
+            live.set(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(long key) {
+        int docId = docByKey.getOrDefault(key, -1);
+        if (docId < 0) {
+            return false;
+        }
+        docByKey.remove(key);
+        live.clear(docId);
+        totalLength -= lengthByDoc[docId];
+        for (PostingList list : postingsByDoc[docId]) {
+            list.markDead();
+            if (list.liveSize() == 0) {
+                postings.remove(list.term);
+                grams.remove(list.term);
+            } else if (list.needsCompaction()) {
+                list.retain(live);
+            }
+        }
+        postingsByDoc[docId] = null;
+        return true;
+    }
+
+    /**
+     * @return các khóa chứa tất cả token của {@code query}, theo thứ tự được index
+     */
+    public long[] search(String query) {
+        String[] terms = termsOf(query);
+        if (terms.length == 0) {
+            return EMPTY;
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = listsOf(terms);
+            if (lists == null) {
+                return EMPTY;
+            }
+            int[] candidates = lists[0].toArray(live);
+            int n = candidates.length;
+            for (int i = 1; i < lists.length && n > 0; i++) {
+                n = lists[i].intersect(candidates, n);
+            }
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = keyByDoc[candidates[i]];
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Các khóa chứa tất cả token của {@code query}, xếp theo điểm BM25 giảm dần.
+     * <p>
+     * Posting list được duyệt tuần tự bằng cursor, không giải nén ra mảng, và chỉ
+     * {@code offset + limit} kết quả tốt nhất được giữ trong heap; cấp phát tỉ lệ với trang
+     * cần lấy chứ không với số kết quả khớp.
+     *
+     * @param offset số kết quả bỏ qua, tính sau {@code after} nếu có
+     * @param after  chỉ lấy kết quả xếp sau cursor này; {@code null} để lấy từ đầu
+     */
+    public RankedResult searchRanked(String query, int offset, int limit, SearchCursor after) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Offset must not be negative and limit must be positive");
+        }
+        String[] terms = termsOf(query);
+        if (terms.length == 0) {
+            return RankedResult.EMPTY;
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = listsOf(terms);
+            if (lists == null) {
+                return RankedResult.EMPTY;
+            }
+            int docs = docByKey.size();
+            double averageLength = Math.max(1.0, (double) totalLength / Math.max(1, docs));
+            double[] idf = new double[lists.length];
+            PostingList.Cursor[] cursors = new PostingList.Cursor[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                int df = lists[i].liveSize();
+                idf[i] = Math.log(1.0 + (docs - df + 0.5) / (df + 0.5));
+                cursors[i] = lists[i].cursor();
+            }
+
+            TopK top = new TopK((int) Math.min((long) offset + limit, lists[0].liveSize()));
+            int totalHits = 0;
+            int afterCursor = 0;
+            PostingList.Cursor lead = cursors[0];
+            documents:
+            while (lead.next()) {
+                int docId = lead.doc;
+                if (!live.get(docId)) {
+                    continue;
+                }
+                for (int i = 1; i < cursors.length; i++) {
+                    if (!cursors[i].advance(docId)) {
+                        break documents;
+                    }
+                    if (cursors[i].doc != docId) {
+                        continue documents;
+                    }
+                }
+                totalHits++;
+                double norm = K1 * (1 - B + B * lengthByDoc[docId] / averageLength);
+                double score = 0;
+                for (int i = 0; i < cursors.length; i++) {
+                    int freq = cursors[i].freq;
+                    score += idf[i] * freq * (K1 + 1) / (freq + norm);
+                }
+                long key = keyByDoc[docId];
+                if (after == null || after.precedes(score, key)) {
+                    afterCursor++;
+                    top.offer(key, score);
+                }
+            }
+            return top.drain(offset, totalHits, afterCursor > offset + limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Như {@link #search(String)} nhưng mỗi token khớp cả các term cách nó không quá
+     * {@code maxEdits} lần sửa. Kết quả xếp theo tổng khoảng cách sửa tăng dần (điểm là số âm
+     * của tổng đó), khớp đúng đứng trước.
+     * <p>
+     * Mỗi token chỉ mở rộng tới {@value #MAX_EXPANSIONS} term gần nhất. Khi quá
+     * {@code budgetNanos}, việc tìm term gần đúng dừng lại và kết quả được đánh dấu
+     * {@link RankedResult#isPartial()}.
+     */
+    public RankedResult searchFuzzy(String query, int maxEdits, int limit, long budgetNanos) {
+        if (maxEdits < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Max edits must not be negative and limit must be positive");
+        }
+        String[] terms = termsOf(query);
+        if (terms.length == 0) {
+            return RankedResult.EMPTY;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        lock.readLock().lock();
+        try {
+            LongIntHashMap best = null;
+            for (String term : terms) {
+                LongIntHashMap distances = distancesOf(term, maxEdits, deadline);
+                best = best == null ? distances : intersect(best, distances);
+                if (best.isEmpty()) {
+                    break;
+                }
+            }
+            TopK top = new TopK(Math.min(limit, best.size()));
+            LongIntHashMap matched = best;
+            best.forEach((docId, distance) -> top.offer(keyByDoc[(int) docId], -distance));
+            RankedResult result = top.drain(0, matched.size(), matched.size() > limit);
+            return System.nanoTime() > deadline ? result.asPartial() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return doc id -> khoảng cách sửa nhỏ nhất của các term gần {@code term} có trong doc
+     */
+    private LongIntHashMap distancesOf(String term, int maxEdits, long deadline) {
+        List<NGramIndex.TermMatch> matches = new ArrayList<>();
+        if (postings.containsKey(term)) {
+            matches.add(new NGramIndex.TermMatch(term, 0));
+        }
+        if (maxEdits > 0) {
+            matches.addAll(grams.similar(term, maxEdits, deadline));
+        }
+        LongIntHashMap distances = new LongIntHashMap();
+        for (int i = 0; i < matches.size() && i < MAX_EXPANSIONS; i++) {
+            NGramIndex.TermMatch match = matches.get(i);
+            PostingList.Cursor cursor = postings.get(match.term()).cursor();
+            while (cursor.next()) {
+                if (live.get(cursor.doc)) {
+                    int known = distances.getOrDefault(cursor.doc, Integer.MAX_VALUE);
+                    if (match.distance() < known) {
+                        distances.put(cursor.doc, match.distance());
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static LongIntHashMap intersect(LongIntHashMap left, LongIntHashMap right) {
+        if (left.size() > right.size()) {
+            return intersect(right, left);
+        }
+        LongIntHashMap result = new LongIntHashMap(left.size());
+        left.forEach((docId, distance) -> {
+            int other = right.getOrDefault(docId, -1);
+            if (other >= 0) {
+                result.put(docId, distance + other);
+            }
+        });
+        return result;
+    }
+
+    private static String[] termsOf(String query) {
+        return Tokenizer.tokenize(query).stream().distinct().toArray(String[]::new);
+    }
+
+    /**
+     * @return posting list của từng term, ngắn nhất trước; {@code null} nếu có term không có trong index
+     */
+    private PostingList[] listsOf(String[] terms) {
+        PostingList[] lists = new PostingList[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            lists[i] = postings.get(terms[i]);
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        return lists;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureDocCapacity(int docId) {
+        if (docId >= keyByDoc.length) {
+            int capacity = Math.max(keyByDoc.length << 1, docId + 1);
+            keyByDoc = Arrays.copyOf(keyByDoc, capacity);
+            postingsByDoc = Arrays.copyOf(postingsByDoc, capacity);
+            lengthByDoc = Arrays.copyOf(lengthByDoc, capacity);
+        }
+    }
+
+    /**
+     * Đánh số lại doc id liên tục từ 0 để bảng doc không phình theo số lần cập nhật.
+     */
+    private void compactDocIds() {
+        int[] mapping = new int[nextDoc];
+        int liveCount = docByKey.size();
+        long[] keys = new long[Math.max(16, liveCount * 2)];
+        PostingList[][] lists = new PostingList[keys.length][];
+        int[] lengths = new int[keys.length];
+        int next = 0;
+        for (int docId = 0; docId < nextDoc; docId++) {
+            if (live.get(docId)) {
+                mapping[docId] = next;
+                keys[next] = keyByDoc[docId];
+                lists[next] = postingsByDoc[docId];
+                lengths[next] = lengthByDoc[docId];
+                docByKey.put(keyByDoc[docId], next);
+                next++;
+            } else {
+                mapping[docId] = -1;
+            }
+        }
+        for (PostingList list : postings.values()) {
+            list.remap(mapping);
+        }
+        keyByDoc = keys;
+        postingsByDoc = lists;
+        lengthByDoc = lengths;
+        live.clear();
+        live.set(0, next);
+        nextDoc = next;
+    }
+}
@@ -0,0 +1,141 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index trigram ký tự trên từ vựng của {@link InvertedIndex}, để tìm các term gần đúng với
+ * một từ gõ sai mà không duyệt hết từ vựng.
+ * <p>
+ * Mỗi term được đệm {@code '$'} hai đầu rồi cắt thành trigram. Một lần sửa làm hỏng tối đa
+ * ba trigram, nên term cách {@code k} lần sửa phải chung ít nhất {@code max(độ dài) - 3k}
+ * trigram; chỉ term qua được bộ lọc đó (và bộ lọc độ dài) mới được tính khoảng cách thật.
+ * Với từ ngắn ngưỡng này không còn ý nghĩa nên chỉ cần chung một trigram: vài kết quả rất
+ * ngắn có thể bị bỏ sót, đổi lại không bao giờ phải quét toàn bộ từ vựng.
+ * <p>
+ * Không tự đồng bộ; {@link InvertedIndex} gọi trong lock của nó.
+ */
+final class NGramIndex {
+    private static final int N = 3;
+
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+
+    void add(String term) {
+        for (String gram : gramsOf(term)) {
+            termsByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+        }
+    }
+
+    void remove(String term) {
+        for (String gram : gramsOf(term)) {
+            Set<String> terms = termsByGram.get(gram);
+            if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                termsByGram.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Các term khác {@code term} cách nó không quá {@code maxEdits} lần sửa, gần nhất trước.
+     * Dừng sớm khi quá {@code deadline} ({@link System#nanoTime()}), trả về những gì đã tìm được.
+     */
+    List<TermMatch> similar(String term, int maxEdits, long deadline) {
+        Set<String> grams = gramsOf(term);
+        Map<String, int[]> shared = new HashMap<>();
+        for (String gram : grams) {
+            Set<String> terms = termsByGram.get(gram);
+            if (terms == null) {
+                continue;
+            }
+            for (String candidate : terms) {
+                if (Math.abs(candidate.length() - term.length()) <= maxEdits) {
+                    shared.computeIfAbsent(candidate, c -> new int[1])[0]++;
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        List<TermMatch> matches = new ArrayList<>();
+        int checked = 0;
+        for (Map.Entry<String, int[]> entry : shared.entrySet()) {
+            String candidate = entry.getKey();
+            int required = Math.max(1, Math.max(candidate.length(), term.length()) - N * maxEdits);
+            if (entry.getValue()[0] < required || candidate.equals(term)) {
+                continue;
+            }
+            int distance = distance(term, candidate, maxEdits);
+            if (distance <= maxEdits) {
+                matches.add(new TermMatch(candidate, distance));
+            }
+            if ((++checked & 63) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        matches.sort(null);
+        return matches;
+    }
+
+    private static Set<String> gramsOf(String term) {
+        String padded = "$" + term + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + N <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + N));
+        }
+        return grams;
+    }
+
+    /**
+     * Khoảng cách sửa (thêm, xóa, thay, đổi chỗ hai ký tự liền nhau) giữa {@code a} và
+     * {@code b}, dừng ngay khi chắc chắn vượt {@code max}.
+     *
+     * @return khoảng cách, hoặc {@code max + 1} nếu lớn hơn {@code max}
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] before = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * Một term trong từ vựng và khoảng cách sửa tới từ được hỏi.
+     */
+    record TermMatch(String term, int distance) implements Comparable<TermMatch> {
+        @Override
+        public int compareTo(TermMatch other) {
+            int byDistance = Integer.compare(distance, other.distance);
+            return byDistance != 0 ? byDistance : term.compareTo(other.term);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Danh sách doc id tăng dần của một term, mỗi doc kèm số lần xuất hiện (tf), nén bằng
+ * varint theo cặp (delta doc id, tf). Doc bị xóa chỉ được đếm trong {@link #dead}; các
+ * doc đó được loại bỏ khi {@link #retain(BitSet)} chạy lại.
+ */
+final class PostingList {
+    final String term;
+    private byte[] data = new byte[4];
+    private int length;
+    private int count;
+    private int last = -1;
+    private int dead;
+
+    PostingList(String term) {
+        this.term = term;
+    }
+
+    void append(int docId, int freq) {
+        ensureCapacity(10);
+        writeVarint(docId - last);
+        writeVarint(freq);
+        last = docId;
+        count++;
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length << 1, length + extra));
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    int liveSize() {
+        return count - dead;
+    }
+
+    void markDead() {
+        dead++;
+    }
+
+    boolean needsCompaction() {
+        return dead > 16 && dead > count / 2;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Giải nén các doc id còn sống vào mảng mới.
+     */
+    int[] toArray(BitSet live) {
+        int[] result = new int[liveSize()];
+        int n = 0;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (live.get(cursor.doc) && n < result.length) {
+                result[n++] = cursor.doc;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Giữ lại trong {@code candidates[0..n)} (tăng dần) những doc có trong list này.
+     *
+     * @return số phần tử còn lại
+     */
+    int intersect(int[] candidates, int n) {
+        int kept = 0;
+        Cursor cursor = cursor();
+        for (int c = 0; c < n; c++) {
+            if (cursor.advance(candidates[c]) && cursor.doc == candidates[c]) {
+                candidates[kept++] = candidates[c];
+            } else if (cursor.exhausted()) {
+                break;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Nén lại, bỏ các doc không còn trong {@code live}.
+     */
+    void retain(BitSet live) {
+        int[] docs = new int[liveSize()];
+        int[] freqs = new int[docs.length];
+        int n = 0;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (live.get(cursor.doc) && n < docs.length) {
+                docs[n] = cursor.doc;
+                freqs[n++] = cursor.freq;
+            }
+        }
+        rewrite(docs, freqs, n);
+    }
+
+    /**
+     * Đánh số lại doc id theo {@code mapping} (giá trị âm = doc đã bị xóa).
+     */
+    void remap(int[] mapping) {
+        int[] docs = new int[count];
+        int[] freqs = new int[count];
+        int n = 0;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (mapping[cursor.doc] >= 0) {
+                docs[n] = mapping[cursor.doc];
+                freqs[n++] = cursor.freq;
+            }
+        }
+        rewrite(docs, freqs, n);
+    }
+
+    private void rewrite(int[] docs, int[] freqs, int n) {
+        data = new byte[Math.max(4, n * 3)];
+        length = 0;
+        count = 0;
+        last = -1;
+        dead = 0;
+        for (int i = 0; i < n; i++) {
+            append(docs[i], freqs[i]);
+        }
+    }
+
+    /**
+     * Duyệt tuần tự list, không cấp phát gì thêm. Chỉ dùng khi đang giữ lock của index.
+     */
+    final class Cursor {
+        private int pos;
+        int doc = -1;
+        int freq;
+
+        /**
+         * @return {@code false} khi đã hết list
+         */
+        boolean next() {
+            if (pos >= length) {
+                pos = Integer.MAX_VALUE;
+                return false;
+            }
+            doc += readVarint();
+            freq = readVarint();
+            return true;
+        }
+
+        /**
+         * Tiến tới doc đầu tiên có id {@code >= target}.
+         *
+         * @return {@code false} khi không còn doc nào như vậy
+         */
+        boolean advance(int target) {
+            if (doc >= target && pos != Integer.MAX_VALUE) {
+                return true;
+            }
+            while (next()) {
+                if (doc >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean exhausted() {
+            return pos == Integer.MAX_VALUE;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
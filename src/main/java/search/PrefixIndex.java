@@ -0,0 +1,381 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Gợi ý hoàn thành theo tiền tố trên một tập chuỗi (ví dụ title hoặc author), dùng radix
+ * trie: các cạnh chỉ có một nhánh được gộp thành một nhãn nên số node tỉ lệ với số chuỗi.
+ * <p>
+ * Mỗi chuỗi được đưa vào trie dưới dạng chuẩn hóa của {@link Tokenizer} và dưới mọi hậu tố
+ * bắt đầu ở một token, nên "prog" gợi ý được "Java Programming". Trọng số của một chuỗi là
+ * số lần nó được {@link #add} (ví dụ số book cùng tên). Node cuối của một khóa giữ các chuỗi
+ * có khóa đó theo trọng số giảm dần, và mỗi node giữ trọng số lớn nhất trong cây con, nên
+ * {@link #complete} duyệt theo thứ tự tốt nhất trước và dừng sau {@code limit} kết quả thay
+ * vì duyệt cả cây con.
+ */
+public class PrefixIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Tăng trọng số của {@code text}, thêm vào trie nếu chưa có.
+     */
+    public void add(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.computeIfAbsent(normalized, key -> new Entry(text.trim()));
+            int oldCount = entry.count++;
+            for (String key : keysOf(normalized)) {
+                put(root, key, 0, entry, oldCount);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Giảm trọng số của {@code text}; về 0 thì xóa khỏi trie.
+     */
+    public void remove(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(normalized);
+            if (entry == null) {
+                return;
+            }
+            int oldCount = entry.count--;
+            if (entry.count == 0) {
+                entries.remove(normalized);
+            }
+            for (String key : keysOf(normalized)) {
+                if (entry.count == 0) {
+                    delete(root, key, 0, entry, oldCount);
+                } else {
+                    put(root, key, 0, entry, oldCount);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return tối đa {@code limit} chuỗi có một token bắt đầu bằng {@code prefix}, trọng số giảm dần
+     */
+    public List<String> complete(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Node start = find(normalized);
+            if (start == null) {
+                return Collections.emptyList();
+            }
+            List<String> result = new ArrayList<>(Math.min(limit, 16));
+            Set<Entry> seen = new HashSet<>();
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+            long order = 0;
+            queue.add(new Candidate(start, -1, start.max, order++));
+            while (!queue.isEmpty() && result.size() < limit) {
+                Candidate candidate = queue.poll();
+                Node node = candidate.node;
+                if (candidate.entry >= 0) {
+                    Entry entry = node.entries[candidate.entry];
+                    if (seen.add(entry)) {
+                        result.add(entry.text);
+                    }
+                    int next = candidate.entry + 1;
+                    if (next < node.entries.length) {
+                        queue.add(new Candidate(node, next, node.entries[next].count, order++));
+                    }
+                    continue;
+                }
+                for (int i = node.children.length - 1; i >= 0; i--) {
+                    queue.add(new Candidate(node.children[i], -1, node.children[i].max, order++));
+                }
+                if (node.entries.length > 0) {
+                    queue.add(new Candidate(node, 0, node.entries[0].count, order++));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return số chuỗi khác nhau đang có trọng số dương
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : String.join(" ", Tokenizer.tokenize(text));
+    }
+
+    /**
+     * Chuỗi đầy đủ và mọi hậu tố bắt đầu ở một token; các hậu tố khác độ dài nên không trùng.
+     */
+    private static List<String> keysOf(String normalized) {
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int pos = 0;
+        while (pos < prefix.length()) {
+            Node child = node.child(prefix.charAt(pos));
+            if (child == null) {
+                return null;
+            }
+            String label = child.label;
+            int common = commonPrefix(label, prefix, pos);
+            if (pos + common == prefix.length()) {
+                return child;
+            }
+            if (common < label.length()) {
+                return null;
+            }
+            pos += common;
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Đặt {@code entry} (đã mang trọng số mới) vào node cuối của {@code key}.
+     *
+     * @param oldCount trọng số trước khi đổi, để tìm vị trí cũ của entry trong node
+     */
+    private static void put(Node node, String key, int pos, Entry entry, int oldCount) {
+        if (pos == key.length()) {
+            node.removeEntry(entry, oldCount);
+            node.insertEntry(entry);
+        } else {
+            Node child = node.child(key.charAt(pos));
+            if (child == null) {
+                child = new Node(key.substring(pos));
+                node.addChild(child);
+            } else {
+                int common = commonPrefix(child.label, key, pos);
+                if (common < child.label.length()) {
+                    child = node.split(child, common);
+                }
+            }
+            put(child, key, pos + child.label.length(), entry, oldCount);
+        }
+        node.refreshMax();
+    }
+
+    private static void delete(Node node, String key, int pos, Entry entry, int oldCount) {
+        if (pos == key.length()) {
+            node.removeEntry(entry, oldCount);
+            node.refreshMax();
+            return;
+        }
+        Node child = node.child(key.charAt(pos));
+        if (child == null || commonPrefix(child.label, key, pos) < child.label.length()) {
+            return;
+        }
+        delete(child, key, pos + child.label.length(), entry, oldCount);
+        if (child.entries.length == 0 && child.children.length == 0) {
+            node.removeChild(child);
+        } else if (child.entries.length == 0 && child.children.length == 1) {
+            node.replaceChild(child, child.children[0].withPrefix(child.label));
+        }
+        node.refreshMax();
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int n = Math.min(label.length(), key.length() - pos);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Entry {
+        final String text;
+        int count;
+
+        Entry(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Node {
+        String label;
+        // sắp theo ký tự đầu của nhãn
+        Node[] children = NO_CHILDREN;
+        // các chuỗi có khóa kết thúc ở node này: trọng số giảm dần, rồi theo chữ cái
+        Entry[] entries = NO_ENTRIES;
+        int max;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int i = indexOf(first);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void addChild(Node child) {
+            int at = -(indexOf(child.label.charAt(0)) + 1);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            int at = indexOf(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, at);
+            System.arraycopy(children, at + 1, shrunk, at, children.length - at - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        void replaceChild(Node child, Node replacement) {
+            children[indexOf(child.label.charAt(0))] = replacement;
+        }
+
+        /**
+         * Tách {@code child} thành node trung gian có nhãn {@code child.label[0..at)} và
+         * {@code child} với phần nhãn còn lại.
+         */
+        Node split(Node child, int at) {
+            Node middle = new Node(child.label.substring(0, at));
+            replaceChild(child, middle);
+            child.label = child.label.substring(at);
+            middle.children = new Node[]{child};
+            middle.max = child.max;
+            return middle;
+        }
+
+        Node withPrefix(String prefix) {
+            label = prefix + label;
+            return this;
+        }
+
+        /**
+         * Tìm nhị phân vị trí của {@code entry} khi nó mang trọng số {@code count};
+         * trả {@code -(điểm chèn) - 1} nếu không có.
+         */
+        private int entryIndex(Entry entry, int count) {
+            int low = 0;
+            int high = entries.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                Entry other = entries[mid];
+                if (other == entry) {
+                    return mid;
+                }
+                int cmp = Integer.compare(other.count, count);
+                if (cmp == 0) {
+                    cmp = entry.text.compareTo(other.text);
+                }
+                if (cmp > 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertEntry(Entry entry) {
+            int at = -(entryIndex(entry, entry.count) + 1);
+            Entry[] grown = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, grown, 0, at);
+            grown[at] = entry;
+            System.arraycopy(entries, at, grown, at + 1, entries.length - at);
+            entries = grown;
+        }
+
+        void removeEntry(Entry entry, int count) {
+            int at = entryIndex(entry, count);
+            if (at < 0) {
+                return;
+            }
+            Entry[] shrunk = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, shrunk, 0, at);
+            System.arraycopy(entries, at + 1, shrunk, at, entries.length - at - 1);
+            entries = shrunk.length == 0 ? NO_ENTRIES : shrunk;
+        }
+
+        void refreshMax() {
+            int best = entries.length == 0 ? 0 : entries[0].count;
+            for (Node child : children) {
+                best = Math.max(best, child.max);
+            }
+            max = best;
+        }
+    }
+
+    /**
+     * Một node cần mở rộng ({@code entry < 0}) hoặc vị trí {@code entry} trong danh sách của
+     * node. Cùng trọng số thì phần tử vào hàng đợi sau được lấy trước, nên việc duyệt đi sâu
+     * xuống thay vì loang theo chiều rộng; con được đưa vào theo thứ tự ngược để các gợi ý
+     * cùng trọng số ra gần đúng thứ tự chữ cái.
+     */
+    private record Candidate(Node node, int entry, int weight, long order) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            int byWeight = Integer.compare(other.weight, weight);
+            return byWeight != 0 ? byWeight : Long.compare(other.order, order);
+        }
+    }
+}
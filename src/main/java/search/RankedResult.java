@@ -0,0 +1,69 @@
+package search;
+
+/**
+ * Một trang kết quả tìm kiếm có xếp hạng: khóa theo điểm giảm dần.
+ */
+public final class RankedResult {
+    static final RankedResult EMPTY = new RankedResult(new long[0], new double[0], 0, false);
+
+    private final long[] keys;
+    private final double[] scores;
+    private final int totalHits;
+    private final boolean hasMore;
+    private final boolean partial;
+
+    RankedResult(long[] keys, double[] scores, int totalHits, boolean hasMore) {
+        this(keys, scores, totalHits, hasMore, false);
+    }
+
+    private RankedResult(long[] keys, double[] scores, int totalHits, boolean hasMore, boolean partial) {
+        this.keys = keys;
+        this.scores = scores;
+        this.totalHits = totalHits;
+        this.hasMore = hasMore;
+        this.partial = partial;
+    }
+
+    /**
+     * Cùng kết quả, đánh dấu là chưa đầy đủ vì hết thời gian cho phép.
+     */
+    RankedResult asPartial() {
+        return new RankedResult(keys, scores, totalHits, hasMore, true);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public long key(int i) {
+        return keys[i];
+    }
+
+    public double score(int i) {
+        return scores[i];
+    }
+
+    /**
+     * @return tổng số khóa khớp truy vấn, không tính phân trang
+     */
+    public int totalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return {@code true} nếu việc tìm kiếm dừng sớm vì hết thời gian và có thể còn thiếu kết quả
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * @return cursor để lấy trang sau, {@code null} nếu đây là trang cuối
+     */
+    public SearchCursor nextCursor() {
+        if (!hasMore || keys.length == 0) {
+            return null;
+        }
+        return new SearchCursor(scores[keys.length - 1], keys[keys.length - 1]);
+    }
+}
@@ -0,0 +1,53 @@
+package search;
+
+/**
+ * Vị trí sau kết quả cuối của một trang tìm kiếm có xếp hạng: trang sau chỉ lấy các kết quả
+ * xếp sau (điểm, khóa) này, nên không phải giữ lại các trang trước như khi dùng offset.
+ * <p>
+ * Điểm phụ thuộc vào thống kê của cả index; nếu catalog thay đổi giữa hai trang thì một vài
+ * kết quả có thể bị lặp hoặc bỏ sót, giống như phân trang bằng offset.
+ */
+public final class SearchCursor {
+    private final double score;
+    private final long key;
+
+    public SearchCursor(double score, long key) {
+        this.score = score;
+        this.key = key;
+    }
+
+    public double score() {
+        return score;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    /**
+     * @return {@code true} nếu (score, key) xếp sau cursor này
+     */
+    boolean precedes(double otherScore, long otherKey) {
+        return TopK.better(score, key, otherScore, otherKey);
+    }
+
+    /**
+     * Dạng chuỗi để trả cho client: bit của điểm (hex) và khóa, cách nhau bởi {@code '.'}.
+     */
+    public String encode() {
+        return Long.toHexString(Double.doubleToRawLongBits(score)) + "." + key;
+    }
+
+    public static SearchCursor decode(String value) {
+        int dot = value == null ? -1 : value.indexOf('.');
+        if (dot <= 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(value.substring(0, dot), 16));
+            return new SearchCursor(score, Long.parseLong(value.substring(dot + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
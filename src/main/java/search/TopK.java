@@ -0,0 +1,82 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * Giữ {@code capacity} khóa có điểm cao nhất bằng min-heap trên mảng nguyên thủy: phần tử
+ * kém nhất nằm ở gốc nên mỗi lần {@link #offer} là O(log k) và bộ nhớ chỉ tỉ lệ với k.
+ * Cùng điểm thì khóa nhỏ hơn đứng trước, để thứ tự luôn xác định.
+ */
+final class TopK {
+    private final long[] keys;
+    private final double[] scores;
+    private int size;
+
+    TopK(int capacity) {
+        keys = new long[capacity];
+        scores = new double[capacity];
+    }
+
+    static boolean better(double score, long key, double otherScore, long otherKey) {
+        return score > otherScore || (score == otherScore && key < otherKey);
+    }
+
+    void offer(long key, double score) {
+        if (size < keys.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!better(scores[parent], keys[parent], score, key)) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            scores[i] = score;
+        } else if (size > 0 && better(score, key, scores[0], keys[0])) {
+            siftDown(key, score);
+        }
+    }
+
+    private void siftDown(long key, double score) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && better(scores[child], keys[child], scores[right], keys[right])) {
+                child = right;
+            }
+            if (!better(score, key, scores[child], keys[child])) {
+                break;
+            }
+            keys[i] = keys[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        keys[i] = key;
+        scores[i] = score;
+    }
+
+    /**
+     * Lấy kết quả theo thứ tự điểm giảm dần, bỏ {@code skip} phần tử đầu. Heap bị rút cạn.
+     */
+    RankedResult drain(int skip, int totalHits, boolean hasMore) {
+        int n = size;
+        long[] sortedKeys = new long[n];
+        double[] sortedScores = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            sortedKeys[i] = keys[0];
+            sortedScores[i] = scores[0];
+            size--;
+            if (size > 0) {
+                siftDown(keys[size], scores[size]);
+            }
+        }
+        int from = Math.min(skip, n);
+        return new RankedResult(Arrays.copyOfRange(sortedKeys, from, n),
+                Arrays.copyOfRange(sortedScores, from, n), totalHits, hasMore);
+    }
+}
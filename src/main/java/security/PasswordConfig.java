@@ -0,0 +1,26 @@
+package security;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PasswordConfig {
+    /**
+     * Số vòng PBKDF2; tăng giá trị này làm mỗi lần hash/verify chậm tương ứng.
+     */
+    @Builder.Default
+    int iterations = 100_000;
+
+    /**
+     * Số thread verify, mặc định bằng số CPU.
+     */
+    @Builder.Default
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Số yêu cầu được xếp hàng chờ; vượt quá thì bị từ chối ngay.
+     */
+    @Builder.Default
+    int queueCapacity = 256;
+}
@@ -0,0 +1,73 @@
+package security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Chạy hash và verify mật khẩu trên một pool riêng cỡ bằng số CPU, để một đợt đăng nhập
+ * dồn dập không chiếm thread xử lý request của các service khác.
+ * <p>
+ * Hàng đợi có giới hạn; khi đầy, yêu cầu mới bị từ chối ngay bằng future lỗi
+ * {@link RejectedExecutionException} thay vì xếp hàng chờ lâu.
+ */
+public class PasswordVerifier implements AutoCloseable {
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordVerifier() {
+        this(PasswordConfig.builder().build());
+    }
+
+    public PasswordVerifier(PasswordConfig config) {
+        if (config.getThreads() <= 0 || config.getQueueCapacity() <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        this.hasher = new PasswordHasher(config.getIterations());
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                daemonThreads(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> hasher.hash(password));
+    }
+
+    public CompletableFuture<Boolean> verify(String password, String encoded) {
+        return submit(() -> hasher.matches(password, encoded));
+    }
+
+    /**
+     * @return số yêu cầu đang chờ trong hàng đợi
+     */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Password verification is overloaded", e));
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-verifier-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
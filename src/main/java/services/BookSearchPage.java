@@ -0,0 +1,21 @@
+package services;
+
+import lombok.Value;
+import models.Book;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả của {@link BookService#searchBooks(String, int, int, String)}.
+ */
+@Value
+public class BookSearchPage {
+    // theo độ liên quan giảm dần
+    List<Book> books;
+    // tổng số book khớp từ khóa
+    int totalHits;
+    // truyền lại để lấy trang sau; null khi đã hết
+    String nextCursor;
+    // true khi tìm gần đúng dừng sớm vì hết thời gian, có thể thiếu kết quả
+    boolean partial;
+}
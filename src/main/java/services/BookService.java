@@ -3,73 +3,212 @@ package services;
 import models.Book;
 import org.springframework.stereotype.Service;
 import repositories.IBookRepository;
+import search.RankedResult;
+import search.SearchCursor;
+import stock.StockEngine;
+import stock.StockReason;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class BookService {
+    /** Số book tối đa trong một trang của {@link #searchBooks(String, int, int, String)}. */
+    public static final int MAX_PAGE_SIZE = 100;
+    /** Số gợi ý tối đa mỗi loại của {@link #autocomplete(String, int)}. */
+    public static final int MAX_SUGGESTIONS = 20;
+    /** Số lần sửa tối đa cho mỗi từ khóa của {@link #searchBooksFuzzy}. */
+    public static final int MAX_EDITS = 2;
+
     private final IBookRepository bookRepository;
+    private final StockEngine stockEngine;
 
-    public BookService(IBookRepository bookRepository) {
+    public BookService(IBookRepository bookRepository, StockEngine stockEngine) {
         this.bookRepository = bookRepository;
+        this.stockEngine = stockEngine;
     }
 
     public Book getBookById(long id) {
         Book book = bookRepository.findById(id);
         if (book == null) {
-            throw new IllegalArgumentException("Book not found with id: " + id);
+            throw new NotFoundException("Book not found with id: " + id);
         }
-        return book;
+        return stockEngine.withCurrentStock(book);
     }
 
     public Book createBook(Book book) {
+        String error = validationError(book);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return bookRepository.create(book);
+    }
+
+    /**
+     * Kiểm tra dữ liệu book như {@link #createBook}, không ném exception để import hàng loạt
+     * có thể ghi lý do vào báo cáo.
+     *
+     * @return lý do book không hợp lệ, hoặc {@code null}
+     */
+    public static String validationError(Book book) {
         if (book.getTitle() == null || book.getTitle().isEmpty()) {
-            throw new IllegalArgumentException("Title cannot be empty");
+            return "Title cannot be empty";
         }
         if (book.getAuthor() == null || book.getAuthor().isEmpty()) {
-            throw new IllegalArgumentException("Author cannot be empty");
+            return "Author cannot be empty";
         }
         if (book.getPrice() <= 0) {
-            throw new IllegalArgumentException("Price must be greater than 0");
+            return "Price must be greater than 0";
         }
-        return bookRepository.create(book);
+        return null;
     }
 
+    /**
+     * Sửa book. Tồn kho chỉ đổi khi {@code stockQuantity} trong request khác tồn kho hiện tại, và
+     * được áp dụng như một lần nhập/xuất kho bằng phần chênh lệch (ghi vào sổ), nên các giữ chỗ
+     * và checkout đang chạy không bị ghi đè.
+     *
+     * @throws IllegalStateException khi tồn kho đã giảm xuống dưới phần cần xuất
+     */
     public Book updateBook(long id, Book book) {
         Book existingBook = bookRepository.findById(id);
         if (existingBook == null) {
-            throw new IllegalArgumentException("Book not found with id: " + id);
+            throw new NotFoundException("Book not found with id: " + id);
+        }
+        int current = stockEngine.withCurrentStock(existingBook).getStockQuantity();
+        if (book.getStockQuantity() != current) {
+            stockEngine.track(id, current);
+            if (!adjustStock(id, book.getStockQuantity() - current)) {
+                throw new IllegalStateException("Not enough stock");
+            }
         }
-        return bookRepository.update(id, book);
+        return stockEngine.withCurrentStock(bookRepository.update(id, book));
     }
 
     public void deleteBook(long id) {
         Book existingBook = bookRepository.findById(id);
         if (existingBook == null) {
-            throw new IllegalArgumentException("Book not found with id: " + id);
+            throw new NotFoundException("Book not found with id: " + id);
         }
         bookRepository.delete(id);
+        stockEngine.forget(id);
     }
 
     public List<Book> searchBooks(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new IllegalArgumentException("Search keyword cannot be empty");
         }
-        return bookRepository.searchByKeyword(keyword);
+        List<Book> books = bookRepository.searchByKeyword(keyword);
+        books.forEach(stockEngine::withCurrentStock);
+        return books;
     }
 
+    /**
+     * Tìm book theo từ khóa, xếp theo độ liên quan, theo trang. Trang sau lấy bằng
+     * {@code offset} hoặc bằng {@code cursor} của trang trước; dùng cursor thì chi phí
+     * không tăng theo số trang đã đi qua. {@code limit} bị giới hạn bởi {@link #MAX_PAGE_SIZE}.
+     *
+     * @param cursor {@link BookSearchPage#getNextCursor()} của trang trước, hoặc {@code null}
+     */
+    public BookSearchPage searchBooks(String keyword, int offset, int limit, String cursor) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search keyword cannot be empty");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        SearchCursor after = cursor == null || cursor.isEmpty() ? null : SearchCursor.decode(cursor);
+        RankedResult ranked = bookRepository.searchRanked(keyword, offset, Math.min(limit, MAX_PAGE_SIZE), after);
+        SearchCursor next = ranked.nextCursor();
+        return new BookSearchPage(booksOf(ranked), ranked.totalHits(), next == null ? null : next.encode(), false);
+    }
+
+    /**
+     * Tìm chịu lỗi gõ ("algoritms" vẫn ra "algorithms"): mỗi từ khóa khớp cả các từ cách nó
+     * không quá {@code maxEdits} lần sửa, khớp đúng xếp trước. Không phân trang; tìm quá
+     * {@code budget} thì trả những gì đã có và đánh dấu {@link BookSearchPage#isPartial()}.
+     */
+    public BookSearchPage searchBooksFuzzy(String keyword, int maxEdits, int limit, Duration budget) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search keyword cannot be empty");
+        }
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new IllegalArgumentException("Max edits must be between 0 and " + MAX_EDITS);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        RankedResult ranked = bookRepository.searchFuzzy(keyword, maxEdits, Math.min(limit, MAX_PAGE_SIZE), budget.toNanos());
+        return new BookSearchPage(booksOf(ranked), ranked.totalHits(), null, ranked.isPartial());
+    }
+
+    private List<Book> booksOf(RankedResult ranked) {
+        List<Book> books = new ArrayList<>(ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            Book book = bookRepository.findById(ranked.key(i));
+            if (book != null) {
+                books.add(stockEngine.withCurrentStock(book));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Gợi ý title và author cho ô tìm kiếm, gọi theo từng phím gõ: chỉ duyệt trie tiền tố,
+     * không quét catalog. Tiền tố rỗng trả về gợi ý rỗng.
+     */
+    public BookSuggestions autocomplete(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return new BookSuggestions(List.of(), List.of());
+        }
+        int n = Math.min(limit, MAX_SUGGESTIONS);
+        return new BookSuggestions(bookRepository.suggestTitles(prefix, n), bookRepository.suggestAuthors(prefix, n));
+    }
+
+    /**
+     * Nhập ({@code quantity > 0}) hoặc xuất kho. Thay đổi chỉ được ghi vào {@link stock.StockLedger},
+     * book trong repository không bị ghi lại.
+     */
     public boolean updateStock(long bookId, int quantity) {
         Book book = bookRepository.findById(bookId);
         if (book == null) {
-            throw new IllegalArgumentException("Book not found with id: " + bookId);
+            throw new NotFoundException("Book not found with id: " + bookId);
         }
 
-        if (book.getStockQuantity() + quantity < 0) {
-            return false; // Không đủ số lượng trong kho
-        }
+        stockEngine.track(bookId, book.getStockQuantity());
+        return adjustStock(bookId, quantity);
+    }
 
-        book.setStockQuantity(book.getStockQuantity() + quantity);
-        bookRepository.update(bookId, book);
+    private boolean adjustStock(long bookId, int quantity) {
+        if (quantity > 0) {
+            stockEngine.awaitDurable(stockEngine.restock(bookId, quantity, StockReason.ADJUSTMENT, 0L));
+        } else if (quantity < 0) {
+            if (!stockEngine.tryReserve(bookId, -quantity)) {
+                return false; // Không đủ số lượng trong kho
+            }
+            stockEngine.awaitDurable(stockEngine.record(bookId, quantity, StockReason.ADJUSTMENT, 0L));
+        }
         return true;
     }
+
+    /**
+     * Bật hoặc tắt chế độ hàng nóng cho book sắp có lượng checkout lớn (flash sale): tồn kho
+     * được chia trên nhiều ô để các checkout đồng thời không tranh nhau một bộ đếm.
+     */
+    public void setFlashSale(long bookId, boolean enabled) {
+        Book book = bookRepository.findById(bookId);
+        if (book == null) {
+            throw new NotFoundException("Book not found with id: " + bookId);
+        }
+
+        stockEngine.track(bookId, book.getStockQuantity());
+        stockEngine.setHot(bookId, enabled);
+    }
 }
@@ -0,0 +1,14 @@
+package services;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Gợi ý cho ô tìm kiếm, kết quả của {@link BookService#autocomplete(String, int)}.
+ */
+@Value
+public class BookSuggestions {
+    List<String> titles;
+    List<String> authors;
+}
@@ -9,56 +9,236 @@ import repositories.IBookRepository;
 import repositories.ICartItemRepository;
 import repositories.ICartRepository;
 import repositories.IUserRepository;
+import stock.StockEngine;
+import stock.StockReservations;
 
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giỏ hàng của user. Các thao tác sửa giỏ đọc giỏ, giữ hàng rồi ghi lại giỏ; chúng chạy dưới
+ * một lock theo user (chia sọc) để hai lần sửa đồng thời không tạo hai giỏ cho một user hoặc
+ * ghi đè dòng của nhau, bỏ lại hàng đang giữ cho dòng đã mất tới khi hết hạn.
+ */
 @Service
 public class CartService {
+    private static final int LOCK_STRIPES = 64;
+
     private final IUserRepository userRepository;
     private final IBookRepository bookRepository;
     private final ICartItemRepository cartItemRepository;
     private final ICartRepository cartRepository;
+    private final StockEngine stockEngine;
+    private final StockReservations stockReservations;
+    private final ReentrantLock[] userLocks = new ReentrantLock[LOCK_STRIPES];
 
-    public CartService(IUserRepository userRepository, IBookRepository bookRepository, ICartItemRepository cartItemRepository, ICartRepository cartRepository) {
+    public CartService(IUserRepository userRepository, IBookRepository bookRepository, ICartItemRepository cartItemRepository,
+                       ICartRepository cartRepository, StockEngine stockEngine, StockReservations stockReservations) {
         this.userRepository = userRepository;
         this.bookRepository = bookRepository;
         this.cartItemRepository = cartItemRepository;
         this.cartRepository = cartRepository;
+        this.stockEngine = stockEngine;
+        this.stockReservations = stockReservations;
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
     }
 
     public long createCart(long userId, long bookId, int quantity) {
         User user = userRepository.findById(userId);
         if (user == null) {
-            throw new IllegalArgumentException("User not found");
+            throw new NotFoundException("User not found");
         }
 
-        Book book = bookRepository.findById(bookId);
+        Book book = findBook(bookId);
         if (book == null) {
-            throw new IllegalArgumentException("Book not found");
+            throw new NotFoundException("Book not found");
         }
 
         // nếu quantity > stock thì giới hạn
         int finalQuantity = Math.min(quantity, book.getStockQuantity());
 
-        CartItem cartItem = CartItem.builder()
-                .id(1L) // trong thực tế id sẽ do DB sinh
+        // id do IdGenerator của repository cấp
+        CartItem cartItem = cartItemRepository.create(CartItem.builder()
                 .book(book)
                 .quantity(finalQuantity)
-                .build();
-        cartItemRepository.create(cartItem);
+                .build());
 
-        Cart cart = Cart.builder()
-                .id(1L) // cũng thường do DB sinh
+        Cart cart = cartRepository.create(Cart.builder()
                 .user(user)
                 .cartItem(cartItem)
-                .build();
-        cartRepository.create(cart);
+                .build());
+
+        // giữ hàng cho giỏ; kho có thể vừa bị giỏ khác lấy mất một phần
+        int held = finalQuantity > 0 ? stockReservations.hold(cart.getId(), bookId, finalQuantity) : finalQuantity;
+        if (held != finalQuantity) {
+            cartItem.setQuantity(held);
+            cartItemRepository.update(cartItem.getId(), cartItem);
+            cartRepository.update(cart.getId(), cart);
+        }
+        return cart.getId();
+    }
+
+    /**
+     * Thêm sách vào giỏ của user, tạo giỏ nếu chưa có. Số lượng cộng dồn với dòng đã có
+     * và bị giới hạn bởi stock hiện tại; phần trong giỏ được giữ hàng tới khi hết hạn.
+     *
+     * @return id của giỏ
+     */
+    public long addItem(long userId, long bookId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        User user = userRepository.findById(userId);
+        if (user == null) {
+            throw new NotFoundException("User not found");
+        }
+        Book book = findBook(bookId);
+        if (book == null) {
+            throw new NotFoundException("Book not found");
+        }
+        if (book.getStockQuantity() <= 0) {
+            throw new IllegalStateException("Out of stock");
+        }
+
+        ReentrantLock lock = lockOf(userId);
+        lock.lock();
+        try {
+            return addLocked(user, userId, book, bookId, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // chỉ gọi khi giữ lock của user
+    private long addLocked(User user, long userId, Book book, long bookId, int quantity) {
+        Cart cart = cartRepository.findByUserId(userId);
+        if (cart == null) {
+            Cart created = Cart.builder().user(user).build();
+            int wanted = Math.min(quantity, book.getStockQuantity());
+            created.getItems().put(bookId, wanted);
+            created = cartRepository.create(created);
+            int held = stockReservations.hold(created.getId(), bookId, wanted);
+            if (held != wanted) {
+                putOrRemove(created, bookId, held);
+                cartRepository.update(created.getId(), created);
+            }
+            return created.getId();
+        }
 
+        moveCartItemToItems(cart);
+        long wanted = (long) cart.getItems().getOrDefault(bookId, 0) + quantity;
+        putOrRemove(cart, bookId, stockReservations.hold(cart.getId(), bookId, (int) Math.min(wanted, Integer.MAX_VALUE)));
+        cartRepository.update(cart.getId(), cart);
         return cart.getId();
     }
 
+    public void removeItem(long cartId, long bookId) {
+        ReentrantLock lock = lockOf(ownerOf(findCart(cartId)));
+        lock.lock();
+        try {
+            removeLocked(cartId, bookId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // chỉ gọi khi giữ lock của chủ giỏ; đọc lại giỏ để thấy lần sửa vừa xong
+    private void removeLocked(long cartId, long bookId) {
+        Cart cart = findCart(cartId);
+        boolean hadCartItem = moveCartItemToItems(cart);
+        stockReservations.release(cartId, bookId);
+        if (cart.getItems().remove(bookId) || hadCartItem) {
+            cartRepository.update(cartId, cart);
+        }
+    }
+
+    /**
+     * Đặt lại số lượng của một dòng; {@code quantity} bằng 0 thì xóa dòng.
+     */
+    public void changeQuantity(long cartId, long bookId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+        if (quantity == 0) {
+            removeItem(cartId, bookId);
+            return;
+        }
+        ReentrantLock lock = lockOf(ownerOf(findCart(cartId)));
+        lock.lock();
+        try {
+            changeLocked(cartId, bookId, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // chỉ gọi khi giữ lock của chủ giỏ
+    private void changeLocked(long cartId, long bookId, int quantity) {
+        Cart cart = findCart(cartId);
+        moveCartItemToItems(cart);
+        if (!cart.getItems().containsKey(bookId)) {
+            throw new IllegalArgumentException("Book not in cart");
+        }
+        Book book = findBook(bookId);
+        if (book == null) {
+            throw new NotFoundException("Book not found");
+        }
+        putOrRemove(cart, bookId, stockReservations.hold(cartId, bookId, quantity));
+        cartRepository.update(cartId, cart);
+    }
+
+    // số lượng trong giỏ bị giới hạn bởi tồn kho hiện tại, không phải tồn kho ban đầu trong repository
+    private Book findBook(long bookId) {
+        Book book = bookRepository.findById(bookId);
+        if (book != null) {
+            stockEngine.track(bookId, book.getStockQuantity());
+        }
+        return stockEngine.withCurrentStock(book);
+    }
+
+    private ReentrantLock lockOf(long userId) {
+        return userLocks[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (LOCK_STRIPES - 1)];
+    }
+
+    private static long ownerOf(Cart cart) {
+        return cart.getUser() == null || cart.getUser().getId() == null ? 0L : cart.getUser().getId();
+    }
+
+    // giỏ chỉ còn giữ được 0 cuốn thì bỏ dòng đó
+    private static void putOrRemove(Cart cart, long bookId, int quantity) {
+        if (quantity > 0) {
+            cart.getItems().put(bookId, quantity);
+        } else {
+            cart.getItems().remove(bookId);
+        }
+    }
+
+    private Cart findCart(long cartId) {
+        Cart cart = cartRepository.findById(cartId);
+        if (cart == null) {
+            throw new NotFoundException("Cart not found");
+        }
+        return cart;
+    }
+
+    // giỏ tạo bằng createCart giữ một CartItem; chuyển nó vào items trước khi sửa
+    private static boolean moveCartItemToItems(Cart cart) {
+        CartItem cartItem = cart.getCartItem();
+        if (cartItem == null) {
+            return false;
+        }
+        if (cartItem.getBook() != null && cartItem.getQuantity() > 0) {
+            cart.getItems().addTo(cartItem.getBook().getId(), cartItem.getQuantity());
+        }
+        cart.setCartItem(null);
+        return true;
+    }
+
     public Cart viewCart(long userId) {
         Cart cart = cartRepository.findByUserId(userId);
         if (cart == null) {
-            throw new IllegalArgumentException("Cart not found for userId: " + userId);
+            throw new NotFoundException("Cart not found for userId: " + userId);
         }
         return cart;
     }
@@ -0,0 +1,31 @@
+package services;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+/**
+ * Kết quả checkout của một giỏ trong {@link OrderService#checkoutCarts(long[])}.
+ */
+@Value
+public class CheckoutOutcome {
+    long cartId;
+    // 0 khi checkout thất bại
+    long orderId;
+    // null khi checkout thành công
+    String error;
+    // exception gốc, để người gọi ném lại đúng loại lỗi như checkoutCart
+    @JsonIgnore
+    RuntimeException failure;
+
+    public static CheckoutOutcome success(long cartId, long orderId) {
+        return new CheckoutOutcome(cartId, orderId, null, null);
+    }
+
+    public static CheckoutOutcome failure(long cartId, RuntimeException failure) {
+        return new CheckoutOutcome(cartId, 0L, String.valueOf(failure.getMessage()), failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,226 @@
+package services;
+
+import models.Cart;
+import repositories.ICartRepository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checkout bất đồng bộ: mỗi checkout được đưa vào ring buffer của partition theo book của giỏ,
+ * một thread ghi duy nhất của partition gom các checkout đang chờ thành lô và chạy
+ * {@link OrderService#checkoutCarts}. Giỏ cùng book luôn vào cùng partition, nên các checkout
+ * trên một book bán chạy không còn tranh nhau bộ đếm từ nhiều thread: cả lô chỉ trừ kho bằng
+ * một lần CAS mỗi book.
+ * <p>
+ * Ring buffer được cấp phát sẵn; người gửi giành ô bằng CAS trên số thứ tự và không bao giờ
+ * chờ lock. Ring đầy thì checkout bị từ chối ngay bằng {@link RejectedExecutionException}. Thread
+ * ghi quay chờ một lúc rồi ngủ khi không có việc, người gửi đánh thức nó sau khi đăng ô.
+ * <p>
+ * Giỏ có nhiều book được xếp theo book có id nhỏ nhất; kho vẫn được trừ bằng CAS nên các
+ * partition khác chạm cùng book vẫn an toàn, chỉ là không còn được gom chung lô.
+ */
+public class CheckoutPipeline implements AutoCloseable {
+    private static final int SPINS = 1_000;
+    // giá trị của claimed sau khi thread ghi đã dừng: không ai giành được ô nữa
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final OrderService orderService;
+    private final ICartRepository cartRepository;
+    private final Partition[] partitions;
+
+    public CheckoutPipeline(OrderService orderService, ICartRepository cartRepository) {
+        this(orderService, cartRepository, PipelineConfig.builder().build());
+    }
+
+    public CheckoutPipeline(OrderService orderService, ICartRepository cartRepository, PipelineConfig config) {
+        if (config.getPartitions() <= 0 || config.getRingSize() <= 0 || config.getBatchSize() <= 0) {
+            throw new IllegalArgumentException("Partitions, ring size and batch size must be positive");
+        }
+        this.orderService = orderService;
+        this.cartRepository = cartRepository;
+        int ringSize = config.getRingSize() == 1 ? 1 : Integer.highestOneBit(config.getRingSize() - 1) << 1;
+        this.partitions = new Partition[config.getPartitions()];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(ringSize, config.getBatchSize());
+            Thread writer = new Thread(partitions[i], "checkout-" + i);
+            writer.setDaemon(true);
+            partitions[i].writer = writer;
+            writer.start();
+        }
+    }
+
+    /**
+     * Đưa giỏ vào hàng checkout.
+     *
+     * @return future hoàn thành với id của order, hoặc lỗi như {@link OrderService#checkoutCart}
+     * @throws RejectedExecutionException khi ring buffer của partition đã đầy
+     */
+    public CompletableFuture<Long> submit(long cartId) {
+        Cart cart = cartRepository.findById(cartId);
+        if (cart == null) {
+            return CompletableFuture.failedFuture(new NotFoundException("Cart not found"));
+        }
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        partitions[partitionOf(routingKey(cart))].publish(cartId, future);
+        return future;
+    }
+
+    /**
+     * Dừng nhận checkout mới; các checkout đã vào ring vẫn được xử lý xong. Thread ghi chỉ dừng
+     * khi đóng được {@code claimed} bằng CAS, nên người gửi giành ô ngay trước lúc đóng vẫn
+     * được xử lý chứ không bị bỏ lại với future không bao giờ hoàn thành.
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.running = false;
+            LockSupport.unpark(partition.writer);
+        }
+    }
+
+    private int partitionOf(long bookId) {
+        return Math.floorMod(Long.hashCode(bookId * 0x9E3779B97F4A7C15L), partitions.length);
+    }
+
+    private static long routingKey(Cart cart) {
+        if (cart.getCartItem() != null && cart.getCartItem().getBook() != null) {
+            return cart.getCartItem().getBook().getId();
+        }
+        long min = 0L;
+        if (cart.getItems() != null && !cart.getItems().isEmpty()) {
+            min = Long.MAX_VALUE;
+            for (long bookId : cart.getItems().keys()) {
+                min = Math.min(min, bookId);
+            }
+        }
+        return min;
+    }
+
+    private final class Partition implements Runnable {
+        private final int mask;
+        private final long[] cartIds;
+        private final CompletableFuture<Long>[] futures;
+        // số thứ tự đã đăng vào từng ô; thread ghi chỉ đọc ô khi nó bằng số thứ tự đang chờ
+        private final AtomicLongArray published;
+        private final AtomicLong claimed = new AtomicLong(-1);
+        private volatile long consumed = -1;
+        private volatile boolean sleeping;
+        private volatile boolean running = true;
+        private Thread writer;
+
+        private final long[] batch;
+        private final CompletableFuture<Long>[] batchFutures;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Partition(int ringSize, int batchSize) {
+            this.mask = ringSize - 1;
+            this.cartIds = new long[ringSize];
+            this.futures = new CompletableFuture[ringSize];
+            this.published = new AtomicLongArray(ringSize);
+            for (int i = 0; i < ringSize; i++) {
+                published.set(i, -1);
+            }
+            this.batch = new long[batchSize];
+            this.batchFutures = new CompletableFuture[batchSize];
+        }
+
+        void publish(long cartId, CompletableFuture<Long> future) {
+            long sequence;
+            do {
+                long current = claimed.get();
+                if (!running || current == CLOSED) {
+                    throw new RejectedExecutionException("Checkout pipeline is closed");
+                }
+                sequence = current + 1;
+                if (sequence - consumed > cartIds.length) {
+                    throw new RejectedExecutionException("Checkout queue is full");
+                }
+            } while (!claimed.compareAndSet(sequence - 1, sequence));
+
+            int slot = (int) (sequence & mask);
+            cartIds[slot] = cartId;
+            futures[slot] = future;
+            published.set(slot, sequence);
+            if (sleeping) {
+                LockSupport.unpark(writer);
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                int n = drain();
+                if (n > 0) {
+                    apply(n);
+                    idle = 0;
+                } else if (!running && claimed.compareAndSet(consumed, CLOSED)) {
+                    // CAS thất bại nghĩa là có người vừa giành ô trước khi thấy running == false:
+                    // ô đó vẫn được xử lý ở các vòng sau
+                    return;
+                } else if (++idle < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    if (!hasNext()) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+
+        private boolean hasNext() {
+            long next = consumed + 1;
+            return published.get((int) (next & mask)) == next;
+        }
+
+        /**
+         * Chép các ô đã đăng liên tiếp vào lô rồi trả ô lại cho người gửi.
+         */
+        private int drain() {
+            long next = consumed + 1;
+            int n = 0;
+            while (n < batch.length) {
+                int slot = (int) ((next + n) & mask);
+                if (published.get(slot) != next + n) {
+                    break;
+                }
+                batch[n] = cartIds[slot];
+                batchFutures[n] = futures[slot];
+                futures[slot] = null;
+                n++;
+            }
+            if (n > 0) {
+                consumed = next + n - 1;
+            }
+            return n;
+        }
+
+        private void apply(int n) {
+            try {
+                List<CheckoutOutcome> outcomes = orderService.checkoutCarts(Arrays.copyOf(batch, n));
+                for (int i = 0; i < n; i++) {
+                    CheckoutOutcome outcome = outcomes.get(i);
+                    if (outcome.isSuccess()) {
+                        batchFutures[i].complete(outcome.getOrderId());
+                    } else {
+                        batchFutures[i].completeExceptionally(outcome.getFailure());
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (int i = 0; i < n; i++) {
+                    batchFutures[i].completeExceptionally(e);
+                }
+            } finally {
+                Arrays.fill(batchFutures, 0, n, null);
+            }
+        }
+    }
+}
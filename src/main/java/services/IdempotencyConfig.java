@@ -0,0 +1,22 @@
+package services;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+@Value
+@Builder
+public class IdempotencyConfig {
+    /**
+     * Số key được nhớ tối đa; vượt quá thì key cũ nhất bị quên trước khi hết hạn.
+     */
+    @Builder.Default
+    int maxKeys = 100_000;
+
+    /**
+     * Thời gian một key được nhớ kể từ lần đầu dùng; client phải thử lại trong khoảng này.
+     */
+    @Builder.Default
+    Duration ttl = Duration.ofHours(24);
+}
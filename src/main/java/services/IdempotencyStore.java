@@ -0,0 +1,185 @@
+package services;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Nhớ kết quả của thao tác theo idempotency key, để client thử lại (do timeout, load balancer
+ * gửi lại) nhận đúng kết quả lần đầu mà không chạy lại thao tác.
+ * <p>
+ * Lần gọi đầu với một key chạy thao tác; các lần gọi trùng đến trong lúc nó đang chạy chờ cùng
+ * kết quả, lần gọi trùng sau đó trả kết quả đã nhớ trong O(1) mà không chạm repository. Lỗi
+ * nghiệp vụ ({@link IllegalArgumentException}, {@link IllegalStateException}) cũng được nhớ;
+ * lỗi khác (quá tải, I/O) thì không, để lần thử lại được chạy thật.
+ * <p>
+ * Mọi key có cùng thời gian sống nên thứ tự thêm vào cũng là thứ tự hết hạn: một hàng đợi FIFO
+ * đủ để bỏ key hết hạn và giới hạn số key, không cần quét cả map. Khi vượt {@code maxKeys}, key
+ * cũ nhất đã có kết quả bị bỏ; key đang chạy thì không, vì lần thử lại của nó sẽ chạy thao tác
+ * lần nữa. Mọi key còn lại đều đang chạy thì key mới bị từ chối bằng
+ * {@link RejectedExecutionException}. Key bị bỏ do lỗi không được nhớ thì không còn tính vào giới hạn.
+ */
+public class IdempotencyStore {
+    private final int maxKeys;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // chỉ thread giữ lock này lấy phần tử khỏi order
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    public IdempotencyStore() {
+        this(IdempotencyConfig.builder().build(), System::currentTimeMillis);
+    }
+
+    public IdempotencyStore(IdempotencyConfig config, LongSupplier clock) {
+        if (config.getMaxKeys() <= 0 || config.getTtl().toMillis() <= 0) {
+            throw new IllegalArgumentException("Max keys and ttl must be positive");
+        }
+        this.maxKeys = config.getMaxKeys();
+        this.ttlMillis = config.getTtl().toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Chạy {@code action} một lần cho mỗi {@code key} còn sống.
+     *
+     * @param request mô tả yêu cầu gắn với key (ví dụ id của giỏ); dùng lại key cho yêu cầu khác là lỗi
+     * @return kết quả của lần chạy đầu tiên
+     * @throws RejectedExecutionException khi đã đủ {@code maxKeys} key và key nào cũng đang chạy
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String request, Supplier<T> action) {
+        long now = clock.getAsLong();
+        evictExpired(now);
+        Entry fresh = new Entry(key, request, now + ttlMillis);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (existing.expiresAt > now) {
+                if (!existing.request.equals(request)) {
+                    throw new IllegalArgumentException("Idempotency key was used for a different request");
+                }
+                return (T) await(existing);
+            }
+            if (entries.replace(key, existing, fresh)) {
+                break;
+            }
+        }
+        order.add(fresh);
+        if (size.incrementAndGet() > maxKeys && !evictOldest()) {
+            RejectedExecutionException rejected = new RejectedExecutionException("Too many requests in flight");
+            forget(fresh);
+            fresh.result.completeExceptionally(rejected);
+            throw rejected;
+        }
+
+        try {
+            T value = action.get();
+            fresh.result.complete(value);
+            return value;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            fresh.result.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException e) {
+            forget(fresh);
+            fresh.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return số key đang được nhớ, kể cả key đã hết hạn nhưng chưa bị bỏ
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private static Object await(Entry entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // một thread bỏ key hết hạn là đủ, các thread khác không chờ
+    private void evictExpired(long now) {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            Entry head;
+            while ((head = order.peek()) != null && (head.removed.get() || head.expiresAt <= now)) {
+                order.poll();
+                forget(head);
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * Bỏ key cũ nhất đã có kết quả; key đang chạy được bỏ qua, key đã bị bỏ thì được dọn khỏi hàng đợi.
+     *
+     * @return {@code false} nếu mọi key còn trong hàng đợi đều đang chạy
+     */
+    private boolean evictOldest() {
+        evictLock.lock();
+        try {
+            Iterator<Entry> it = order.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.removed.get()) {
+                    it.remove();
+                } else if (entry.result.isDone()) {
+                    it.remove();
+                    forget(entry);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * Bỏ {@code entry} khỏi map và khỏi {@link #size} đúng một lần; nó có thể còn trong hàng đợi
+     * và được dọn sau.
+     */
+    private void forget(Entry entry) {
+        if (entry.removed.compareAndSet(false, true)) {
+            size.decrementAndGet();
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final String request;
+        final long expiresAt;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final AtomicBoolean removed = new AtomicBoolean();
+
+        Entry(String key, String request, long expiresAt) {
+            this.key = key;
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package services;
+
+/**
+ * Đối tượng được tham chiếu (user, book, giỏ, order) không tồn tại. Là
+ * {@link IllegalArgumentException} nên code bắt lỗi tham số sai vẫn bắt được nó; tầng web
+ * dựa vào kiểu này để trả 404 thay vì 400.
+ */
+public class NotFoundException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
@@ -4,77 +4,416 @@ import models.Book;
 import models.Cart;
 import models.CartItem;
 import models.Order;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import repositories.IBookRepository;
 import repositories.ICartRepository;
 import repositories.IOrderRepository;
+import stock.StockEngine;
+import stock.StockReason;
+import stock.StockReservations;
+import utils.ConcurrentLongObjectMap;
+import utils.LongIntHashMap;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class OrderService {
+    /** Số order tối đa trả về trong một trang của {@link #viewOrders(long, long, int)}. */
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final ICartRepository cartRepository;
     private final IOrderRepository orderRepository;
     private final IBookRepository bookRepository;
+    private final StockEngine stockEngine;
+    private final StockReservations stockReservations;
+    private final IdempotencyStore idempotencyStore;
+    // order đang được hủy, để hai lần hủy chạy đua không trả kho hai lần
+    private final ConcurrentLongObjectMap<Boolean> cancelling = new ConcurrentLongObjectMap<>();
+
+    public OrderService(ICartRepository cartRepository,
+                        IOrderRepository orderRepository,
+                        IBookRepository bookRepository,
+                        StockEngine stockEngine,
+                        StockReservations stockReservations) {
+        this(cartRepository, orderRepository, bookRepository, stockEngine, stockReservations, new IdempotencyStore());
+    }
 
+    @Autowired
     public OrderService(ICartRepository cartRepository,
                         IOrderRepository orderRepository,
-                        IBookRepository bookRepository) {
+                        IBookRepository bookRepository,
+                        StockEngine stockEngine,
+                        StockReservations stockReservations,
+                        IdempotencyStore idempotencyStore) {
         this.cartRepository = cartRepository;
         this.orderRepository = orderRepository;
         this.bookRepository = bookRepository;
+        this.stockEngine = stockEngine;
+        this.stockReservations = stockReservations;
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    /**
+     * Như {@link #checkoutCart(long)}; gọi lại với cùng {@code idempotencyKey} trả order (hoặc lỗi)
+     * của lần đầu thay vì checkout lại. Key rỗng thì không ghi nhớ.
+     */
+    public long checkoutCart(long cartId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return checkoutCart(cartId);
+        }
+        return idempotencyStore.execute("checkout:" + idempotencyKey, String.valueOf(cartId),
+                () -> checkoutCart(cartId));
+    }
+
+    /**
+     * Như {@link #cancelOrder(long)}; gọi lại với cùng {@code idempotencyKey} thành công như lần
+     * đầu thay vì báo không tìm thấy order. Key rỗng thì không ghi nhớ.
+     */
+    public void cancelOrder(long orderId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            cancelOrder(orderId);
+            return;
+        }
+        idempotencyStore.execute("cancel:" + idempotencyKey, String.valueOf(orderId), () -> {
+            cancelOrder(orderId);
+            return null;
+        });
     }
 
     public long checkoutCart(long cartId) {
         Cart cart = cartRepository.findById(cartId);
         if (cart == null) {
-            throw new IllegalArgumentException("Cart not found");
-        }
-
-        CartItem cartItem = cart.getCartItem();
-        if (cartItem == null) {
-            throw new IllegalStateException("Cart is empty");
+            throw new NotFoundException("Cart not found");
         }
 
-        Book book = cartItem.getBook();
-        int quantity = cartItem.getQuantity();
+        CartLines lines = linesOf(cart, new HashMap<>());
+        claimHolds(cartId, lines);
 
-        if (book.getStockQuantity() < quantity) {
-            throw new IllegalStateException("Not enough stock");
+        // phần giỏ đã giữ được trừ sẵn; phần còn lại trừ bằng CAS, không thể bán quá số lượng;
+        // thiếu một dòng thì trả lại cả giỏ
+        for (int i = 0; i < lines.size(); i++) {
+            stockEngine.track(lines.books[i].getId(), lines.books[i].getStockQuantity());
+            if (!reserveRest(lines, i)) {
+                release(lines, i);
+                throw new IllegalStateException("Not enough stock");
+            }
         }
 
-        // trừ stock
-        book.setStockQuantity(book.getStockQuantity() - quantity);
-        bookRepository.update(book.getId(), book);
-
-        // tạo order
-        Order order = new Order();
-        order.setBook(book);
-        order.setQuantity(quantity);
-        Order savedOrder = orderRepository.create(order);
+        // tạo một order cho cả giỏ
+        Order savedOrder;
+        try {
+            savedOrder = orderRepository.create(lines.toOrder());
+        } catch (RuntimeException e) {
+            release(lines, lines.size());
+            throw e;
+        }
 
         // cart có thể xóa hoặc đánh dấu đã xử lý
         cartRepository.delete(cartId);
 
+        // phần đã giữ chỗ được chốt vào sổ tồn kho, book không bị ghi lại; chỉ trả về khi dòng
+        // sổ đã bền như order, để sau khi sập kho không được bán lại
+        stockEngine.awaitDurable(record(lines, savedOrder.getId()));
         return savedOrder.getId();
     }
 
+    /**
+     * Checkout nhiều giỏ một lượt. Số lượng cần của mỗi book được cộng dồn và trừ bằng một
+     * lần CAS; chỉ book không đủ cho cả lô mới phải giữ chỗ từng giỏ theo thứ tự trong
+     * {@code cartIds}. Các order được tạo bằng {@link IOrderRepository#createAll}, mỗi dòng
+     * được chốt vào sổ tồn kho theo order của nó.
+     *
+     * @return kết quả của từng giỏ, cùng thứ tự với {@code cartIds}
+     */
+    public List<CheckoutOutcome> checkoutCarts(long[] cartIds) {
+        CheckoutOutcome[] outcomes = new CheckoutOutcome[cartIds.length];
+        CartLines[] accepted = new CartLines[cartIds.length];
+        Map<Long, Book> books = new HashMap<>();
+        LongIntHashMap demand = new LongIntHashMap();
+        LongIntHashMap seen = new LongIntHashMap(cartIds.length);
+
+        for (int c = 0; c < cartIds.length; c++) {
+            long cartId = cartIds[c];
+            if (seen.containsKey(cartId)) {
+                outcomes[c] = CheckoutOutcome.failure(cartId, new IllegalArgumentException("Duplicate cart"));
+                continue;
+            }
+            seen.put(cartId, c);
+            Cart cart = cartRepository.findById(cartId);
+            if (cart == null) {
+                outcomes[c] = CheckoutOutcome.failure(cartId, new NotFoundException("Cart not found"));
+                continue;
+            }
+            try {
+                accepted[c] = linesOf(cart, books);
+            } catch (RuntimeException e) {
+                outcomes[c] = CheckoutOutcome.failure(cartId, e);
+                continue;
+            }
+            claimHolds(cartId, accepted[c]);
+            for (int i = 0; i < accepted[c].size(); i++) {
+                demand.addTo(accepted[c].books[i].getId(), accepted[c].quantities[i] - accepted[c].held[i]);
+            }
+        }
+
+        // một lần CAS cho cả lô trên mỗi book; book không đủ thì để từng giỏ tự giữ chỗ
+        LongIntHashMap granted = new LongIntHashMap(demand.size());
+        demand.forEach((bookId, quantity) -> {
+            stockEngine.track(bookId, books.get(bookId).getStockQuantity());
+            if (stockEngine.tryReserve(bookId, quantity)) {
+                granted.put(bookId, quantity);
+            }
+        });
+        for (int c = 0; c < cartIds.length; c++) {
+            if (accepted[c] != null && !reserveContended(accepted[c], granted)) {
+                outcomes[c] = CheckoutOutcome.failure(cartIds[c], new IllegalStateException("Not enough stock"));
+                accepted[c] = null;
+            }
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (CartLines lines : accepted) {
+            if (lines != null) {
+                orders.add(lines.toOrder());
+            }
+        }
+        List<Order> saved;
+        try {
+            saved = orderRepository.createAll(orders);
+        } catch (RuntimeException e) {
+            for (int c = 0; c < cartIds.length; c++) {
+                if (accepted[c] != null) {
+                    release(accepted[c], accepted[c].size());
+                    outcomes[c] = CheckoutOutcome.failure(cartIds[c], e);
+                }
+            }
+            return List.of(outcomes);
+        }
+
+        int next = 0;
+        long recorded = -1;
+        for (int c = 0; c < cartIds.length; c++) {
+            CartLines lines = accepted[c];
+            if (lines == null) {
+                continue;
+            }
+            long orderId = saved.get(next++).getId();
+            outcomes[c] = CheckoutOutcome.success(cartIds[c], orderId);
+            cartRepository.delete(cartIds[c]);
+            recorded = Math.max(recorded, record(lines, orderId));
+        }
+        // một lần chờ fsync cho cả lô
+        stockEngine.awaitDurable(recorded);
+        return List.of(outcomes);
+    }
+
     public void cancelOrder(long orderId) {
+        if (cancelling.putIfAbsent(orderId, Boolean.TRUE) != null) {
+            throw new IllegalStateException("Order is already being cancelled");
+        }
+        try {
+            cancel(orderId);
+        } finally {
+            cancelling.remove(orderId);
+        }
+    }
+
+    private void cancel(long orderId) {
         Order order = orderRepository.findById(orderId);
         if (order == null) {
-            throw new IllegalArgumentException("Order not found");
+            throw new NotFoundException("Order not found");
         }
 
-        Book book = order.getBook();
         // cộng lại số lượng vào kho
-        book.setStockQuantity(book.getStockQuantity() + order.getQuantity());
-        bookRepository.update(book.getId(), book);
+        long recorded = -1;
+        if (order.getBook() != null) {
+            Book book = bookRepository.findById(order.getBook().getId());
+            // như các dòng items: book đã bị xóa thì không còn kho để trả
+            if (book != null) {
+                recorded = restock(book, order.getQuantity(), orderId);
+            }
+        }
+        LongIntHashMap items = order.getItems();
+        if (items != null && !items.isEmpty()) {
+            for (long bookId : items.keys()) {
+                Book book = bookRepository.findById(bookId);
+                // book đã bị xóa thì không còn kho để trả
+                if (book != null) {
+                    recorded = Math.max(recorded, restock(book, items.getOrDefault(bookId, 0), orderId));
+                }
+            }
+        }
 
-        // xóa order
+        // xóa order; chỉ trả về khi các dòng trả kho đã bền
         orderRepository.delete(orderId);
+        stockEngine.awaitDurable(recorded);
     }
 
     public List<Order> viewOrders(long userId) {
         return orderRepository.findByUserId(userId);
     }
+
+    /**
+     * Xem order theo trang: lấy các order có id lớn hơn {@code afterOrderId}, truyền id cuối
+     * của trang trước để lấy trang sau. {@code limit} bị giới hạn bởi {@link #MAX_PAGE_SIZE}.
+     */
+    public List<Order> viewOrders(long userId, long afterOrderId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return orderRepository.findByUserId(userId, afterOrderId, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Gom các dòng của giỏ: dòng đơn kiểu cũ đã có Book, dòng trong items đọc Book qua
+     * {@code books} (dùng chung trong một lô để mỗi book chỉ đọc một lần).
+     */
+    private CartLines linesOf(Cart cart, Map<Long, Book> books) {
+        CartItem cartItem = cart.getCartItem();
+        LongIntHashMap items = cart.getItems();
+        int itemCount = items == null ? 0 : items.size();
+        if (cartItem == null && itemCount == 0) {
+            throw new IllegalStateException("Cart is empty");
+        }
+
+        CartLines lines = new CartLines(cart, itemCount + (cartItem == null ? 0 : 1), itemCount == 0);
+        int n = 0;
+        if (cartItem != null) {
+            lines.books[n] = books.computeIfAbsent(cartItem.getBook().getId(), id -> cartItem.getBook());
+            lines.quantities[n++] = cartItem.getQuantity();
+        }
+        if (itemCount > 0) {
+            for (long bookId : items.keys()) {
+                Book book = books.computeIfAbsent(bookId, bookRepository::findById);
+                if (book == null) {
+                    throw new NotFoundException("Book not found");
+                }
+                lines.books[n] = book;
+                lines.quantities[n++] = items.getOrDefault(bookId, 0);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Giữ chỗ các dòng trên book không được cấp cho cả lô; thất bại thì trả lại mọi
+     * dòng của giỏ, kể cả phần đã được cấp theo lô và phần giỏ đã giữ.
+     */
+    private boolean reserveContended(CartLines lines, LongIntHashMap granted) {
+        for (int i = 0; i < lines.size(); i++) {
+            long bookId = lines.books[i].getId();
+            if (!granted.containsKey(bookId) && !reserveRest(lines, i)) {
+                for (int j = 0; j < lines.size(); j++) {
+                    long reservedBook = lines.books[j].getId();
+                    int reserved = j < i || granted.containsKey(reservedBook) ? lines.quantities[j] : lines.held[j];
+                    if (reserved > 0) {
+                        stockEngine.release(reservedBook, reserved);
+                    }
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lấy phần giỏ đang giữ hàng ({@link StockReservations}) làm phần đã trừ kho của các dòng.
+     */
+    private void claimHolds(long cartId, CartLines lines) {
+        LongIntHashMap wanted = new LongIntHashMap(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            wanted.addTo(lines.books[i].getId(), lines.quantities[i]);
+        }
+        LongIntHashMap claimed = stockReservations.claim(cartId, wanted);
+        if (claimed.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            long bookId = lines.books[i].getId();
+            int taken = Math.min(claimed.getOrDefault(bookId, 0), lines.quantities[i]);
+            lines.held[i] = taken;
+            claimed.addTo(bookId, -taken);
+        }
+    }
+
+    // trừ phần dòng i chưa được giữ sẵn
+    private boolean reserveRest(CartLines lines, int i) {
+        int rest = lines.quantities[i] - lines.held[i];
+        return rest == 0 || stockEngine.tryReserve(lines.books[i].getId(), rest);
+    }
+
+    private long restock(Book book, int quantity, long orderId) {
+        stockEngine.track(book.getId(), book.getStockQuantity());
+        return stockEngine.restock(book.getId(), quantity, StockReason.CANCEL, orderId);
+    }
+
+    /**
+     * @return số thứ tự của dòng sổ cuối cùng
+     */
+    private long record(CartLines lines, long orderId) {
+        long last = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            last = stockEngine.record(lines.books[i].getId(), -lines.quantities[i], StockReason.CHECKOUT, orderId);
+        }
+        return last;
+    }
+
+    /**
+     * Trả lại kho: toàn bộ {@code reserved} dòng đầu đã trừ đủ, các dòng sau chỉ có phần giỏ đã giữ.
+     */
+    private void release(CartLines lines, int reserved) {
+        for (int i = 0; i < lines.size(); i++) {
+            int quantity = i < reserved ? lines.quantities[i] : lines.held[i];
+            if (quantity > 0) {
+                stockEngine.release(lines.books[i].getId(), quantity);
+            }
+        }
+    }
+
+    private static long ownerOf(Cart cart) {
+        return cart.getUser() == null || cart.getUser().getId() == null ? 0L : cart.getUser().getId();
+    }
+
+    private static final class CartLines {
+        final Cart cart;
+        final Book[] books;
+        final int[] quantities;
+        // phần của mỗi dòng đã được trừ kho từ lúc giữ hàng cho giỏ
+        final int[] held;
+        // giỏ chỉ có dòng đơn kiểu cũ
+        final boolean single;
+
+        CartLines(Cart cart, int size, boolean single) {
+            this.cart = cart;
+            this.books = new Book[size];
+            this.quantities = new int[size];
+            this.held = new int[size];
+            this.single = single;
+        }
+
+        int size() {
+            return books.length;
+        }
+
+        Order toOrder() {
+            Order order = new Order();
+            order.setUserId(ownerOf(cart));
+            int total = 0;
+            for (int i = 0; i < size(); i++) {
+                total += quantities[i];
+                if (!single) {
+                    order.getItems().addTo(books[i].getId(), quantities[i]);
+                }
+            }
+            order.setQuantity(total);
+            if (single) {
+                order.setBook(books[0]);
+            }
+            return order;
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package services;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PipelineConfig {
+    /**
+     * Số partition, mỗi partition một ring buffer và một thread ghi; mặc định bằng số CPU.
+     */
+    @Builder.Default
+    int partitions = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Số ô của mỗi ring buffer, làm tròn lên lũy thừa của 2; đầy thì checkout mới bị từ chối.
+     */
+    @Builder.Default
+    int ringSize = 1_024;
+
+    /**
+     * Số checkout tối đa thread ghi gom vào một lần {@link OrderService#checkoutCarts}.
+     */
+    @Builder.Default
+    int batchSize = 64;
+}
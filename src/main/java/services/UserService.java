@@ -3,31 +3,70 @@ package services;
 import models.User;
 import org.springframework.stereotype.Service;
 import repositories.IUserRepository;
+import security.PasswordVerifier;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class UserService {
     IUserRepository repository;
+    PasswordVerifier passwordVerifier;
 
-    public UserService(IUserRepository repository){
+    /**
+     * {@code passwordVerifier} được dùng chung và do người tạo đóng; service không tự tạo pool riêng.
+     */
+    public UserService(IUserRepository repository, PasswordVerifier passwordVerifier){
         this.repository = repository;
+        this.passwordVerifier = passwordVerifier;
     }
 
     public User createUser(User data){
-        if(this.repository.findByEmail(data.getEmail()) != null){
+        // giữ chỗ email trước, rồi mới hash mật khẩu trên pool của PasswordVerifier (không lưu
+        // mật khẩu thô): email trùng bị từ chối mà không tốn một lần PBKDF2
+        User created = this.repository.createIfEmailAbsent(data, user -> {
+            if(user.getPassword() != null){
+                user.setPassword(await(passwordVerifier.hash(user.getPassword())));
+            }
+            return user;
+        });
+        if(created == null){
             throw new IllegalArgumentException("Email already exists");
         }
-        return this.repository.create(data);
+        return created;
     }
 
     public long login(String email, String password){
+        return await(loginAsync(email, password));
+    }
+
+    /**
+     * Đăng nhập không chặn thread gọi: việc verify mật khẩu chạy trên pool của
+     * {@link PasswordVerifier}. Future lỗi với {@link java.util.concurrent.RejectedExecutionException}
+     * khi pool đang quá tải.
+     */
+    public CompletableFuture<Long> loginAsync(String email, String password){
         User user = this.repository.findByEmail(email);
 
         if(user == null){
-            throw new IllegalArgumentException("User not found");
+            return CompletableFuture.failedFuture(new NotFoundException("User not found"));
         }
-        if(!user.getPassword().equals(password)){
-            throw new IllegalArgumentException("Wrong password");
+        return passwordVerifier.verify(password, user.getPassword()).thenApply(matches -> {
+            if(!matches){
+                throw new IllegalArgumentException("Wrong password");
+            }
+            return user.getId();
+        });
+    }
+
+    private static <T> T await(CompletableFuture<T> future){
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw e;
         }
-        return user.getId();
     }
 }
@@ -0,0 +1,30 @@
+package stock;
+
+import lombok.Builder;
+import lombok.Value;
+import persistence.FsyncPolicy;
+
+import java.time.Duration;
+
+@Value
+@Builder
+public class LedgerConfig {
+    /**
+     * Số dòng gần nhất được giữ nguyên khi gộp sổ.
+     */
+    @Builder.Default
+    int retainedEntries = 100_000;
+
+    /**
+     * {@link FsyncPolicy#PER_WRITE} và {@link FsyncPolicy#GROUP_COMMIT} như nhau: thread ghi fsync
+     * sau mỗi lô và người gọi {@link StockLedger#awaitDurable} chờ lô của mình.
+     */
+    @Builder.Default
+    FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+
+    /**
+     * Chu kỳ fsync khi dùng {@link FsyncPolicy#ASYNC}.
+     */
+    @Builder.Default
+    Duration asyncFlushInterval = Duration.ofMillis(100);
+}
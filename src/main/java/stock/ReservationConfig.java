@@ -0,0 +1,22 @@
+package stock;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+@Value
+@Builder
+public class ReservationConfig {
+    /**
+     * Thời gian giữ hàng cho một giỏ, tính từ lần sửa giỏ gần nhất.
+     */
+    @Builder.Default
+    Duration ttl = Duration.ofMinutes(15);
+
+    /**
+     * Độ chi tiết của bánh xe thời gian: giữ chỗ hết hạn trễ tối đa một tick.
+     */
+    @Builder.Default
+    Duration tick = Duration.ofSeconds(1);
+}
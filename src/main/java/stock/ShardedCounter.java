@@ -0,0 +1,158 @@
+package stock;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bộ đếm cho book đang bán chạy: tồn kho được chia thành các phần nhỏ trên nhiều ô (mỗi ô
+ * nằm trên một cache line riêng), thread chỉ CAS trên ô của mình nên các checkout đồng thời
+ * không tranh nhau một biến. Giống {@link java.util.concurrent.atomic.LongAdder} nhưng có sàn:
+ * mỗi ô không bao giờ âm nên tổng cũng không âm.
+ * <p>
+ * Khi ô của mình không đủ, thread vào đường chậm dưới lock: gom toàn bộ các ô, lấy phần cần
+ * nếu tổng đủ, rồi chia đều phần còn lại cho các ô. Chỉ kết luận hết hàng sau khi đã gom hết,
+ * nên không có trường hợp báo hết hàng trong khi ô khác còn hàng (trừ hàng được trả lại đúng
+ * lúc đang gom). Gần hết hàng thì mọi lần trừ đi qua lock, tức tuần tự như bộ đếm thường.
+ */
+final class ShardedCounter implements StockCounter {
+    // 16 int = 64 byte, mỗi ô một cache line
+    private static final int STRIDE = 16;
+
+    private final int mask;
+    private final AtomicIntegerArray cells;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean retired;
+
+    ShardedCounter(int stock, int shards) {
+        int size = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.mask = size - 1;
+        this.cells = new AtomicIntegerArray(size * STRIDE);
+        spread(stock);
+    }
+
+    private int home() {
+        long id = Thread.currentThread().threadId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & mask) * STRIDE;
+    }
+
+    @Override
+    public int get() {
+        if (retired) {
+            return RETIRED;
+        }
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            int value = cells.get(i * STRIDE);
+            if (value == RETIRED) {
+                return RETIRED;
+            }
+            sum += value;
+        }
+        return (int) sum;
+    }
+
+    @Override
+    public boolean tryTake(int quantity) {
+        int cell = home();
+        int current = cells.get(cell);
+        while (current >= quantity) {
+            int witness = cells.compareAndExchange(cell, current, current - quantity);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return rebalanceAndTake(quantity);
+    }
+
+    private boolean rebalanceAndTake(int quantity) {
+        lock.lock();
+        try {
+            if (retired) {
+                return false;
+            }
+            long total = drain();
+            boolean taken = total >= quantity;
+            if (taken) {
+                total -= quantity;
+            }
+            spread((int) total);
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean give(int quantity) {
+        int cell = home();
+        int current = cells.get(cell);
+        while (current != RETIRED) {
+            int witness = cells.compareAndExchange(cell, current, current + quantity);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    @Override
+    public int getAndSet(int stock) {
+        lock.lock();
+        try {
+            if (retired) {
+                return RETIRED;
+            }
+            int previous = (int) drain();
+            spread(stock);
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int retire() {
+        lock.lock();
+        try {
+            if (retired) {
+                return RETIRED;
+            }
+            retired = true;
+            long total = 0;
+            for (int i = 0; i <= mask; i++) {
+                total += cells.getAndSet(i * STRIDE, RETIRED);
+            }
+            return (int) total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Chỉ gọi khi giữ lock và chưa bị thu hồi.
+     */
+    private long drain() {
+        long total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.getAndSet(i * STRIDE, 0);
+        }
+        return total;
+    }
+
+    private void spread(int stock) {
+        int shards = mask + 1;
+        int share = stock / shards;
+        int extra = stock % shards;
+        for (int i = 0; i < shards; i++) {
+            cells.getAndAdd(i * STRIDE, share + (i < extra ? 1 : 0));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package stock;
+
+/**
+ * Bộ đếm tồn kho của một book, không bao giờ âm.
+ * <p>
+ * Bộ đếm có thể bị {@link #retire() thu hồi} khi {@link StockEngine} thay nó bằng bộ đếm khác
+ * (bật/tắt chế độ hàng nóng, xóa book). Sau đó mọi thao tác thất bại và {@link #isRetired()}
+ * trả {@code true}, để người gọi đọc lại bộ đếm mới và thử lại; nhờ vậy không lần trừ hay
+ * cộng nào rơi vào bộ đếm cũ sau khi số dư của nó đã được chuyển đi.
+ */
+interface StockCounter {
+    int RETIRED = Integer.MIN_VALUE;
+
+    /**
+     * @return tồn kho hiện tại, hoặc {@link #RETIRED}
+     */
+    int get();
+
+    /**
+     * @return {@code false} nếu không đủ hàng hoặc bộ đếm đã bị thu hồi
+     */
+    boolean tryTake(int quantity);
+
+    /**
+     * @return {@code false} nếu bộ đếm đã bị thu hồi; khi đó không có gì được cộng
+     */
+    boolean give(int quantity);
+
+    /**
+     * @return tồn kho trước khi ghi đè, hoặc {@link #RETIRED} nếu bộ đếm đã bị thu hồi
+     */
+    int getAndSet(int stock);
+
+    /**
+     * Thu hồi bộ đếm.
+     *
+     * @return số dư tại thời điểm thu hồi, hoặc {@link #RETIRED} nếu đã bị thu hồi trước đó
+     */
+    int retire();
+
+    boolean isRetired();
+}
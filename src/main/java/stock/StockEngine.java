@@ -0,0 +1,302 @@
+package stock;
+
+import models.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import utils.ConcurrentLongObjectMap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Nguồn sự thật về số lượng tồn kho, theo book id.
+ * <p>
+ * Mỗi book có một bộ đếm {@code int} riêng; {@link #tryReserve} và {@link #release}
+ * chỉ là vòng CAS trên bộ đếm đó nên checkout trên các book khác nhau không tranh
+ * chấp nhau, và tồn kho của một book không bao giờ âm. Book đang bán chạy có thể được
+ * {@link #setHot bật chế độ hàng nóng}: bộ đếm được chia thành nhiều ô ({@link ShardedCounter})
+ * để checkout đồng thời trên cùng một book không tranh nhau một biến.
+ * <p>
+ * Bộ đếm được khởi tạo bằng {@link #track} từ {@code Book.stockQuantity} lần đầu
+ * book được chạm tới, hoặc từ {@link StockLedger} khi mở lại; sau đó {@code Book.stockQuantity}
+ * trong repository chỉ còn là tồn kho ban đầu, người đọc lấy giá trị hiện tại qua
+ * {@link #withCurrentStock}.
+ * <p>
+ * Mọi thay đổi đã chốt được ghi vào sổ: {@link #track}, {@link #reset}, {@link #forget},
+ * {@link #restock} tự ghi; {@link #tryReserve} chỉ giữ chỗ, người gọi ghi bằng {@link #record}
+ * khi order được tạo hoặc trả lại bằng {@link #release} nếu bỏ dở.
+ */
+@Component
+public class StockEngine {
+    private final ConcurrentLongObjectMap<StockCounter> counters = new ConcurrentLongObjectMap<>();
+    private final StockLedger ledger;
+    private final int hotShards;
+
+    public StockEngine() {
+        this(new StockLedger());
+    }
+
+    /**
+     * Khôi phục bộ đếm của mọi book có trong {@code ledger}.
+     */
+    @Autowired
+    public StockEngine(StockLedger ledger) {
+        this(ledger, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param hotShards số ô của bộ đếm hàng nóng, làm tròn lên lũy thừa của 2
+     */
+    public StockEngine(StockLedger ledger, int hotShards) {
+        if (hotShards <= 0) {
+            throw new IllegalArgumentException("Hot shards must be positive");
+        }
+        this.ledger = ledger;
+        this.hotShards = hotShards;
+        ledger.balances().forEach((bookId, stock) -> counters.put(bookId, new Counter(stock)));
+    }
+
+    public StockLedger ledger() {
+        return ledger;
+    }
+
+    /**
+     * Bắt đầu theo dõi {@code bookId} với {@code stock} nếu chưa được theo dõi.
+     */
+    public void track(long bookId, int stock) {
+        if (counters.get(bookId) == null && counters.putIfAbsent(bookId, new Counter(stock)) == null) {
+            ledger.append(bookId, stock, StockReason.OPENING, 0L);
+        }
+    }
+
+    /**
+     * Ghi đè tồn kho, dùng khi book được sửa trực tiếp.
+     */
+    public void reset(long bookId, int stock) {
+        while (true) {
+            StockCounter counter = counters.get(bookId);
+            if (counter == null) {
+                if (counters.putIfAbsent(bookId, new Counter(stock)) == null) {
+                    ledger.append(bookId, stock, StockReason.OPENING, 0L);
+                    return;
+                }
+                continue;
+            }
+            int previous = counter.getAndSet(stock);
+            if (previous != StockCounter.RETIRED) {
+                ledger.append(bookId, stock - previous, StockReason.ADJUSTMENT, 0L);
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    public void forget(long bookId) {
+        StockCounter counter = counters.remove(bookId);
+        if (counter != null) {
+            int remaining = counter.retire();
+            if (remaining != StockCounter.RETIRED) {
+                ledger.append(bookId, -remaining, StockReason.REMOVED, 0L);
+            }
+        }
+    }
+
+    public boolean isTracked(long bookId) {
+        return counters.get(bookId) != null;
+    }
+
+    /**
+     * Bật hoặc tắt chế độ hàng nóng cho một book đang được theo dõi. Số dư được chuyển nguyên
+     * sang bộ đếm mới; các thao tác đang chạy trên bộ đếm cũ tự thử lại trên bộ đếm mới.
+     */
+    public void setHot(long bookId, boolean hot) {
+        StockCounter replaced = counters.compute(bookId, (id, current) -> {
+            if (current == null || (current instanceof ShardedCounter) == hot) {
+                return current;
+            }
+            // compute giữ khóa của segment nên forget không thể thu hồi bộ đếm đồng thời
+            int stock = current.retire();
+            return hot ? new ShardedCounter(stock, hotShards) : new Counter(stock);
+        });
+        if (replaced == null) {
+            throw new IllegalStateException("Stock is not tracked for book id: " + bookId);
+        }
+    }
+
+    public boolean isHot(long bookId) {
+        return counters.get(bookId) instanceof ShardedCounter;
+    }
+
+    public int available(long bookId) {
+        while (true) {
+            int stock = counter(bookId).get();
+            if (stock != StockCounter.RETIRED) {
+                return stock;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Trừ {@code quantity} nếu còn đủ hàng.
+     *
+     * @return {@code false} nếu không đủ hàng; khi đó tồn kho không đổi
+     */
+    public boolean tryReserve(long bookId, int quantity) {
+        requireNonNegative(quantity);
+        while (true) {
+            StockCounter counter = counter(bookId);
+            if (counter.tryTake(quantity)) {
+                return true;
+            }
+            if (!counter.isRetired()) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Trả lại {@code quantity} đã giữ chỗ mà chưa được {@link #record} (ví dụ checkout thất bại).
+     */
+    public void release(long bookId, int quantity) {
+        requireNonNegative(quantity);
+        while (!counter(bookId).give(quantity)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Ghi vào sổ một thay đổi đã được áp dụng lên bộ đếm, ví dụ phần đã {@link #tryReserve}
+     * cho một order ({@code delta} âm).
+     *
+     * @return số thứ tự của dòng trong sổ, dùng cho {@link #awaitDurable}
+     */
+    public long record(long bookId, int delta, StockReason reason, long orderId) {
+        return ledger.append(bookId, delta, reason, orderId);
+    }
+
+    /**
+     * Cộng {@code quantity} vào kho và ghi vào sổ, ví dụ khi hủy order hoặc nhập hàng.
+     *
+     * @return số thứ tự của dòng trong sổ, dùng cho {@link #awaitDurable}
+     */
+    public long restock(long bookId, int quantity, StockReason reason, long orderId) {
+        release(bookId, quantity);
+        return ledger.append(bookId, quantity, reason, orderId);
+    }
+
+    /**
+     * Chờ tới khi các dòng sổ tới {@code sequence} đã bền, xem {@link StockLedger#awaitDurable}.
+     */
+    public void awaitDurable(long sequence) {
+        ledger.awaitDurable(sequence);
+    }
+
+    /**
+     * Đặt tồn kho hiện tại vào {@code book} nếu book đang được theo dõi.
+     *
+     * @return chính {@code book}
+     */
+    public Book withCurrentStock(Book book) {
+        if (book != null && book.getId() != null && isTracked(book.getId())) {
+            try {
+                book.setStockQuantity(available(book.getId()));
+            } catch (IllegalStateException e) {
+                // book vừa bị xóa: giữ giá trị trong repository
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Bộ đếm hiện tại; trong lúc bộ đếm đang được thay, vòng thử lại của người gọi có thể còn
+     * thấy bộ đếm cũ đã bị thu hồi một vài lần.
+     */
+    private StockCounter counter(long bookId) {
+        StockCounter counter = counters.get(bookId);
+        if (counter == null) {
+            throw new IllegalStateException("Stock is not tracked for book id: " + bookId);
+        }
+        return counter;
+    }
+
+    private static void requireNonNegative(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+    }
+
+    static final class Counter implements StockCounter {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Counter.class, "value", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        @SuppressWarnings("unused")
+        private volatile int value;
+
+        Counter(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int get() {
+            return value;
+        }
+
+        @Override
+        public boolean tryTake(int quantity) {
+            int current = value;
+            while (current >= quantity) {
+                int witness = (int) VALUE.compareAndExchange(this, current, current - quantity);
+                if (witness == current) {
+                    return true;
+                }
+                current = witness;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean give(int quantity) {
+            int current = value;
+            while (current != RETIRED) {
+                int witness = (int) VALUE.compareAndExchange(this, current, current + quantity);
+                if (witness == current) {
+                    return true;
+                }
+                current = witness;
+            }
+            return false;
+        }
+
+        @Override
+        public int getAndSet(int stock) {
+            int current = value;
+            while (current != RETIRED) {
+                int witness = (int) VALUE.compareAndExchange(this, current, stock);
+                if (witness == current) {
+                    return current;
+                }
+                current = witness;
+            }
+            return RETIRED;
+        }
+
+        @Override
+        public int retire() {
+            return (int) VALUE.getAndSet(this, RETIRED);
+        }
+
+        @Override
+        public boolean isRetired() {
+            return value == RETIRED;
+        }
+    }
+}
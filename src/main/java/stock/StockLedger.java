@@ -0,0 +1,744 @@
+package stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.FsyncPolicy;
+import utils.LongIntHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sổ ghi thêm các thay đổi tồn kho. Mỗi dòng có kích thước cố định {@value #ENTRY_SIZE} byte
+ * {@code [bookId][orderId][time][delta][reason]}, nên một lần đổi tồn kho chỉ là một lần ghi
+ * nối tiếp nhỏ thay vì ghi lại cả {@code Book}. Tồn kho hiện tại của một book là tổng delta
+ * của các dòng của nó; {@link StockEngine} giữ tổng này sẵn trong bộ đếm.
+ * <p>
+ * {@link #append} không lấy lock nào: người ghi giành một ô trong ring buffer cấp phát sẵn bằng
+ * {@code getAndIncrement} rồi đăng ô, giống {@code CheckoutPipeline}. Một thread ghi duy nhất
+ * (chỉ khi sổ có file) gom các ô đã đăng thành lô và ghi xuống file bằng một lần {@code write};
+ * sổ chỉ trong bộ nhớ thì ô được gom khi đọc hoặc khi ring đầy. Ring đầy thì người ghi chờ tới
+ * khi có ô trống. Các hàm đọc gom hết ô đã đăng trước khi đọc nên luôn thấy mọi dòng đã ghi.
+ * <p>
+ * Khi số dòng chưa gộp vượt {@code 2 * retainedEntries}, các dòng cũ hơn
+ * {@code retainedEntries} dòng gần nhất được gộp thành một dòng {@link StockReason#SNAPSHOT}
+ * mỗi book (book đã bị xóa thì bỏ hẳn), nên bộ nhớ và file không lớn dần theo thời gian mà
+ * vẫn giữ lịch sử gần đây để đối soát. Với file, việc gộp chạy ở thread nền trên phần đầu đã
+ * đóng băng của sổ (các dòng chỉ được ghi thêm nên phần này không đổi): file mới được ghi và
+ * fsync ngoài lock, chỉ các dòng đến sau lúc đóng băng được chép thêm trước khi đổi tên đè lên
+ * file cũ.
+ * <p>
+ * Có {@code file} thì mọi dòng được ghi xuống file và được đọc lại khi mở. Với
+ * {@link FsyncPolicy#GROUP_COMMIT} (và {@link FsyncPolicy#PER_WRITE}) thread ghi fsync sau mỗi lô;
+ * {@link #append} trả về số thứ tự của dòng, người gọi cần dòng bền trước khi trả kết quả (ví dụ
+ * checkout, sau khi order đã bền trong write-ahead log) gọi {@link #awaitDurable} với số đó. Với
+ * {@link FsyncPolicy#ASYNC} thread ghi fsync mỗi {@link LedgerConfig#getAsyncFlushInterval()} và
+ * {@link #awaitDurable} không chờ, nên khi sập có thể mất các dòng của khoảng cuối. Ghi file hoặc
+ * fsync lỗi thì các lần {@link #append} và {@link #awaitDurable} sau ném {@link UncheckedIOException}.
+ */
+public class StockLedger implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    static final int ENTRY_SIZE = 32;
+    private static final int MAGIC = 0x53544B31;
+    private static final int HEADER_SIZE = 8;
+    private static final int RING_SIZE = 1 << 12;
+    private static final int BATCH_SIZE = 1 << 10;
+    private static final int SPINS = 1_000;
+    private static final StockReason[] REASONS = StockReason.values();
+
+    private final Path file;
+    private final int retainedEntries;
+    private final FsyncPolicy fsyncPolicy;
+    private final long asyncFlushNanos;
+
+    // ring buffer giữa người ghi và bên gom; ô được đọc khi số thứ tự đăng bằng số thứ tự chờ
+    private final long[] ringBookIds = new long[RING_SIZE];
+    private final long[] ringOrderIds = new long[RING_SIZE];
+    private final long[] ringTimes = new long[RING_SIZE];
+    private final int[] ringDeltas = new int[RING_SIZE];
+    private final byte[] ringReasons = new byte[RING_SIZE];
+    private final AtomicLongArray published = new AtomicLongArray(RING_SIZE);
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed = -1;
+
+    // bên gom: thread ghi, hàm đọc, hoặc người ghi gặp ring đầy khi không có thread ghi
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer batchBuffer = ByteBuffer.allocateDirect(ENTRY_SIZE * BATCH_SIZE);
+    private FileChannel channel;
+    private volatile IOException failure;
+    private Thread writer;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+    private ExecutorService compactor;
+    private volatile boolean compacting;
+
+    // số thứ tự lớn nhất đã fsync; chỉ tăng, người chờ được báo qua durableMonitor
+    private final Object durableMonitor = new Object();
+    private volatile long durable = -1;
+    private long lastForce = System.nanoTime();
+
+    private long[] bookIds = new long[16];
+    private long[] orderIds = new long[16];
+    private long[] times = new long[16];
+    private int[] deltas = new int[16];
+    private byte[] reasons = new byte[16];
+    private int size;
+    // số dòng SNAPSHOT ở đầu, do lần gộp trước tạo ra
+    private int snapshots;
+    // tăng sau mỗi lần gộp; lần gộp có phần đóng băng cũ hơn thì bị bỏ
+    private int compactions;
+
+    /**
+     * Sổ chỉ nằm trong bộ nhớ.
+     */
+    public StockLedger() {
+        this(LedgerConfig.builder().build().getRetainedEntries());
+    }
+
+    public StockLedger(int retainedEntries) {
+        this(null, LedgerConfig.builder().retainedEntries(retainedEntries).build());
+    }
+
+    private StockLedger(Path file, LedgerConfig config) {
+        if (config.getRetainedEntries() <= 0) {
+            throw new IllegalArgumentException("Retained entries must be positive");
+        }
+        this.file = file;
+        this.retainedEntries = config.getRetainedEntries();
+        this.fsyncPolicy = config.getFsyncPolicy();
+        this.asyncFlushNanos = Math.max(1, config.getAsyncFlushInterval().toNanos());
+        for (int i = 0; i < RING_SIZE; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Mở (hoặc tạo) sổ lưu trong {@code file}; dòng cuối bị ghi dở được cắt bỏ.
+     */
+    public static StockLedger open(Path file, LedgerConfig config) throws IOException {
+        StockLedger ledger = new StockLedger(file, config);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        ledger.load();
+        ledger.start();
+        return ledger;
+    }
+
+    public static StockLedger open(Path file, int retainedEntries) throws IOException {
+        return open(file, LedgerConfig.builder().retainedEntries(retainedEntries).build());
+    }
+
+    public static StockLedger open(Path file) throws IOException {
+        return open(file, LedgerConfig.builder().build());
+    }
+
+    private void start() {
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-ledger-compact");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer = new Thread(this::runWriter, "stock-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(channel);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a stock ledger: " + file);
+        }
+        snapshots = header.getInt(4);
+        long complete = (channel.size() - HEADER_SIZE) / ENTRY_SIZE;
+        ByteBuffer chunk = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+        long position = HEADER_SIZE;
+        for (long read = 0; read < complete; ) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), (complete - read) * ENTRY_SIZE));
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, position + chunk.position()) < 0) {
+                    throw new IOException("Unexpected end of stock ledger: " + file);
+                }
+            }
+            chunk.flip();
+            while (chunk.remaining() >= ENTRY_SIZE) {
+                add(chunk.getLong(), chunk.getLong(), chunk.getLong(), chunk.getInt(), (byte) chunk.getInt());
+                read++;
+            }
+            position += chunk.limit();
+        }
+        long end = HEADER_SIZE + complete * ENTRY_SIZE;
+        if (channel.size() > end) {
+            log.warn("Truncating partial entry at the end of {}", file);
+            channel.truncate(end);
+        }
+        channel.position(end);
+    }
+
+    /**
+     * Ghi thêm một dòng mà không lấy lock; dòng được ghi xuống file bởi thread ghi.
+     *
+     * @return số thứ tự của dòng, dùng cho {@link #awaitDurable}
+     * @throws UncheckedIOException khi một lần ghi file trước đó đã lỗi; sổ không nhận thêm dòng nào nữa
+     */
+    public long append(long bookId, int delta, StockReason reason, long orderId) {
+        IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Stock ledger is unusable", failed);
+        }
+        long time = System.currentTimeMillis();
+        long sequence = claimed.getAndIncrement();
+        awaitSlot(sequence);
+        int slot = (int) (sequence & (RING_SIZE - 1));
+        ringBookIds[slot] = bookId;
+        ringOrderIds[slot] = orderId;
+        ringTimes[slot] = time;
+        ringDeltas[slot] = delta;
+        ringReasons[slot] = (byte) reason.ordinal();
+        published.set(slot, sequence);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+        return sequence;
+    }
+
+    /**
+     * Chờ tới khi dòng {@code sequence} và mọi dòng trước nó đã được fsync. Không chờ khi sổ chỉ
+     * nằm trong bộ nhớ, dùng {@link FsyncPolicy#ASYNC} hoặc đã đóng.
+     *
+     * @throws UncheckedIOException khi ghi file hoặc fsync lỗi
+     */
+    public void awaitDurable(long sequence) {
+        if (file == null || fsyncPolicy == FsyncPolicy.ASYNC || durable >= sequence) {
+            return;
+        }
+        synchronized (durableMonitor) {
+            while (durable < sequence) {
+                IOException failed = failure;
+                if (failed != null) {
+                    throw new UncheckedIOException("Stock ledger is unusable", failed);
+                }
+                if (!running) {
+                    return; // dòng ghi sau khi đóng chỉ còn trong bộ nhớ
+                }
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for fsync", e);
+                }
+            }
+        }
+    }
+
+    private void awaitSlot(long sequence) {
+        for (int spins = 0; sequence - consumed > RING_SIZE; spins++) {
+            Thread current = writer;
+            if (current == null || !running) {
+                // không có thread ghi: người ghi tự gom
+                if (lock.tryLock()) {
+                    try {
+                        drainLocked();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } else {
+                LockSupport.unpark(current);
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void runWriter() {
+        int idle = 0;
+        while (running) {
+            int n;
+            lock.lock();
+            try {
+                n = drainLocked();
+            } finally {
+                lock.unlock();
+            }
+            if (fsyncPolicy == FsyncPolicy.ASYNC && System.nanoTime() - lastForce >= asyncFlushNanos) {
+                lock.lock();
+                try {
+                    forceLocked();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (n > 0) {
+                idle = 0;
+            } else if (++idle < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                sleeping = true;
+                if (!hasNext() && running) {
+                    if (fsyncPolicy == FsyncPolicy.ASYNC) {
+                        LockSupport.parkNanos(this, asyncFlushNanos);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    private boolean hasNext() {
+        long next = consumed + 1;
+        return published.get((int) (next & (RING_SIZE - 1))) == next;
+    }
+
+    /**
+     * Gom tối đa {@value #BATCH_SIZE} ô đã đăng liên tiếp vào sổ, ghi chúng xuống file bằng một
+     * lần ghi rồi trả ô lại cho người ghi. Chỉ gọi khi giữ {@code lock}.
+     *
+     * @return số dòng đã gom
+     */
+    private int drainLocked() {
+        long next = consumed + 1;
+        boolean toFile = channel != null && failure == null;
+        batchBuffer.clear();
+        int n = 0;
+        while (n < BATCH_SIZE) {
+            int slot = (int) ((next + n) & (RING_SIZE - 1));
+            if (published.get(slot) != next + n) {
+                break;
+            }
+            add(ringBookIds[slot], ringOrderIds[slot], ringTimes[slot], ringDeltas[slot], ringReasons[slot]);
+            if (toFile) {
+                putEntry(batchBuffer, ringBookIds[slot], ringOrderIds[slot], ringTimes[slot],
+                        ringDeltas[slot], ringReasons[slot]);
+            }
+            n++;
+        }
+        if (n == 0) {
+            return 0;
+        }
+        consumed = next + n - 1;
+        if (toFile) {
+            try {
+                batchBuffer.flip();
+                while (batchBuffer.hasRemaining()) {
+                    channel.write(batchBuffer);
+                }
+                if (fsyncPolicy != FsyncPolicy.ASYNC) {
+                    forceLocked();
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        if (!compacting && size - snapshots >= 2 * retainedEntries) {
+            compacting = true;
+            scheduleCompaction();
+        }
+        return n;
+    }
+
+    /**
+     * fsync mọi dòng đã ghi xuống file rồi báo người đang chờ. Chỉ gọi khi giữ {@code lock}.
+     */
+    private void forceLocked() {
+        lastForce = System.nanoTime();
+        if (channel == null || failure != null) {
+            return;
+        }
+        long target = consumed;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (durable < target) {
+            durable = target;
+            synchronized (durableMonitor) {
+                durableMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("Could not write stock ledger {}", file, e);
+        failure = e;
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void drainAll() {
+        while (drainLocked() == BATCH_SIZE) {
+            // còn ô đã đăng
+        }
+    }
+
+    /**
+     * @return tồn kho của mọi book có trong sổ (book đã bị xóa có tồn kho 0 cho tới lần gộp sau)
+     */
+    public LongIntHashMap balances() {
+        lock.lock();
+        try {
+            drainAll();
+            LongIntHashMap balances = new LongIntHashMap();
+            for (int i = 0; i < size; i++) {
+                balances.addTo(bookIds[i], deltas[i]);
+            }
+            return balances;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return các dòng của {@code bookId} còn trong sổ, cũ trước; dòng đầu có thể là {@link StockReason#SNAPSHOT}
+     */
+    public List<StockMovement> history(long bookId) {
+        lock.lock();
+        try {
+            drainAll();
+            List<StockMovement> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (bookIds[i] == bookId) {
+                    result.add(new StockMovement(bookId, deltas[i], REASONS[reasons[i]], orderIds[i], times[i]));
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return số dòng đang giữ, kể cả dòng {@link StockReason#SNAPSHOT}
+     */
+    public int size() {
+        lock.lock();
+        try {
+            drainAll();
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gộp ngay mọi dòng trừ {@code retainedEntries} dòng gần nhất; chờ lần gộp nền đang chạy xong trước.
+     */
+    public void compact() {
+        Future<?> done;
+        lock.lock();
+        try {
+            IOException failed = failure;
+            if (failed != null) {
+                throw new UncheckedIOException("Stock ledger is unusable", failed);
+            }
+            drainAll();
+            if (compactor == null || compactor.isShutdown()) {
+                compactSegment();
+                return;
+            }
+            done = compactor.submit(this::compactSegment);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Stock ledger compaction failed", e.getCause());
+        }
+    }
+
+    // chỉ gọi khi giữ lock
+    private void scheduleCompaction() {
+        if (compactor != null) {
+            try {
+                compactor.execute(this::compactSegment);
+                return;
+            } catch (RejectedExecutionException e) {
+                // sổ đang đóng: gộp ngay trên thread hiện tại
+            }
+        }
+        compactSegment();
+    }
+
+    /**
+     * Gộp phần đầu đã đóng băng của sổ. Với file, file mới được ghi và fsync ngoài lock; chỉ
+     * các dòng đến sau lúc đóng băng được chép thêm dưới lock trước khi đổi file.
+     */
+    private void compactSegment() {
+        try {
+            long[] frozenBookIds;
+            long[] frozenOrderIds;
+            long[] frozenTimes;
+            int[] frozenDeltas;
+            byte[] frozenReasons;
+            int folded;
+            int frozen;
+            boolean toFile;
+            int generation;
+            lock.lock();
+            try {
+                folded = size - retainedEntries;
+                if (folded <= snapshots) {
+                    return;
+                }
+                // add chỉ ghi vào ô >= size hoặc sang mảng mới, nên [0, frozen) của các mảng này không đổi
+                frozenBookIds = bookIds;
+                frozenOrderIds = orderIds;
+                frozenTimes = times;
+                frozenDeltas = deltas;
+                frozenReasons = reasons;
+                frozen = size;
+                generation = compactions;
+                toFile = channel != null && failure == null;
+            } finally {
+                lock.unlock();
+            }
+
+            LongIntHashMap totals = new LongIntHashMap();
+            // book mà dòng cuối trong phần gộp là REMOVED và không còn dòng nào sau đó thì bị bỏ;
+            // dòng đến sau lúc đóng băng có thể làm sống lại book, khi đó tổng bị bỏ vẫn bằng 0
+            LongIntHashMap removed = new LongIntHashMap();
+            for (int i = 0; i < folded; i++) {
+                totals.addTo(frozenBookIds[i], frozenDeltas[i]);
+                if (frozenReasons[i] == StockReason.REMOVED.ordinal()) {
+                    removed.put(frozenBookIds[i], 1);
+                } else {
+                    removed.remove(frozenBookIds[i]);
+                }
+            }
+            for (int i = folded; i < frozen; i++) {
+                removed.remove(frozenBookIds[i]);
+            }
+            long[] books = totals.keys();
+            Arrays.sort(books);
+            int kept = 0;
+            for (long bookId : books) {
+                if (!removed.containsKey(bookId)) {
+                    books[kept++] = bookId;
+                }
+            }
+            long now = System.currentTimeMillis();
+
+            Path temp = toFile ? file.resolveSibling(file.getFileName() + ".compact") : null;
+            try (FileChannel out = toFile ? FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) : null) {
+                if (out != null) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(kept).flip();
+                    out.write(header);
+                    ByteBuffer chunk = ByteBuffer.allocateDirect(ENTRY_SIZE * BATCH_SIZE);
+                    for (int i = 0; i < kept; i++) {
+                        putEntry(chunk, books[i], 0L, now, totals.getOrDefault(books[i], 0),
+                                StockReason.SNAPSHOT.ordinal());
+                        writeIfFull(out, chunk);
+                    }
+                    for (int i = folded; i < frozen; i++) {
+                        putEntry(chunk, frozenBookIds[i], frozenOrderIds[i], frozenTimes[i], frozenDeltas[i],
+                                frozenReasons[i]);
+                        writeIfFull(out, chunk);
+                    }
+                    writeAll(out, chunk);
+                    out.force(true);
+                }
+
+                lock.lock();
+                try {
+                    if (generation != compactions) {
+                        return;
+                    }
+                    if (out != null) {
+                        ByteBuffer chunk = ByteBuffer.allocateDirect(ENTRY_SIZE * BATCH_SIZE);
+                        for (int i = frozen; i < size; i++) {
+                            putEntry(chunk, bookIds[i], orderIds[i], times[i], deltas[i], reasons[i]);
+                            writeIfFull(out, chunk);
+                        }
+                        writeAll(out, chunk);
+                        // các dòng này có thể đã bền trong file cũ
+                        out.force(false);
+                        replaceFile(temp);
+                    }
+                    int newSize = kept + size - folded;
+                    long[] newBookIds = new long[Math.max(16, newSize * 2)];
+                    long[] newOrderIds = new long[newBookIds.length];
+                    long[] newTimes = new long[newBookIds.length];
+                    int[] newDeltas = new int[newBookIds.length];
+                    byte[] newReasons = new byte[newBookIds.length];
+                    for (int i = 0; i < kept; i++) {
+                        newBookIds[i] = books[i];
+                        newTimes[i] = now;
+                        newDeltas[i] = totals.getOrDefault(books[i], 0);
+                        newReasons[i] = (byte) StockReason.SNAPSHOT.ordinal();
+                    }
+                    System.arraycopy(bookIds, folded, newBookIds, kept, size - folded);
+                    System.arraycopy(orderIds, folded, newOrderIds, kept, size - folded);
+                    System.arraycopy(times, folded, newTimes, kept, size - folded);
+                    System.arraycopy(deltas, folded, newDeltas, kept, size - folded);
+                    System.arraycopy(reasons, folded, newReasons, kept, size - folded);
+                    bookIds = newBookIds;
+                    orderIds = newOrderIds;
+                    times = newTimes;
+                    deltas = newDeltas;
+                    reasons = newReasons;
+                    size = newSize;
+                    snapshots = kept;
+                    compactions++;
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                // file cũ vẫn nguyên vẹn: giữ nguyên các dòng, lần gộp sau thử lại
+                log.warn("Could not compact stock ledger {}", file, e);
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    // chỉ gọi khi giữ lock
+    private void replaceFile(Path temp) throws IOException {
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+
+    private static void writeIfFull(FileChannel out, ByteBuffer chunk) throws IOException {
+        if (!chunk.hasRemaining()) {
+            writeAll(out, chunk);
+        }
+    }
+
+    private static void writeAll(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            out.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    private void add(long bookId, long orderId, long time, int delta, byte reason) {
+        if (size == bookIds.length) {
+            int capacity = size << 1;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            times = Arrays.copyOf(times, capacity);
+            deltas = Arrays.copyOf(deltas, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+        }
+        bookIds[size] = bookId;
+        orderIds[size] = orderId;
+        times[size] = time;
+        deltas[size] = delta;
+        reasons[size++] = reason;
+    }
+
+    private static void putEntry(ByteBuffer buffer, long bookId, long orderId, long time, int delta, int reason) {
+        buffer.putLong(bookId).putLong(orderId).putLong(time).putInt(delta).putInt(reason);
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(0).flip();
+        channel.write(header, 0);
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Ghi xuống file mọi dòng đã {@link #append} trước lời gọi này rồi ép chúng xuống đĩa, kể cả
+     * với {@link FsyncPolicy#ASYNC}.
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            drainAll();
+            forceLocked();
+            IOException failed = failure;
+            if (failed != null) {
+                throw new IOException("Stock ledger is unusable", failed);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Dừng thread ghi, chờ lần gộp nền đang chạy, ghi nốt các dòng còn trong ring rồi đóng file.
+     * Dòng ghi thêm sau đó chỉ còn trong bộ nhớ.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Thread current = writer;
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                if (!compactor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("Stock ledger compaction of {} is still running", file);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            drainAll();
+            forceLocked();
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+            synchronized (durableMonitor) {
+                durableMonitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package stock;
+
+/**
+ * Một dòng của {@link StockLedger}.
+ *
+ * @param orderId order gây ra thay đổi, {@code 0} nếu không có
+ * @param time    thời điểm ghi, epoch millis
+ */
+public record StockMovement(long bookId, int delta, StockReason reason, long orderId, long time) {
+}
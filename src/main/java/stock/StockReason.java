@@ -0,0 +1,17 @@
+package stock;
+
+/**
+ * Lý do của một dòng trong {@link StockLedger}.
+ */
+public enum StockReason {
+    /** Tồn kho ban đầu khi book bắt đầu được theo dõi. */
+    OPENING,
+    CHECKOUT,
+    CANCEL,
+    /** Nhập/xuất kho thủ công hoặc sửa book. */
+    ADJUSTMENT,
+    /** Book bị xóa; delta đưa tồn kho về 0. */
+    REMOVED,
+    /** Tổng của các dòng cũ của một book, do {@link StockLedger#compact()} tạo ra. */
+    SNAPSHOT
+}
@@ -0,0 +1,288 @@
+package stock;
+
+import utils.ConcurrentLongObjectMap;
+import utils.LongIntHashMap;
+import utils.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Giữ hàng cho giỏ trong một thời gian giới hạn: thêm sách vào giỏ trừ luôn tồn kho trong
+ * {@link StockEngine}, nên checkout không còn thất bại muộn vì hết hàng. Giữ chỗ không được
+ * ghi vào {@link StockLedger}; checkout chốt nó vào sổ như một lần giữ chỗ bình thường.
+ * <p>
+ * Mỗi giỏ có một hạn, được gia hạn mỗi lần giỏ được sửa. Hạn được quản lý bằng
+ * {@link TimingWheel} nên thêm, gia hạn, hủy và hết hạn đều O(1) mỗi giỏ, không có lần quét
+ * toàn bộ định kỳ. Giỏ hết hạn được trả hàng về kho nhưng vẫn giữ nguyên các dòng; checkout sau
+ * đó phải giành lại hàng như khi chưa giữ chỗ.
+ * <p>
+ * Hạn được kiểm tra ở đầu mỗi thao tác và, sau {@link #start()}, bởi một thread nền chạy mỗi tick.
+ */
+public class StockReservations implements AutoCloseable {
+    private final StockEngine stockEngine;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final ConcurrentLongObjectMap<Hold> holds = new ConcurrentLongObjectMap<>();
+
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimingWheel<Hold> wheel;
+    private volatile long advancedTick;
+    private volatile ScheduledExecutorService expiry;
+
+    public StockReservations(StockEngine stockEngine) {
+        this(stockEngine, ReservationConfig.builder().build(), System::currentTimeMillis);
+    }
+
+    public StockReservations(StockEngine stockEngine, ReservationConfig config, LongSupplier clock) {
+        if (config.getTtl().isNegative() || config.getTick().toMillis() <= 0) {
+            throw new IllegalArgumentException("Reservation ttl must not be negative and tick must be positive");
+        }
+        this.stockEngine = stockEngine;
+        this.ttlMillis = config.getTtl().toMillis();
+        this.tickMillis = config.getTick().toMillis();
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.wheel = new TimingWheel<>(tickMillis, now);
+        this.advancedTick = now / tickMillis;
+    }
+
+    /**
+     * Chạy thread nền trả hàng của các giỏ hết hạn mỗi tick.
+     */
+    public void start() {
+        if (expiry != null) {
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::expire, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        expiry = executor;
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = expiry;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Đặt số lượng giữ cho {@code bookId} trong giỏ về {@code quantity}: giữ thêm tối đa phần còn
+     * trong kho, hoặc trả lại phần dư. Hạn của giỏ được gia hạn. Book phải đang được
+     * {@link StockEngine#track theo dõi}.
+     *
+     * @return số lượng thực sự được giữ, không vượt quá {@code quantity}
+     */
+    public int hold(long cartId, long bookId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+        expire();
+        while (true) {
+            Hold hold = holds.computeIfAbsent(cartId, Hold::new);
+            hold.lock.lock();
+            try {
+                if (hold.closed) {
+                    continue; // vừa hết hạn hoặc bị checkout lấy, thử với giữ chỗ mới
+                }
+                int current = hold.items.getOrDefault(bookId, 0);
+                int held = current;
+                if (quantity > current) {
+                    held += reserveUpTo(bookId, quantity - current);
+                } else if (quantity < current) {
+                    stockEngine.release(bookId, current - quantity);
+                    held = quantity;
+                }
+                if (held > 0) {
+                    hold.items.put(bookId, held);
+                } else {
+                    hold.items.remove(bookId);
+                }
+                if (hold.items.isEmpty()) {
+                    discard(hold);
+                } else {
+                    touch(hold);
+                }
+                return held;
+            } finally {
+                hold.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Trả lại hàng đang giữ cho {@code bookId} trong giỏ.
+     */
+    public void release(long cartId, long bookId) {
+        if (holds.get(cartId) != null) {
+            hold(cartId, bookId, 0);
+        }
+    }
+
+    /**
+     * @return số lượng đang giữ cho {@code bookId} trong giỏ
+     */
+    public int held(long cartId, long bookId) {
+        Hold hold = holds.get(cartId);
+        if (hold == null) {
+            return 0;
+        }
+        hold.lock.lock();
+        try {
+            return hold.closed ? 0 : hold.items.getOrDefault(bookId, 0);
+        } finally {
+            hold.lock.unlock();
+        }
+    }
+
+    /**
+     * Chuyển giữ chỗ của giỏ cho checkout: mỗi book giữ lại tối đa {@code wanted} làm phần đã
+     * trừ kho, phần dư trả về kho. Giỏ không còn giữ chỗ sau lời gọi này; người gọi chịu trách
+     * nhiệm {@link StockEngine#record chốt} hoặc {@link StockEngine#release trả lại} phần nhận được.
+     *
+     * @return số lượng đã trừ sẵn theo book, có thể rỗng
+     */
+    public LongIntHashMap claim(long cartId, LongIntHashMap wanted) {
+        LongIntHashMap claimed = new LongIntHashMap(wanted.size());
+        Hold hold = holds.get(cartId);
+        if (hold == null) {
+            return claimed;
+        }
+        hold.lock.lock();
+        try {
+            if (hold.closed) {
+                return claimed;
+            }
+            discard(hold);
+            hold.items.forEach((bookId, quantity) -> {
+                int taken = Math.min(quantity, wanted.getOrDefault(bookId, 0));
+                if (taken > 0) {
+                    claimed.put(bookId, taken);
+                }
+                if (quantity > taken) {
+                    releaseQuietly(bookId, quantity - taken);
+                }
+            });
+            return claimed;
+        } finally {
+            hold.lock.unlock();
+        }
+    }
+
+    /**
+     * Trả hàng của các giỏ đã hết hạn.
+     *
+     * @return số giỏ hết hạn
+     */
+    public int expire() {
+        long now = clock.getAsLong();
+        if (now / tickMillis <= advancedTick) {
+            return 0;
+        }
+        List<Hold> fired = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            wheel.advance(now, fired::add);
+            advancedTick = Math.max(advancedTick, now / tickMillis);
+        } finally {
+            wheelLock.unlock();
+        }
+        int expired = 0;
+        for (Hold hold : fired) {
+            hold.lock.lock();
+            try {
+                // được gia hạn ngay sau khi rời bánh xe: touch đã hẹn lại
+                if (hold.closed || hold.deadline > now) {
+                    continue;
+                }
+                hold.closed = true;
+                holds.compute(hold.cartId, (id, current) -> current == hold ? null : current);
+                hold.items.forEach(this::releaseQuietly);
+                expired++;
+            } finally {
+                hold.lock.unlock();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return số giỏ đang giữ hàng
+     */
+    public int size() {
+        return holds.size();
+    }
+
+    private int reserveUpTo(long bookId, int wanted) {
+        while (true) {
+            int quantity = Math.min(wanted, stockEngine.available(bookId));
+            if (quantity <= 0) {
+                return 0;
+            }
+            if (stockEngine.tryReserve(bookId, quantity)) {
+                return quantity;
+            }
+        }
+    }
+
+    private void releaseQuietly(long bookId, int quantity) {
+        try {
+            stockEngine.release(bookId, quantity);
+        } catch (IllegalStateException e) {
+            // book đã bị xóa, không còn kho để trả
+        }
+    }
+
+    // chỉ gọi khi giữ lock của hold
+    private void touch(Hold hold) {
+        hold.deadline = clock.getAsLong() + ttlMillis;
+        wheelLock.lock();
+        try {
+            if (hold.timer == null) {
+                hold.timer = wheel.schedule(hold, hold.deadline);
+            } else {
+                wheel.reschedule(hold.timer, hold.deadline);
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    // chỉ gọi khi giữ lock của hold
+    private void discard(Hold hold) {
+        hold.closed = true;
+        holds.compute(hold.cartId, (id, current) -> current == hold ? null : current);
+        if (hold.timer != null) {
+            wheelLock.lock();
+            try {
+                wheel.cancel(hold.timer);
+            } finally {
+                wheelLock.unlock();
+            }
+        }
+    }
+
+    private static final class Hold {
+        final long cartId;
+        final ReentrantLock lock = new ReentrantLock();
+        final LongIntHashMap items = new LongIntHashMap(4);
+        TimingWheel.Timer<Hold> timer;
+        long deadline;
+        boolean closed;
+
+        Hold(long cartId) {
+            this.cartId = cartId;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * File được map vào bộ nhớ theo từng segment kích thước {@code 2^segmentBits} byte.
+ * <p>
+ * Segment được map khi lần đầu truy cập, nên file có thể lớn hơn giới hạn 2GB của
+ * một {@link MappedByteBuffer} và tự mở rộng khi ghi ra ngoài phần đã map. Giá trị
+ * có độ rộng cố định phải được căn theo kích thước của nó để không nằm vắt qua hai
+ * segment; mảng byte thì có thể vắt qua.
+ * <p>
+ * Các thao tác đọc/ghi dùng vị trí tuyệt đối nên không có trạng thái chung; việc
+ * đồng bộ giữa các luồng là trách nhiệm của lớp gọi.
+ */
+public class MappedFile implements Closeable {
+    private final FileChannel channel;
+    private final int segmentBits;
+    private final long segmentSize;
+    private final long segmentMask;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    public MappedFile(Path path, int segmentBits) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentBits = segmentBits;
+        this.segmentSize = 1L << segmentBits;
+        this.segmentMask = segmentSize - 1;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    private MappedByteBuffer segment(long position) {
+        int index = (int) (position >>> segmentBits);
+        MappedByteBuffer[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return map(index);
+    }
+
+    private synchronized MappedByteBuffer map(int index) {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) index << segmentBits, segmentSize);
+            MappedByteBuffer[] grown = index < current.length
+                    ? current.clone()
+                    : Arrays.copyOf(current, index + 1);
+            grown[index] = buffer;
+            segments = grown;
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int offset(long position) {
+        return (int) (position & segmentMask);
+    }
+
+    public byte getByte(long position) {
+        return segment(position).get(offset(position));
+    }
+
+    public void putByte(long position, byte value) {
+        segment(position).put(offset(position), value);
+    }
+
+    public int getInt(long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    public void putInt(long position, int value) {
+        segment(position).putInt(offset(position), value);
+    }
+
+    public long getLong(long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    public void putLong(long position, long value) {
+        segment(position).putLong(offset(position), value);
+    }
+
+    public double getDouble(long position) {
+        return segment(position).getDouble(offset(position));
+    }
+
+    public void putDouble(long position, double value) {
+        segment(position).putDouble(offset(position), value);
+    }
+
+    public void read(long position, byte[] target) {
+        int done = 0;
+        while (done < target.length) {
+            long at = position + done;
+            int chunk = (int) Math.min(target.length - done, segmentSize - offset(at));
+            segment(at).get(offset(at), target, done, chunk);
+            done += chunk;
+        }
+    }
+
+    public void write(long position, byte[] source) {
+        int done = 0;
+        while (done < source.length) {
+            long at = position + done;
+            int chunk = (int) Math.min(source.length - done, segmentSize - offset(at));
+            segment(at).put(offset(at), source, done, chunk);
+            done += chunk;
+        }
+    }
+
+    /**
+     * Ghi các trang đã thay đổi xuống đĩa.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Ghi các trang đã thay đổi xuống đĩa rồi đóng file. Các vùng đã map không được bỏ map ngay:
+     * {@link MappedByteBuffer} chỉ được giải phóng khi bị GC thu hồi (bỏ map tường minh cần
+     * {@code Arena}, vẫn là preview ở Java 21), nên bộ nhớ ảo của chúng còn tới lúc đó.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        segments = new MappedByteBuffer[0];
+        channel.close();
+    }
+}
@@ -0,0 +1,373 @@
+package utils;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Map khóa {@code long} nguyên thủy, an toàn đa luồng.
+ * <p>
+ * Dữ liệu được chia thành nhiều segment (lock striping), mỗi segment là một bảng
+ * open-addressing (linear probing) với mảng {@code long[]} cho khóa, nên tra cứu
+ * không phải boxing {@code Long}. Đọc dùng optimistic read của {@link StampedLock},
+ * chỉ rơi về read lock khi có ghi đồng thời trên cùng segment.
+ * <p>
+ * Không chấp nhận giá trị {@code null}. Các hàm callback ({@link #compute},
+ * {@link #computeIfAbsent}) chạy trong khi giữ lock của segment và không được gọi
+ * ngược lại vào chính map này.
+ */
+public class ConcurrentLongObjectMap<V> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int MAX_SEGMENTS = 256;
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+
+    public ConcurrentLongObjectMap() {
+        this(defaultConcurrency());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLongObjectMap(int concurrency) {
+        int count = 1;
+        while (count < concurrency && count < MAX_SEGMENTS) {
+            count <<= 1;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(DEFAULT_INITIAL_CAPACITY);
+        }
+        segmentMask = count - 1;
+    }
+
+    private static int defaultConcurrency() {
+        return Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 56) & segmentMask];
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).get(key, (int) hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = mix(key);
+        return segmentFor(hash).put(key, (int) hash, value, false);
+    }
+
+    /**
+     * @return giá trị đang có nếu khóa đã tồn tại, ngược lại {@code null} (và giá trị mới được thêm)
+     */
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = mix(key);
+        return segmentFor(hash).put(key, (int) hash, value, true);
+    }
+
+    public V remove(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).remove(key, (int) hash);
+    }
+
+    /**
+     * Tính lại giá trị của khóa một cách nguyên tử. Trả về {@code null} từ hàm sẽ xóa khóa.
+     */
+    public V compute(long key, Remapping<V> remapping) {
+        long hash = mix(key);
+        return segmentFor(hash).compute(key, (int) hash, remapping);
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        return compute(key, (k, old) -> old != null ? old : factory.apply(k));
+    }
+
+    /**
+     * Số phần tử; chỉ là ước lượng khi đang có ghi đồng thời.
+     */
+    public int size() {
+        int total = 0;
+        for (Segment<V> segment : segments) {
+            total += segment.size;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Duyệt toàn bộ phần tử. Mỗi segment được chụp lại dưới read lock rồi mới gọi
+     * {@code action}, nên {@code action} có thể ghi vào map mà không bị deadlock.
+     */
+    public void forEach(EntryConsumer<V> action) {
+        for (Segment<V> segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Remapping<V> {
+        V apply(long key, V oldValue);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private Table table;
+        private volatile int size;
+        private int threshold;
+
+        Segment(int capacity) {
+            table = new Table(capacity);
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                Object value = find(table, key, hash);
+                if (lock.validate(stamp)) {
+                    return (V) value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return (V) find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static Object find(Table t, long key, int hash) {
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int i = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * @return vị trí của khóa, hoặc {@code -(slot trống) - 1} nếu chưa có
+         */
+        private static int indexOf(Table t, long key, int hash) {
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int i = hash & mask;
+            while (true) {
+                if (values[i] == null) {
+                    return -i - 1;
+                }
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, int hash, V value, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(table, key, hash);
+                if (index >= 0) {
+                    V old = (V) table.values[index];
+                    if (!onlyIfAbsent) {
+                        table.values[index] = value;
+                    }
+                    return old;
+                }
+                insertAt(-index - 1, key, value);
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(table, key, hash);
+                if (index < 0) {
+                    return null;
+                }
+                V old = (V) table.values[index];
+                deleteAt(index);
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V compute(long key, int hash, Remapping<V> remapping) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(table, key, hash);
+                V old = index >= 0 ? (V) table.values[index] : null;
+                V updated = remapping.apply(key, old);
+                if (updated == null) {
+                    if (index >= 0) {
+                        deleteAt(index);
+                    }
+                } else if (index >= 0) {
+                    table.values[index] = updated;
+                } else {
+                    insertAt(-index - 1, key, updated);
+                }
+                return updated;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void insertAt(int slot, long key, Object value) {
+            table.keys[slot] = key;
+            table.values[slot] = value;
+            size = size + 1;
+            if (size > threshold) {
+                resize();
+            }
+        }
+
+        /**
+         * Xóa theo kiểu backward-shift để không cần tombstone.
+         */
+        private void deleteAt(int slot) {
+            long[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                if (values[i] == null) {
+                    break;
+                }
+                int ideal = (int) mix(keys[i]) & mask;
+                boolean movable = hole <= i
+                        ? (ideal <= hole || ideal > i)
+                        : (ideal <= hole && ideal > i);
+                if (movable) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            values[hole] = null;
+            size = size - 1;
+        }
+
+        private void resize() {
+            Table old = table;
+            Table grown = new Table(old.keys.length << 1);
+            int mask = grown.keys.length - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                Object value = old.values[i];
+                if (value == null) {
+                    continue;
+                }
+                int j = (int) mix(old.keys[i]) & mask;
+                while (grown.values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                grown.keys[j] = old.keys[i];
+                grown.values[j] = value;
+            }
+            table = grown;
+            threshold = (int) (grown.keys.length * LOAD_FACTOR);
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(EntryConsumer<V> action) {
+            long[] keys;
+            Object[] values;
+            int count;
+            long stamp = lock.readLock();
+            try {
+                count = size;
+                keys = new long[count];
+                values = new Object[count];
+                int n = 0;
+                Table t = table;
+                for (int i = 0; i < t.values.length && n < count; i++) {
+                    if (t.values[i] != null) {
+                        keys[n] = t.keys[i];
+                        values[n] = t.values[i];
+                        n++;
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            for (int i = 0; i < count; i++) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = new Table(DEFAULT_INITIAL_CAPACITY);
+                threshold = (int) (DEFAULT_INITIAL_CAPACITY * LOAD_FACTOR);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package utils;
+
+/**
+ * Count-min sketch 4 bit ước lượng tần suất truy cập của khóa {@code long}, KHÔNG an toàn
+ * đa luồng. Sau mỗi {@code 10 * maximumSize} lần tăng, mọi bộ đếm bị chia đôi để tần suất
+ * cũ phai dần (aging), nên khóa từng nóng nhưng đã nguội sẽ bị thay thế.
+ */
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+    };
+
+    private final long[] table;
+    private final int counterMask;
+    private final int rowLongs;
+    private final int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int maximumSize) {
+        int counters = 16;
+        while (counters < maximumSize && counters < (1 << 30)) {
+            counters <<= 1;
+        }
+        counterMask = counters - 1;
+        rowLongs = counters >>> 4;
+        table = new long[rowLongs * DEPTH];
+        sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, maximumSize));
+    }
+
+    /**
+     * @return tần suất ước lượng, từ 0 đến 15
+     */
+    public int frequency(long key) {
+        int frequency = 15;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterOf(key, row);
+            long word = table[row * rowLongs + (counter >>> 4)];
+            frequency = Math.min(frequency, (int) ((word >>> ((counter & 15) << 2)) & 0xF));
+        }
+        return frequency;
+    }
+
+    public void increment(long key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterOf(key, row);
+            int index = row * rowLongs + (counter >>> 4);
+            int shift = (counter & 15) << 2;
+            if (((table[index] >>> shift) & 0xF) != 0xF) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int counterOf(long key, int row) {
+        long h = (key ^ SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 31;
+        return (int) h & counterMask;
+    }
+}
@@ -0,0 +1,205 @@
+package utils;
+
+import java.util.function.Consumer;
+
+/**
+ * Bánh xe thời gian phân cấp (hierarchical timing wheel) cho rất nhiều hạn chót, KHÔNG an toàn
+ * đa luồng.
+ * <p>
+ * Thời gian được chia thành tick {@code tickMillis}. Có {@value #LEVELS} tầng, mỗi tầng
+ * {@value #SLOTS} ô; ô ở tầng {@code L} chứa các timer có hạn trong một khoảng dài
+ * {@code 64^L} tick. Mỗi ô là danh sách liên kết đôi nên {@link #schedule}, {@link #reschedule}
+ * và {@link #cancel} đều O(1). Khi tầng dưới quay hết một vòng, ô kế tiếp của tầng trên được đổ
+ * xuống (cascade); mỗi timer bị đổ xuống tối đa {@value #LEVELS} lần nên {@link #advance} không
+ * bao giờ phải duyệt toàn bộ timer. Với tick 1 giây, bốn tầng phủ khoảng 194 ngày; hạn xa hơn được
+ * giữ ở ô cuối và đặt lại mỗi lần ô đó được đổ xuống.
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    // LEVELS * SLOTS node đầu (sentinel) của các danh sách vòng
+    private final Timer<T>[] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.slots = new Timer[LEVELS * SLOTS];
+        for (int i = 0; i < slots.length; i++) {
+            Timer<T> head = new Timer<>(null);
+            head.prev = head;
+            head.next = head;
+            slots[i] = head;
+        }
+    }
+
+    /**
+     * Hẹn {@code value} hết hạn tại {@code deadlineMillis}; hạn đã qua thì hết hạn ở tick kế tiếp.
+     */
+    public Timer<T> schedule(T value, long deadlineMillis) {
+        Timer<T> timer = new Timer<>(value);
+        reschedule(timer, deadlineMillis);
+        return timer;
+    }
+
+    /**
+     * Dời hạn của {@code timer}, hẹn lại nếu nó đã hết hạn hoặc bị hủy.
+     */
+    public void reschedule(Timer<T> timer, long deadlineMillis) {
+        if (timer.isScheduled()) {
+            timer.unlink();
+            size--;
+        }
+        // làm tròn lên để không bao giờ hết hạn sớm
+        timer.deadline = Math.ceilDiv(deadlineMillis, tickMillis);
+        place(timer, currentTick + 1);
+        size++;
+    }
+
+    /**
+     * @return {@code false} nếu timer đã hết hạn hoặc đã bị hủy trước đó
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        timer.unlink();
+        size--;
+        return true;
+    }
+
+    /**
+     * Quay bánh xe tới {@code nowMillis}, gọi {@code expired} cho mỗi timer đã tới hạn. Callback
+     * có thể hẹn timer mới.
+     *
+     * @return số timer đã hết hạn
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        long target = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < target) {
+            if (size == 0) {
+                currentTick = target;
+                break;
+            }
+            long tick = ++currentTick;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, tick);
+                }
+            }
+            fired += fire(slots[(int) (tick & (SLOTS - 1))], expired);
+        }
+        return fired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param earliest tick sớm nhất còn được xử lý, để timer đã quá hạn không rơi vào ô vừa quay qua
+     */
+    private void place(Timer<T> timer, long earliest) {
+        long tick = Math.max(timer.deadline, earliest);
+        long delta = tick - currentTick;
+        if (delta >= SPAN) {
+            tick = currentTick + SPAN - 1;
+            delta = SPAN - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        slots[level * SLOTS + slot].linkBefore(timer);
+    }
+
+    private void cascade(int level, long tick) {
+        Timer<T> head = slots[level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1))];
+        Timer<T> timer = head.detachAll();
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.next = null;
+            place(timer, currentTick);
+            timer = next;
+        }
+    }
+
+    private int fire(Timer<T> head, Consumer<? super T> expired) {
+        Timer<T> timer = head.detachAll();
+        int fired = 0;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.next = null;
+            size--;
+            fired++;
+            expired.accept(timer.value);
+            timer = next;
+        }
+        return fired;
+    }
+
+    /**
+     * Một hạn chót trong bánh xe; giữ lại để {@link #reschedule} hoặc {@link #cancel}.
+     */
+    public static final class Timer<T> {
+        private final T value;
+        private long deadline;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(T value) {
+            this.value = value;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        public boolean isScheduled() {
+            return prev != null;
+        }
+
+        private void linkBefore(Timer<T> timer) {
+            timer.prev = prev;
+            timer.next = this;
+            prev.next = timer;
+            prev = timer;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+
+        /**
+         * Tách cả danh sách khỏi node đầu; trả về timer đầu tiên, các timer nối với nhau qua
+         * {@code next} (kết thúc bằng {@code null}) và đã không còn được hẹn.
+         */
+        private Timer<T> detachAll() {
+            if (next == this) {
+                return null;
+            }
+            Timer<T> first = next;
+            prev.next = null;
+            for (Timer<T> t = first; t != null; t = t.next) {
+                t.prev = null;
+            }
+            next = this;
+            prev = this;
+            return first;
+        }
+    }
+}
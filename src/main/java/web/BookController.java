@@ -0,0 +1,149 @@
+package web;
+
+import catalog.CatalogExporter;
+import catalog.CatalogImporter;
+import catalog.ExportFormat;
+import catalog.ImportFormat;
+import catalog.ImportResult;
+import jakarta.servlet.http.HttpServletResponse;
+import models.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import services.BookSearchPage;
+import services.BookService;
+import services.BookSuggestions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/books")
+public class BookController {
+    private final BookService bookService;
+    private final CatalogImporter catalogImporter;
+    private final CatalogExporter catalogExporter;
+    private final int fuzzyMaxEdits;
+    private final Duration fuzzyBudget;
+
+    public BookController(BookService bookService,
+                          CatalogImporter catalogImporter,
+                          CatalogExporter catalogExporter,
+                          @Value("${app.search.fuzzy.max-edits:2}") int fuzzyMaxEdits,
+                          @Value("${app.search.fuzzy.budget:50ms}") Duration fuzzyBudget) {
+        this.bookService = bookService;
+        this.catalogImporter = catalogImporter;
+        this.catalogExporter = catalogExporter;
+        this.fuzzyMaxEdits = fuzzyMaxEdits;
+        this.fuzzyBudget = fuzzyBudget;
+    }
+
+    @GetMapping("/{id}")
+    public Book getBook(@PathVariable long id) {
+        return bookService.getBookById(id);
+    }
+
+    @GetMapping
+    public List<Book> searchBooks(@RequestParam("q") String keyword) {
+        return bookService.searchBooks(keyword);
+    }
+
+    /**
+     * Tìm kiếm có xếp hạng theo trang; trang sau dùng {@code cursor} của trang trước.
+     */
+    @GetMapping("/search")
+    public BookSearchPage searchRanked(@RequestParam("q") String keyword,
+                                       @RequestParam(defaultValue = "20") int limit,
+                                       @RequestParam(defaultValue = "0") int offset,
+                                       @RequestParam(required = false) String cursor) {
+        return bookService.searchBooks(keyword, offset, limit, cursor);
+    }
+
+    /**
+     * Tìm chịu lỗi gõ; {@code maxEdits} mặc định và thời gian tối đa lấy từ cấu hình.
+     */
+    @GetMapping("/fuzzy")
+    public BookSearchPage searchFuzzy(@RequestParam("q") String keyword,
+                                      @RequestParam(required = false) Integer maxEdits,
+                                      @RequestParam(defaultValue = "20") int limit) {
+        return bookService.searchBooksFuzzy(keyword, maxEdits == null ? fuzzyMaxEdits : maxEdits, limit, fuzzyBudget);
+    }
+
+    @GetMapping("/autocomplete")
+    public BookSuggestions autocomplete(@RequestParam(defaultValue = "") String prefix,
+                                        @RequestParam(defaultValue = "10") int limit) {
+        return bookService.autocomplete(prefix, limit);
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Book createBook(@RequestBody Book book) {
+        return bookService.createBook(book);
+    }
+
+    /**
+     * Nhập hàng loạt từ body (CSV hoặc JSON), đọc dần theo luồng. Response chỉ kèm một phần
+     * các bản ghi bị từ chối; báo cáo đầy đủ cần gọi {@link CatalogImporter} trực tiếp.
+     */
+    @PostMapping("/import")
+    public ImportResult importBooks(@RequestParam(defaultValue = "csv") String format,
+                                    InputStream body) throws IOException {
+        return catalogImporter.importBooks(body, ImportFormat.of(format), Writer.nullWriter());
+    }
+
+    /**
+     * Xuất toàn catalog thẳng vào response theo từng đoạn, không dựng danh sách book.
+     */
+    @GetMapping("/export")
+    public void exportBooks(@RequestParam(defaultValue = "csv") String format,
+                            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        response.setContentType(switch (exportFormat) {
+            case CSV -> "text/csv;charset=UTF-8";
+            case NDJSON -> "application/x-ndjson;charset=UTF-8";
+            case BINARY -> "application/octet-stream";
+        });
+        catalogExporter.export(exportFormat, response.getOutputStream());
+    }
+
+    @PutMapping("/{id}")
+    public Book updateBook(@PathVariable long id, @RequestBody Book book) {
+        return bookService.updateBook(id, book);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteBook(@PathVariable long id) {
+        bookService.deleteBook(id);
+    }
+
+    /**
+     * Cộng ({@code delta > 0}) hoặc trừ tồn kho; {@code updated=false} khi không đủ hàng để trừ.
+     */
+    @PostMapping("/{id}/stock")
+    public Map<String, Boolean> updateStock(@PathVariable long id, @RequestParam int delta) {
+        return Map.of("updated", bookService.updateStock(id, delta));
+    }
+
+    /**
+     * Bật ({@code enabled=true}) hoặc tắt chế độ hàng nóng của book khi mở/đóng flash sale.
+     */
+    @PostMapping("/{id}/flash-sale")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void setFlashSale(@PathVariable long id, @RequestParam boolean enabled) {
+        bookService.setFlashSale(id, enabled);
+    }
+}
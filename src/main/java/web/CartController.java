@@ -0,0 +1,56 @@
+package web;
+
+import models.Cart;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import services.CartService;
+
+import java.util.Map;
+
+@RestController
+public class CartController {
+    private final CartService cartService;
+
+    public CartController(CartService cartService) {
+        this.cartService = cartService;
+    }
+
+    @PostMapping("/api/carts")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Map<String, Long> createCart(@RequestBody ItemRequest request) {
+        return Map.of("cartId", cartService.createCart(request.userId(), request.bookId(), request.quantity()));
+    }
+
+    @GetMapping("/api/users/{userId}/cart")
+    public Cart viewCart(@PathVariable long userId) {
+        return cartService.viewCart(userId);
+    }
+
+    @PostMapping("/api/users/{userId}/cart/items")
+    public Map<String, Long> addItem(@PathVariable long userId, @RequestBody ItemRequest request) {
+        return Map.of("cartId", cartService.addItem(userId, request.bookId(), request.quantity()));
+    }
+
+    @PutMapping("/api/carts/{cartId}/items/{bookId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void changeQuantity(@PathVariable long cartId, @PathVariable long bookId, @RequestParam int quantity) {
+        cartService.changeQuantity(cartId, bookId, quantity);
+    }
+
+    @DeleteMapping("/api/carts/{cartId}/items/{bookId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeItem(@PathVariable long cartId, @PathVariable long bookId) {
+        cartService.removeItem(cartId, bookId);
+    }
+
+    public record ItemRequest(long userId, long bookId, int quantity) {
+    }
+}
@@ -0,0 +1,48 @@
+package web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+import utils.LongIntHashMap;
+
+import java.io.IOException;
+
+/**
+ * JSON cho {@link LongIntHashMap} (items của Cart và Order): object {@code {"bookId": quantity}}.
+ */
+@JsonComponent
+public class LongIntHashMapJson {
+
+    public static class Serializer extends JsonSerializer<LongIntHashMap> {
+        @Override
+        public void serialize(LongIntHashMap map, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            for (long key : map.keys()) {
+                generator.writeNumberField(Long.toString(key), map.getOrDefault(key, 0));
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<LongIntHashMap> {
+        @Override
+        public LongIntHashMap deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            LongIntHashMap map = new LongIntHashMap(4);
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                return (LongIntHashMap) context.handleUnexpectedToken(LongIntHashMap.class, parser);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                long key = Long.parseLong(parser.currentName());
+                parser.nextToken();
+                map.put(key, parser.getIntValue());
+            }
+            return map;
+        }
+    }
+}
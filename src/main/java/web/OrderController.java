@@ -0,0 +1,77 @@
+package web;
+
+import models.Order;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import services.CheckoutOutcome;
+import services.CheckoutPipeline;
+import services.OrderService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+public class OrderController {
+    /** Header client gửi lại nguyên giá trị khi thử lại checkout hoặc hủy order. */
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final OrderService orderService;
+    private final ObjectProvider<CheckoutPipeline> checkoutPipeline;
+
+    public OrderController(OrderService orderService, ObjectProvider<CheckoutPipeline> checkoutPipeline) {
+        this.orderService = orderService;
+        this.checkoutPipeline = checkoutPipeline;
+    }
+
+    @PostMapping("/api/carts/{cartId}/checkout")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Map<String, Long> checkout(@PathVariable long cartId,
+                                      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return Map.of("orderId", orderService.checkoutCart(cartId, idempotencyKey));
+    }
+
+    /**
+     * Checkout qua {@link CheckoutPipeline}: request trả về khi thread ghi của partition đã xử lý giỏ.
+     */
+    @PostMapping("/api/carts/{cartId}/checkout-async")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<Map<String, Long>> checkoutAsync(@PathVariable long cartId) {
+        CheckoutPipeline pipeline = checkoutPipeline.getIfAvailable();
+        CompletableFuture<Long> orderId = pipeline != null
+                ? pipeline.submit(cartId)
+                : CompletableFuture.completedFuture(orderService.checkoutCart(cartId));
+        return orderId.thenApply(id -> Map.of("orderId", id));
+    }
+
+    @PostMapping("/api/orders/checkout-batch")
+    public List<CheckoutOutcome> checkoutBatch(@RequestBody long[] cartIds) {
+        return orderService.checkoutCarts(cartIds);
+    }
+
+    @DeleteMapping("/api/orders/{orderId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancelOrder(@PathVariable long orderId,
+                            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        orderService.cancelOrder(orderId, idempotencyKey);
+    }
+
+    /**
+     * Một trang order của user; truyền id của order cuối trang trước vào {@code after}.
+     */
+    @GetMapping("/api/users/{userId}/orders")
+    public List<Order> viewOrders(@PathVariable long userId,
+                                  @RequestParam(defaultValue = "0") long after,
+                                  @RequestParam(defaultValue = "50") int limit) {
+        return orderService.viewOrders(userId, after, limit);
+    }
+}
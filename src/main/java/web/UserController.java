@@ -0,0 +1,41 @@
+package web;
+
+import models.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import services.UserService;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/users")
+public class UserController {
+    private final UserService userService;
+
+    public UserController(UserService userService) {
+        this.userService = userService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public User register(@RequestBody User user) {
+        return userService.createUser(user);
+    }
+
+    /**
+     * Verify mật khẩu chạy trên pool của PasswordVerifier; request thread được trả lại ngay.
+     */
+    @PostMapping("/login")
+    public CompletableFuture<Map<String, Long>> login(@RequestBody LoginRequest request) {
+        return userService.loginAsync(request.email(), request.password())
+                .thenApply(userId -> Map.of("userId", userId));
+    }
+
+    public record LoginRequest(String email, String password) {
+    }
+}
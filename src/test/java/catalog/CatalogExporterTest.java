@@ -0,0 +1,102 @@
+package catalog;
+
+import models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repositories.InMemoryBookRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+public class CatalogExporterTest {
+
+    InMemoryBookRepository bookRepository;
+    CatalogExporter exporter;
+    Book tricky;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = new InMemoryBookRepository();
+        exporter = new CatalogExporter(bookRepository);
+        tricky = bookRepository.create(Book.builder()
+                .title("Say \"Hello\", World")
+                .author("Nguyễn Văn A")
+                .price(12.5)
+                .stockQuantity(3)
+                .description("dòng 1\ndòng 2\t\\")
+                .build());
+    }
+
+    private Book imported(InMemoryBookRepository target) {
+        return target.searchByKeyword("hello").get(0);
+    }
+
+    @Test
+    public void should_round_trip_csv_and_ndjson_through_importer() throws IOException {
+        for (ExportFormat format : new ExportFormat[]{ExportFormat.CSV, ExportFormat.NDJSON}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThat(exporter.export(format, out), equalTo(1L));
+
+            InMemoryBookRepository target = new InMemoryBookRepository();
+            ImportResult result = new CatalogImporter(target).importBooks(new ByteArrayInputStream(out.toByteArray()),
+                    format == ExportFormat.CSV ? ImportFormat.CSV : ImportFormat.JSON, new StringWriter());
+
+            assertThat(result.getImported(), equalTo(1L));
+            Book copy = imported(target);
+            assertThat(copy.toBuilder().id(tricky.getId()).build(), equalTo(tricky));
+        }
+    }
+
+    @Test
+    public void should_write_binary_records_to_file_in_many_chunks() throws IOException {
+        String longText = "x".repeat(200_000);
+        bookRepository.update(tricky.getId(), tricky.toBuilder().description(longText).build());
+        Path file = directory.resolve("catalog.bin");
+
+        assertThat(exporter.export(ExportFormat.BINARY, file), equalTo(1L));
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertThat(in.readInt(), equalTo(ExportFormat.BINARY_MAGIC));
+            assertThat(in.readLong(), equalTo(tricky.getId()));
+            assertThat(in.readDouble(), equalTo(12.5));
+            assertThat(in.readInt(), equalTo(3));
+            assertThat(readString(in), equalTo(tricky.getTitle()));
+            assertThat(readString(in), equalTo("Nguyễn Văn A"));
+            assertThat(in.readInt(), equalTo(-1));
+            assertThat(in.readInt(), equalTo(-1));
+            assertThat(readString(in), equalTo(longText));
+            assertThat(in.read(), equalTo(-1));
+        }
+    }
+
+    @Test
+    public void should_start_csv_with_header() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exporter.export(ExportFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8),
+                startsWith("id,title,author,publisher,isbn,price,stockQuantity,description\n"
+                        + tricky.getId() + ",\"Say \"\"Hello\"\", World\",Nguyễn Văn A,,,12.5,3,\"dòng 1\n"));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
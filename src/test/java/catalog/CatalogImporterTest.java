@@ -0,0 +1,149 @@
+package catalog;
+
+import models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repositories.InMemoryBookRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CatalogImporterTest {
+
+    InMemoryBookRepository bookRepository;
+    CatalogImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = new InMemoryBookRepository();
+        importer = new CatalogImporter(bookRepository, ImportConfig.builder()
+                .batchSize(7)
+                .parallelism(4)
+                .maxPendingBatches(2)
+                .build());
+    }
+
+    private static InputStream utf8(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_import_quoted_csv_and_report_invalid_rows() throws IOException {
+        String csv = """
+                title,author,price,stock_quantity,description
+                "Clean Code","Martin, Robert",30.5,10,"Viết ""sạch""
+                nhiều dòng"
+                ,Nobody,10,1,
+                Refactoring,Fowler,abc,1,
+
+                Free Book,Someone,0,1,
+                Effective Java,Bloch,45,3,
+                """;
+        StringWriter rejects = new StringWriter();
+
+        ImportResult result = importer.importBooks(utf8(csv), ImportFormat.CSV, rejects);
+
+        assertThat(result.getRead(), equalTo(5L));
+        assertThat(result.getImported(), equalTo(2L));
+        assertThat(result.getRejected(), equalTo(3L));
+        Book cleanCode = bookRepository.searchByKeyword("clean").get(0);
+        assertThat(cleanCode.getAuthor(), equalTo("Martin, Robert"));
+        assertThat(cleanCode.getDescription(), equalTo("Viết \"sạch\"\nnhiều dòng"));
+        assertThat(cleanCode.getStockQuantity(), equalTo(10));
+        assertThat(rejects.toString(), startsWith("line,error\n"));
+        assertThat(rejects.toString(), containsString("2,Title cannot be empty\n"));
+        assertThat(rejects.toString(), containsString("3,Invalid price: abc\n"));
+        assertThat(rejects.toString(), containsString("4,Price must be greater than 0\n"));
+    }
+
+    @Test
+    public void should_skip_json_records_with_wrong_types_and_keep_reading() throws IOException {
+        String json = """
+                [{"title":"Java Concurrency","author":"Goetz","price":40,"isbn":"123","unknown":1},
+                 {"title":"Bad","author":"X","price":"not a number"},
+                 {"title":"Kotlin in Action","author":"Jemerov","price":35}]
+                """;
+        StringWriter rejects = new StringWriter();
+
+        ImportResult result = importer.importBooks(utf8(json), ImportFormat.JSON, rejects);
+
+        assertThat(result.getImported(), equalTo(2L));
+        assertThat(result.getRejected(), equalTo(1L));
+        assertThat(result.getRejectSample().get(0), startsWith("2,"));
+        assertThat(bookRepository.searchByKeyword("kotlin"), hasSize(1));
+    }
+
+    @Test
+    public void should_reject_only_the_conflicting_row_when_a_batch_fails() throws IOException {
+        Book existing = bookRepository.create(Book.builder().title("Existing").author("A").price(1).build());
+        String ndjson = """
+                {"title":"One","author":"A","price":1}
+                {"id":%d,"title":"Duplicate","author":"A","price":1}
+                {"title":"Two","author":"A","price":1}
+                """.formatted(existing.getId());
+
+        ImportResult result = importer.importBooks(utf8(ndjson), ImportFormat.JSON, new StringWriter());
+
+        assertThat(result.getImported(), equalTo(2L));
+        assertThat(result.getRejected(), equalTo(1L));
+        assertThat(bookRepository.size(), equalTo(3));
+    }
+
+    @Test
+    public void should_import_explicit_id_row_stored_before_a_duplicate_in_the_same_batch() throws IOException {
+        Book existing = bookRepository.create(Book.builder().title("Existing").author("A").price(1).build());
+        long freshId = existing.getId() + 1_000;
+        String ndjson = """
+                {"id":%d,"title":"Fresh","author":"A","price":1}
+                {"id":%d,"title":"Duplicate","author":"A","price":1}
+                {"title":"Two","author":"A","price":1}
+                """.formatted(freshId, existing.getId());
+        StringWriter rejects = new StringWriter();
+
+        ImportResult result = importer.importBooks(utf8(ndjson), ImportFormat.JSON, rejects);
+
+        assertThat(result.getImported(), equalTo(2L));
+        assertThat(result.getRejected(), equalTo(1L));
+        assertThat(rejects.toString(), containsString("2,"));
+        assertThat(bookRepository.findById(freshId).getTitle(), equalTo("Fresh"));
+        assertThat(bookRepository.size(), equalTo(3));
+    }
+
+    @Test
+    public void should_stream_large_input_through_all_batches() throws IOException {
+        int rows = 20_000;
+        InputStream header = utf8("title,author,price\n");
+        List<InputStream> parts = IntStream.range(0, rows)
+                .mapToObj(i -> utf8("Book " + i + ",Author " + (i % 100) + "," + (i % 10 == 0 ? 0 : 9.5) + "\n"))
+                .toList();
+        InputStream csv = new SequenceInputStream(header, new SequenceInputStream(Collections.enumeration(parts)));
+
+        ImportResult result = importer.importBooks(csv, ImportFormat.CSV, new StringWriter());
+
+        assertThat(result.getRead(), equalTo((long) rows));
+        assertThat(result.getImported(), equalTo(rows - rows / 10L));
+        assertThat(result.getRejectSample(), hasSize(100));
+        assertThat(bookRepository.size(), equalTo(rows - rows / 10));
+    }
+
+    @Test
+    public void should_fail_when_csv_misses_a_required_column() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> importer.importBooks(utf8("title,author\nA,B\n"), ImportFormat.CSV, new StringWriter()));
+        assertThat(e.getMessage(), equalTo("Missing column: price"));
+    }
+}
@@ -0,0 +1,145 @@
+package ids;
+
+import models.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import repositories.InMemoryBookRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void should_hand_out_unique_ids_across_threads() throws InterruptedException {
+        assertUniqueAcrossThreads(new BlockIdGenerator(new MemoryIdBlockSource(), 64));
+        assertUniqueAcrossThreads(new TimeOrderedIdGenerator(3));
+    }
+
+    @Test
+    public void should_not_reuse_ids_after_restart_with_file_block_source() throws IOException {
+        Path file = directory.resolve("ids.seq");
+        long last;
+        try (FileIdBlockSource source = new FileIdBlockSource(file)) {
+            BlockIdGenerator generator = new BlockIdGenerator(source, 100);
+            last = 0;
+            for (int i = 0; i < 150; i++) {
+                last = generator.nextId();
+            }
+        }
+
+        try (FileIdBlockSource source = new FileIdBlockSource(file)) {
+            long next = new BlockIdGenerator(source, 100).nextId();
+
+            assertThat(next, greaterThan(last));
+            assertThat(next, equalTo(201L));
+        }
+    }
+
+    @Test
+    public void should_share_blocks_between_short_lived_virtual_threads() throws InterruptedException {
+        int requests = 10_000;
+        int blockSize = 1024;
+        MemoryIdBlockSource source = new MemoryIdBlockSource();
+        BlockIdGenerator generator = new BlockIdGenerator(source, blockSize);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                executor.submit(() -> seen.add(generator.nextId()));
+            }
+        }
+
+        assertThat(seen.size(), equalTo(requests));
+        // mỗi ô bỏ dở tối đa một block, thay vì gần một block cho mỗi virtual thread
+        long stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+        assertThat(source.reserve(1) <= requests + stripes * blockSize + 1, equalTo(true));
+    }
+
+    @Test
+    public void should_skip_observed_ids_in_later_blocks() {
+        BlockIdGenerator generator = new BlockIdGenerator(new MemoryIdBlockSource(), 10);
+        generator.observe(500L);
+
+        assertThat(generator.nextId(), equalTo(501L));
+    }
+
+    @Test
+    public void should_stay_monotonic_when_clock_goes_back_or_sequence_overflows() {
+        AtomicLong now = new AtomicLong(TimeOrderedIdGenerator.EPOCH_MILLIS + 1_000);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(7, now::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                now.addAndGet(-500);
+            }
+            long id = generator.nextId();
+            assertThat(id, greaterThan(previous));
+            assertThat(TimeOrderedIdGenerator.nodeOf(id), equalTo(7));
+            previous = id;
+        }
+        assertThat(TimeOrderedIdGenerator.timestampOf(previous), greaterThan(now.get()));
+    }
+
+    @Test
+    public void should_continue_after_observed_id_when_clock_is_behind() {
+        TimeOrderedIdGenerator before = new TimeOrderedIdGenerator(1, () -> TimeOrderedIdGenerator.EPOCH_MILLIS + 10_000);
+        long restored = before.nextId();
+
+        TimeOrderedIdGenerator after = new TimeOrderedIdGenerator(1, () -> TimeOrderedIdGenerator.EPOCH_MILLIS + 5_000);
+        after.observe(restored);
+
+        assertThat(after.nextId(), greaterThan(restored));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(1024));
+    }
+
+    @Test
+    public void should_not_collide_with_explicit_ids_inside_current_block() {
+        InMemoryBookRepository repository = new InMemoryBookRepository(new BlockIdGenerator(new MemoryIdBlockSource(), 100));
+        repository.create(Book.builder().title("First").build());
+        repository.create(Book.builder().id(2L).title("Explicit").build());
+
+        long generated = repository.create(Book.builder().title("Next").build()).getId();
+
+        assertThat(generated, equalTo(3L));
+    }
+
+    private static void assertUniqueAcrossThreads(IdGenerator generator) throws InterruptedException {
+        int threads = 8;
+        int perThread = 20_000;
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    seen.add(generator.nextId());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(seen.size(), equalTo(threads * perThread));
+    }
+}
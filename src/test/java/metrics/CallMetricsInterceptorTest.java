@@ -0,0 +1,80 @@
+package metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import models.Book;
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import repositories.IBookRepository;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryUserRepository;
+import security.PasswordConfig;
+import security.PasswordVerifier;
+import services.BookService;
+import services.UserService;
+import stock.StockEngine;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CallMetricsInterceptorTest {
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T instrument(T target, String layer, String component, boolean proxyTargetClass) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(proxyTargetClass);
+        factory.addAdvice(new CallMetricsInterceptor(() -> registry, layer, component));
+        return (T) factory.getProxy();
+    }
+
+    private Timer timer(String component, String method, String outcome) {
+        return registry.find(CallMetricsInterceptor.METER_NAME)
+                .tags("component", component, "method", method, "outcome", outcome)
+                .timer();
+    }
+
+    @Test
+    public void should_count_repository_and_service_calls_by_outcome() {
+        IBookRepository bookRepository = instrument(new InMemoryBookRepository(), "repository", "bookRepository", false);
+        BookService bookService = instrument(new BookService(bookRepository, new StockEngine()), "service", "bookService", true);
+        long bookId = bookService.createBook(Book.builder().title("Java").author("Gosling").price(10).stockQuantity(3).build()).getId();
+
+        bookService.getBookById(bookId);
+        bookService.getBookById(bookId);
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBookById(bookId + 1));
+
+        assertThat(timer("bookService", "getBookById", "success").count(), equalTo(2L));
+        assertThat(timer("bookService", "getBookById", "error").count(), equalTo(1L));
+        assertThat(timer("bookRepository", "findById", "success").count(), equalTo(3L));
+        assertThat(timer("bookRepository", "create", "success").totalTime(TimeUnit.NANOSECONDS), greaterThan(0.0));
+        assertThat(registry.find(CallMetricsInterceptor.METER_NAME).tags("method", "toString").timer(), nullValue());
+    }
+
+    @Test
+    public void should_record_async_calls_when_future_completes() {
+        try (PasswordVerifier verifier = new PasswordVerifier(PasswordConfig.builder().iterations(1_000).build())) {
+            UserService userService = instrument(new UserService(new InMemoryUserRepository(), verifier), "service", "userService", true);
+            userService.createUser(User.builder().username("quang").password("123456").email("metrics@gmail.com").build());
+
+            userService.loginAsync("metrics@gmail.com", "123456").join();
+            assertThrows(Exception.class, () -> userService.loginAsync("metrics@gmail.com", "bad").join());
+
+            assertThat(timer("userService", "loginAsync", "success").count(), equalTo(1L));
+            assertThat(timer("userService", "loginAsync", "error").count(), equalTo(1L));
+        }
+    }
+}
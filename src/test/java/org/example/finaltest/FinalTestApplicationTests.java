@@ -3,7 +3,7 @@ package org.example.finaltest;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.data.dir=")
 class FinalTestApplicationTests {
 
     @Test
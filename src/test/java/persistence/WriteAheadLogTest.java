@@ -0,0 +1,251 @@
+package persistence;
+
+import models.Book;
+import models.Cart;
+import models.CartItem;
+import models.Order;
+import models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryCartRepository;
+import repositories.InMemoryOrderRepository;
+import repositories.InMemoryUserRepository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static Book book(String title, int stock) {
+        return Book.builder().title(title).author("Author").price(10.0).stockQuantity(stock).build();
+    }
+
+    private WriteAheadLog<Book> openBooks(InMemoryBookRepository repository, WalConfig config) throws IOException {
+        return WriteAheadLog.open(repository, directory, "books", ModelCodecs.BOOK, config);
+    }
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    public void should_rebuild_state_from_log_after_restart(FsyncPolicy policy) throws IOException {
+        WalConfig config = WalConfig.builder().fsyncPolicy(policy).build();
+        InMemoryBookRepository repository = new InMemoryBookRepository();
+        long keptId;
+        long deletedId;
+        try (WriteAheadLog<Book> ignored = openBooks(repository, config)) {
+            keptId = repository.create(book("Java Programming", 5)).getId();
+            deletedId = repository.create(book("Deleted", 1)).getId();
+            repository.update(keptId, book("Java Programming", 3));
+            repository.delete(deletedId);
+        }
+
+        InMemoryBookRepository recovered = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(recovered, config)) {
+            assertThat(recovered.size(), equalTo(1));
+            assertThat(recovered.findById(keptId).getStockQuantity(), equalTo(3));
+            assertThat(recovered.findById(deletedId), nullValue());
+            assertThat(recovered.searchByKeyword("java"), hasSize(1));
+            assertTrue(recovered.create(book("Next", 1)).getId() > deletedId);
+        }
+    }
+
+    @Test
+    public void should_load_snapshot_and_replay_tail_then_drop_old_generations() throws IOException, InterruptedException {
+        WalConfig config = WalConfig.builder().snapshotEvery(1_000_000).build();
+        InMemoryBookRepository repository = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> wal = openBooks(repository, config)) {
+            for (int i = 0; i < 50; i++) {
+                repository.create(book("Before " + i, i));
+            }
+            wal.snapshot();
+            for (int i = 0; i < 10; i++) {
+                repository.create(book("After " + i, i));
+            }
+            repository.delete(1L);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString()).sorted().toList(),
+                    equalTo(List.of("books-00000000000000000050.snap", "books-00000000000000000050.wal")));
+        }
+        InMemoryBookRepository recovered = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> wal = openBooks(recovered, config)) {
+            assertThat(recovered.size(), equalTo(59));
+            assertThat(recovered.findById(1L), nullValue());
+            assertThat(recovered.findById(60L).getTitle(), equalTo("After 9"));
+            assertThat(wal.lastLsn(), equalTo(61L));
+        }
+    }
+
+    @Test
+    public void should_truncate_torn_tail_record() throws IOException {
+        WalConfig config = WalConfig.builder().fsyncPolicy(FsyncPolicy.PER_WRITE).build();
+        InMemoryBookRepository repository = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(repository, config)) {
+            repository.create(book("Survivor", 1));
+        }
+        Path log = directory.resolve("books-00000000000000000000.wal");
+        long validSize = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        InMemoryBookRepository recovered = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(recovered, config)) {
+            assertThat(recovered.size(), equalTo(1));
+            assertThat(Files.size(log), equalTo(validSize));
+            recovered.create(book("After crash", 1));
+        }
+        InMemoryBookRepository again = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(again, config)) {
+            assertThat(again.size(), equalTo(2));
+        }
+    }
+
+    @Test
+    public void should_not_log_rejected_writes() throws IOException {
+        InMemoryBookRepository repository = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> wal = openBooks(repository, WalConfig.builder().build())) {
+            repository.create(book("Only", 1).toBuilder().id(7L).build());
+            assertThrows(IllegalArgumentException.class,
+                    () -> repository.create(book("Duplicate", 1).toBuilder().id(7L).build()));
+            repository.update(99L, book("Missing", 1));
+            repository.delete(98L);
+
+            assertThat(wal.lastLsn(), equalTo(1L));
+        }
+    }
+
+    @Test
+    public void should_undo_in_memory_change_when_the_log_cannot_be_written() throws IOException {
+        ModelCodec<Book> failing = new ModelCodec<>() {
+            @Override
+            public void write(DataOutput out, Book book) throws IOException {
+                if ("Boom".equals(book.getTitle())) {
+                    throw new IOException("disk full");
+                }
+                ModelCodecs.BOOK.write(out, book);
+            }
+
+            @Override
+            public Book read(DataInput in) throws IOException {
+                return ModelCodecs.BOOK.read(in);
+            }
+        };
+        InMemoryBookRepository repository = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> wal = WriteAheadLog.open(repository, directory, "books", failing,
+                WalConfig.builder().fsyncPolicy(FsyncPolicy.PER_WRITE).build())) {
+            long id = repository.create(book("Kept", 5)).getId();
+
+            assertThrows(UncheckedIOException.class, () -> repository.update(id, book("Boom", 1)));
+            assertThat(repository.findById(id).getTitle(), equalTo("Kept"));
+            assertThat(repository.searchByKeyword("boom"), hasSize(0));
+            assertThrows(UncheckedIOException.class, () -> repository.create(book("After", 1)));
+            assertThat(repository.size(), equalTo(1));
+            assertThat(wal.lastLsn(), equalTo(1L));
+        }
+
+        InMemoryBookRepository recovered = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(recovered, WalConfig.builder().build())) {
+            assertThat(recovered.size(), equalTo(1));
+            assertThat(recovered.searchByKeyword("kept"), hasSize(1));
+        }
+    }
+
+    @Test
+    public void should_attach_logs_only_when_a_directory_is_configured() throws IOException {
+        WalConfig config = WalConfig.builder().build();
+        long userId;
+        try (WriteAheadLogs logs = new WriteAheadLogs(directory, config)) {
+            InMemoryUserRepository users = logs.attach(new InMemoryUserRepository(), "users", ModelCodecs.USER);
+            userId = users.create(User.builder().username("quang").email("wal@gmail.com").build()).getId();
+        }
+        try (WriteAheadLogs logs = new WriteAheadLogs(directory, config)) {
+            InMemoryUserRepository users = logs.attach(new InMemoryUserRepository(), "users", ModelCodecs.USER);
+            assertThat(users.findByEmail("wal@gmail.com").getId(), equalTo(userId));
+        }
+        try (WriteAheadLogs logs = new WriteAheadLogs(null, config)) {
+            assertThat(logs.attach(new InMemoryUserRepository(), "users", ModelCodecs.USER).size(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void should_keep_every_write_from_concurrent_group_commits() throws Exception {
+        WalConfig config = WalConfig.builder().fsyncPolicy(FsyncPolicy.GROUP_COMMIT).snapshotEvery(500).build();
+        InMemoryBookRepository repository = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(repository, config)) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        repository.create(book("Concurrent", i));
+                    }
+                    return null;
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        InMemoryBookRepository recovered = new InMemoryBookRepository();
+        try (WriteAheadLog<Book> ignored = openBooks(recovered, config)) {
+            assertThat(recovered.size(), equalTo(2_000));
+        }
+    }
+
+    @Test
+    public void should_persist_users_carts_cart_items_and_orders() throws IOException {
+        WalConfig config = WalConfig.builder().build();
+        User user = User.builder().id(1L).username("quang").password("123456").email("user@gmail.com").build();
+        Book book = book("Nested", 4).toBuilder().id(10L).build();
+        CartItem cartItem = CartItem.builder().id(3L).book(book).quantity(2).build();
+        Cart cart = Cart.builder().id(2L).user(user).cartItem(cartItem).build();
+        Order order = Order.builder().id(4L).userId(7L).book(book).quantity(2).build();
+        cart.getItems().put(11L, 1);
+        cart.getItems().put(12L, 5);
+        order.getItems().put(11L, 1);
+
+        InMemoryUserRepository users = new InMemoryUserRepository();
+        InMemoryCartRepository carts = new InMemoryCartRepository();
+        InMemoryOrderRepository orders = new InMemoryOrderRepository();
+        try (WriteAheadLog<User> u = WriteAheadLog.open(users, directory, "users", ModelCodecs.USER, config);
+             WriteAheadLog<Cart> c = WriteAheadLog.open(carts, directory, "carts", ModelCodecs.CART, config);
+             WriteAheadLog<Order> o = WriteAheadLog.open(orders, directory, "orders", ModelCodecs.ORDER, config)) {
+            users.create(user);
+            carts.create(cart);
+            orders.create(order);
+        }
+
+        InMemoryUserRepository recoveredUsers = new InMemoryUserRepository();
+        InMemoryCartRepository recoveredCarts = new InMemoryCartRepository();
+        InMemoryOrderRepository recoveredOrders = new InMemoryOrderRepository();
+        try (WriteAheadLog<User> u = WriteAheadLog.open(recoveredUsers, directory, "users", ModelCodecs.USER, config);
+             WriteAheadLog<Cart> c = WriteAheadLog.open(recoveredCarts, directory, "carts", ModelCodecs.CART, config);
+             WriteAheadLog<Order> o = WriteAheadLog.open(recoveredOrders, directory, "orders", ModelCodecs.ORDER, config)) {
+            assertThat(recoveredUsers.findByEmail("user@gmail.com"), equalTo(user));
+            assertThat(recoveredCarts.findById(2L), equalTo(cart));
+            assertThat(recoveredCarts.findByUserId(1L), equalTo(cart));
+            assertThat(recoveredOrders.findById(4L), equalTo(order));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package repositories;
+
+import models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import services.BookService;
+import stock.StockEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachingBookRepositoryTest {
+
+    InMemoryBookRepository backing;
+    CachingBookRepository cache;
+
+    @BeforeEach
+    void setUp() {
+        backing = new InMemoryBookRepository();
+        cache = new CachingBookRepository(backing, 100);
+    }
+
+    private long newBook(String title) {
+        return backing.create(Book.builder().title(title).author("A").price(1.0).stockQuantity(10).build()).getId();
+    }
+
+    @Test
+    public void should_count_hits_and_misses_and_return_independent_copies() {
+        long id = newBook("Cached");
+
+        cache.findById(id).setTitle("Changed by caller");
+        Book second = cache.findById(id);
+
+        assertThat(second.getTitle(), equalTo("Cached"));
+        assertThat(cache.missCount(), equalTo(1L));
+        assertThat(cache.hitCount(), equalTo(1L));
+    }
+
+    @Test
+    public void should_invalidate_on_update_and_delete_through_book_service() {
+        long id = newBook("Old");
+        BookService bookService = new BookService(cache, new StockEngine());
+        cache.findById(id);
+
+        bookService.updateBook(id, Book.builder().title("New").author("A").price(1.0).stockQuantity(10).build());
+        assertThat(cache.findById(id).getTitle(), equalTo("New"));
+
+        bookService.updateStock(id, -3);
+        assertThat(bookService.getBookById(id).getStockQuantity(), equalTo(7));
+
+        bookService.deleteBook(id);
+        assertThat(cache.findById(id), nullValue());
+    }
+
+    @Test
+    public void should_stay_bounded_and_keep_popular_books_through_a_catalog_scan() {
+        long[] popular = new long[50];
+        for (int i = 0; i < popular.length; i++) {
+            popular[i] = newBook("Popular " + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (long id : popular) {
+                cache.findById(id);
+            }
+        }
+        for (int i = 0; i < 5_000; i++) {
+            cache.findById(newBook("Scan " + i));
+        }
+
+        long hitsBefore = cache.hitCount();
+        for (long id : popular) {
+            cache.findById(id);
+        }
+
+        assertThat(cache.size(), lessThanOrEqualTo(100));
+        assertThat(cache.evictionCount(), greaterThan(0L));
+        assertThat(cache.hitCount() - hitsBefore, greaterThan(45L));
+    }
+
+    @Test
+    public void should_never_serve_stale_book_after_concurrent_updates() throws InterruptedException {
+        long id = newBook("v0");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 3; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    cache.findById(id);
+                }
+                return null;
+            });
+        }
+        executor.submit(() -> {
+            start.await();
+            for (int i = 1; i <= 2_000; i++) {
+                cache.update(id, Book.builder().title("v" + i).author("A").stockQuantity(10).build());
+            }
+            return null;
+        });
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(cache.findById(id).getTitle(), equalTo("v2000"));
+    }
+
+    @Test
+    public void should_close_mapped_delegate_so_books_survive_reopening(@TempDir Path dir) throws IOException {
+        CachingBookRepository mapped = new CachingBookRepository(new MappedBookRepository(dir), 100);
+        long id = mapped.create(Book.builder().title("Kept").author("A").price(2.0).stockQuantity(3).build()).getId();
+        mapped.close();
+
+        try (MappedBookRepository reopened = new MappedBookRepository(dir)) {
+            assertThat(reopened.findById(id).getTitle(), equalTo("Kept"));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package repositories;
+
+import models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import services.BookSearchPage;
+import services.BookService;
+import stock.StockEngine;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryBookRepositoryTest {
+
+    InMemoryBookRepository bookRepository;
+    BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = new InMemoryBookRepository();
+        bookService = new BookService(bookRepository, new StockEngine());
+    }
+
+    private Book newBook(String title, int stock) {
+        return Book.builder()
+                .title(title)
+                .author("Test Author")
+                .publisher("Test Publisher")
+                .isbn("978-" + title.hashCode())
+                .price(10.0)
+                .stockQuantity(stock)
+                .description("About " + title)
+                .build();
+    }
+
+    @Test
+    public void should_assign_id_and_find_created_book() {
+        Book created = bookService.createBook(newBook("Java Programming", 5));
+
+        assertThat(created.getId(), notNullValue());
+        assertThat(bookService.getBookById(created.getId()).getTitle(), equalTo("Java Programming"));
+    }
+
+    @Test
+    public void should_keep_explicit_id_including_zero_and_negative() {
+        bookRepository.create(newBook("Zero", 1).toBuilder().id(0L).build());
+        bookRepository.create(newBook("Negative", 1).toBuilder().id(-1L).build());
+
+        assertThat(bookService.getBookById(0L).getTitle(), equalTo("Zero"));
+        assertThat(bookService.getBookById(-1L).getTitle(), equalTo("Negative"));
+    }
+
+    @Test
+    public void should_reject_duplicate_id_on_create() {
+        bookRepository.create(newBook("First", 1).toBuilder().id(5L).build());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bookRepository.create(newBook("Second", 1).toBuilder().id(5L).build()));
+    }
+
+    @Test
+    public void should_roll_back_the_whole_batch_when_one_create_fails() {
+        Book existing = bookRepository.create(newBook("Existing", 1));
+        Book fresh = newBook("Fresh", 1);
+        Book duplicate = newBook("Duplicate", 1);
+        duplicate.setId(existing.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> bookRepository.createAll(List.of(fresh, duplicate)));
+
+        assertThat(bookRepository.findById(fresh.getId()), nullValue());
+        assertThat(bookRepository.searchByKeyword("fresh"), hasSize(0));
+        assertThat(bookRepository.size(), equalTo(1));
+    }
+
+    @Test
+    public void should_not_expose_stored_instance_to_callers() {
+        Book created = bookRepository.create(newBook("Immutable", 3));
+
+        bookRepository.findById(created.getId()).setTitle("Changed");
+
+        assertThat(bookRepository.findById(created.getId()).getTitle(), equalTo("Immutable"));
+    }
+
+    @Test
+    public void should_update_and_delete_existing_book() {
+        Book created = bookService.createBook(newBook("Old Title", 1));
+
+        bookService.updateBook(created.getId(), newBook("Updated Title", 1));
+        assertThat(bookService.getBookById(created.getId()).getTitle(), equalTo("Updated Title"));
+
+        bookService.deleteBook(created.getId());
+        assertThat(bookRepository.findById(created.getId()), nullValue());
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBookById(created.getId()));
+    }
+
+    @Test
+    public void should_not_create_book_when_updating_missing_id() {
+        assertThat(bookRepository.update(99L, newBook("Ghost", 1)), nullValue());
+        assertThat(bookRepository.findById(99L), nullValue());
+    }
+
+    @Test
+    public void should_search_title_author_publisher_isbn_and_description_case_insensitively() {
+        bookService.createBook(newBook("Java Programming", 1));
+        bookService.createBook(newBook("Advanced JAVA", 1));
+        bookService.createBook(newBook("Cooking", 1).toBuilder().description("java coffee beans").build());
+        bookService.createBook(newBook("Gardening", 1));
+
+        List<Book> result = bookService.searchBooks("java");
+
+        assertThat(result, hasSize(3));
+        assertThat(bookService.searchBooks("nonexistent"), hasSize(0));
+    }
+
+    @Test
+    public void should_return_ranked_pages_of_search_results() {
+        for (int i = 0; i < 25; i++) {
+            bookService.createBook(newBook("Book " + i, 1).toBuilder().description("about java").build());
+        }
+        Book best = bookService.createBook(newBook("Java Java", 1));
+
+        BookSearchPage first = bookService.searchBooks("java", 0, 10, null);
+        BookSearchPage second = bookService.searchBooks("java", 0, 10, first.getNextCursor());
+        BookSearchPage last = bookService.searchBooks("java", 20, 10, null);
+
+        assertThat(first.getTotalHits(), equalTo(26));
+        assertThat(first.getBooks().get(0).getId(), equalTo(best.getId()));
+        assertThat(second.getBooks(), hasSize(10));
+        assertThat(second.getBooks().get(0).getId(), equalTo(bookService.searchBooks("java", 10, 1, null).getBooks().get(0).getId()));
+        assertThat(last.getBooks(), hasSize(6));
+        assertThat(last.getNextCursor(), nullValue());
+        assertThrows(IllegalArgumentException.class, () -> bookService.searchBooks("java", 0, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> bookService.searchBooks("java", 0, 10, "garbage"));
+    }
+
+    @Test
+    public void should_keep_autocomplete_in_sync_with_creates_updates_and_deletes() {
+        Book first = bookService.createBook(newBook("Java Programming", 1));
+        bookService.createBook(newBook("Java Concurrency", 1).toBuilder().author("Brian Goetz").build());
+
+        assertThat(bookService.autocomplete("jav", 10).getTitles(), hasSize(2));
+        assertThat(bookService.autocomplete("goe", 10).getAuthors(), equalTo(List.of("Brian Goetz")));
+
+        bookService.updateBook(first.getId(), newBook("Kotlin in Action", 1));
+        assertThat(bookService.autocomplete("jav", 10).getTitles(), equalTo(List.of("Java Concurrency")));
+        assertThat(bookService.autocomplete("kot", 10).getTitles(), equalTo(List.of("Kotlin in Action")));
+
+        bookService.deleteBook(first.getId());
+        assertThat(bookService.autocomplete("kot", 10).getTitles(), hasSize(0));
+        assertThat(bookService.autocomplete("", 10).getTitles(), hasSize(0));
+    }
+
+    @Test
+    public void should_update_stock_through_book_service() {
+        Book created = bookService.createBook(newBook("Stocked", 5));
+
+        assertTrue(bookService.updateStock(created.getId(), -5));
+        assertFalse(bookService.updateStock(created.getId(), -1));
+        assertThat(bookService.getBookById(created.getId()).getStockQuantity(), equalTo(0));
+    }
+
+    @Test
+    public void should_assign_unique_ids_when_created_concurrently() throws InterruptedException {
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Book created = bookRepository.create(newBook("Concurrent", 1));
+                    bookRepository.findById(created.getId());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(bookRepository.size(), equalTo(threads * perThread));
+    }
+}
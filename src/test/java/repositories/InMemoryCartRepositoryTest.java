@@ -0,0 +1,35 @@
+package repositories;
+
+import models.Cart;
+import models.User;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class InMemoryCartRepositoryTest {
+
+    InMemoryCartRepository cartRepository = new InMemoryCartRepository();
+
+    private Cart cartOf(long userId) {
+        return Cart.builder().user(User.builder().id(userId).build()).build();
+    }
+
+    @Test
+    public void should_find_cart_by_user_and_follow_owner_changes() {
+        Cart cart = cartRepository.create(cartOf(1L));
+        cart.getItems().put(7L, 2);
+        cartRepository.update(cart.getId(), cart);
+
+        assertThat(cartRepository.findByUserId(1L).getItems().getOrDefault(7L, 0), equalTo(2));
+        assertThat(cartRepository.findByUserId(2L), nullValue());
+
+        cartRepository.update(cart.getId(), cartOf(2L));
+        assertThat(cartRepository.findByUserId(1L), nullValue());
+        assertThat(cartRepository.findByUserId(2L).getId(), equalTo(cart.getId()));
+
+        cartRepository.delete(cart.getId());
+        assertThat(cartRepository.findByUserId(2L), nullValue());
+    }
+}
@@ -0,0 +1,79 @@
+package repositories;
+
+import models.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class InMemoryOrderRepositoryTest {
+
+    InMemoryOrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = new InMemoryOrderRepository();
+    }
+
+    private Order newOrder(long userId) {
+        return Order.builder().userId(userId).quantity(1).build();
+    }
+
+    @Test
+    public void should_find_only_orders_of_given_user() {
+        long first = orderRepository.create(newOrder(1L)).getId();
+        orderRepository.create(newOrder(2L));
+        long second = orderRepository.create(newOrder(1L)).getId();
+
+        assertThat(ids(orderRepository.findByUserId(1L)), contains(first, second));
+        assertThat(orderRepository.findByUserId(3L), empty());
+    }
+
+    @Test
+    public void should_walk_all_orders_page_by_page_with_keyset_cursor() {
+        int total = 2_500;
+        for (int i = 0; i < total; i++) {
+            orderRepository.create(newOrder(i % 5 == 0 ? 2L : 1L));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        long cursor = Long.MIN_VALUE;
+        List<Order> page;
+        while (!(page = orderRepository.findByUserId(1L, cursor, 300)).isEmpty()) {
+            assertThat(page.size() <= 300, equalTo(true));
+            page.forEach(order -> seen.add(order.getId()));
+            cursor = page.get(page.size() - 1).getId();
+        }
+
+        assertThat(seen, hasSize(2_000));
+        for (int i = 1; i < seen.size(); i++) {
+            assertThat(seen.get(i) > seen.get(i - 1), equalTo(true));
+        }
+    }
+
+    @Test
+    public void should_keep_index_sorted_for_explicit_ids_and_follow_updates_and_deletes() {
+        orderRepository.create(newOrder(1L).toBuilder().id(30L).build());
+        orderRepository.create(newOrder(1L).toBuilder().id(10L).build());
+        orderRepository.create(newOrder(1L).toBuilder().id(20L).build());
+
+        assertThat(ids(orderRepository.findByUserId(1L, 10L, 10)), contains(20L, 30L));
+
+        orderRepository.update(20L, newOrder(2L));
+        orderRepository.delete(30L);
+
+        assertThat(ids(orderRepository.findByUserId(1L)), contains(10L));
+        assertThat(ids(orderRepository.findByUserId(2L)), contains(20L));
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package repositories;
+
+import models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import security.PasswordConfig;
+import security.PasswordVerifier;
+import services.UserService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryUserRepositoryTest {
+
+    InMemoryUserRepository userRepository;
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = new InMemoryUserRepository();
+        userService = new UserService(userRepository,
+                new PasswordVerifier(PasswordConfig.builder().iterations(1_000).build()));
+    }
+
+    private User newUser(String email) {
+        return User.builder().username("quang").password("123456").email(email).build();
+    }
+
+    @Test
+    public void should_login_with_normalized_email() {
+        User created = userService.createUser(newUser("User@Gmail.com"));
+
+        assertThat(userService.login("  user@gmail.COM ", "123456"), equalTo(created.getId()));
+        assertThrows(IllegalArgumentException.class, () -> userService.createUser(newUser("USER@gmail.com")));
+    }
+
+    @Test
+    public void should_move_index_entry_when_email_changes_and_drop_it_on_delete() {
+        User created = userRepository.create(newUser("old@gmail.com"));
+        User other = userRepository.create(newUser("other@gmail.com"));
+
+        userRepository.update(created.getId(), newUser("new@gmail.com"));
+        assertThat(userRepository.findByEmail("old@gmail.com"), nullValue());
+        assertThat(userRepository.findByEmail("new@gmail.com").getId(), equalTo(created.getId()));
+        assertThrows(IllegalArgumentException.class,
+                () -> userRepository.update(other.getId(), newUser("new@gmail.com")));
+        assertThat(userRepository.findById(other.getId()).getEmail(), equalTo("other@gmail.com"));
+
+        userRepository.delete(created.getId());
+        assertThat(userRepository.findByEmail("new@gmail.com"), nullValue());
+        assertThat(userRepository.createIfEmailAbsent(newUser("new@gmail.com")).getEmail(), equalTo("new@gmail.com"));
+    }
+
+    @Test
+    public void should_register_only_once_when_signups_race_on_one_email() throws InterruptedException {
+        int attempts = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger registered = new AtomicInteger();
+
+        for (int i = 0; i < attempts; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    userService.createUser(newUser("burst@gmail.com"));
+                    registered.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // email đã được đăng ký
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(registered.get(), equalTo(1));
+        assertThat(userRepository.size(), equalTo(1));
+    }
+
+    @Test
+    public void should_prepare_only_after_reserving_email_and_release_it_on_failure() {
+        userRepository.create(newUser("taken@gmail.com"));
+        AtomicInteger prepared = new AtomicInteger();
+
+        assertThat(userRepository.createIfEmailAbsent(newUser("taken@gmail.com"), user -> {
+            prepared.incrementAndGet();
+            return user;
+        }), nullValue());
+        assertThat(prepared.get(), equalTo(0));
+
+        assertThrows(IllegalStateException.class, () -> userRepository.createIfEmailAbsent(newUser("free@gmail.com"), user -> {
+            throw new IllegalStateException("hash failed");
+        }));
+        assertThat(userRepository.createIfEmailAbsent(newUser("free@gmail.com")).getEmail(), equalTo("free@gmail.com"));
+    }
+}
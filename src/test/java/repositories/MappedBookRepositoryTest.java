@@ -0,0 +1,130 @@
+package repositories;
+
+import models.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import services.BookService;
+import stock.StockEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedBookRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private Book newBook(String title, int stock) {
+        return Book.builder()
+                .title(title)
+                .author("Nguyễn Văn A")
+                .publisher("NXB Trẻ")
+                .isbn("978-604-1")
+                .price(12.5)
+                .stockQuantity(stock)
+                .description(null)
+                .build();
+    }
+
+    @Test
+    public void should_store_and_materialize_all_fields() throws IOException {
+        try (MappedBookRepository repository = new MappedBookRepository(directory)) {
+            Book created = repository.create(newBook("Lập trình Java", 7));
+
+            Book found = repository.findById(created.getId());
+
+            assertThat(found, equalTo(newBook("Lập trình Java", 7).toBuilder().id(created.getId()).build()));
+            assertThat(found.getDescription(), nullValue());
+        }
+    }
+
+    @Test
+    public void should_reopen_with_same_content_after_update_and_delete() throws IOException {
+        long keptId;
+        long deletedId;
+        try (MappedBookRepository repository = new MappedBookRepository(directory)) {
+            keptId = repository.create(newBook("Kept", 1)).getId();
+            deletedId = repository.create(newBook("Deleted", 1)).getId();
+            repository.update(keptId, newBook("Kept Updated", 9).toBuilder().price(99.0).build());
+            repository.delete(deletedId);
+        }
+
+        try (MappedBookRepository reopened = new MappedBookRepository(directory)) {
+            assertThat(reopened.size(), equalTo(1));
+            assertThat(reopened.findById(deletedId), nullValue());
+            Book kept = reopened.findById(keptId);
+            assertThat(kept.getTitle(), equalTo("Kept Updated"));
+            assertThat(kept.getStockQuantity(), equalTo(9));
+            assertThat(kept.getPrice(), equalTo(99.0));
+
+            long nextId = reopened.create(newBook("Next", 1)).getId();
+            assertTrue(nextId > deletedId);
+        }
+    }
+
+    @Test
+    public void should_search_after_reopen_and_follow_later_changes() throws IOException {
+        try (MappedBookRepository repository = new MappedBookRepository(directory)) {
+            repository.create(newBook("Java Programming", 1));
+            repository.create(newBook("Cooking", 1));
+        }
+
+        try (MappedBookRepository reopened = new MappedBookRepository(directory)) {
+            BookService bookService = new BookService(reopened, new StockEngine());
+
+            assertThat(bookService.searchBooks("java"), hasSize(1));
+
+            Book advanced = bookService.createBook(newBook("Advanced Java", 1));
+            assertThat(bookService.searchBooks("java"), hasSize(2));
+            assertThat(bookService.autocomplete("adv", 10).getTitles(), hasSize(1));
+
+            bookService.deleteBook(advanced.getId());
+            assertThat(bookService.searchBooks("java"), hasSize(1));
+            assertThat(bookService.autocomplete("jav", 10).getTitles(), hasSize(1));
+            assertThat(bookService.searchBooks("nguyễn"), hasSize(2));
+        }
+    }
+
+    @Test
+    public void should_reject_duplicate_id_and_ignore_update_of_missing_id() throws IOException {
+        try (MappedBookRepository repository = new MappedBookRepository(directory)) {
+            repository.create(newBook("First", 1).toBuilder().id(5L).build());
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repository.create(newBook("Second", 1).toBuilder().id(5L).build()));
+            assertThat(repository.update(6L, newBook("Ghost", 1)), nullValue());
+        }
+    }
+
+    @Test
+    public void should_visit_live_books_across_chunks_while_writes_happen() throws IOException {
+        try (MappedBookRepository repository = new MappedBookRepository(directory)) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                ids.add(repository.create(newBook("Book " + i, i)).getId());
+            }
+            repository.delete(ids.get(0));
+            List<Book> visited = new ArrayList<>();
+
+            repository.forEachBook(book -> {
+                visited.add(book);
+                if (visited.size() == 1) {
+                    // lock đã được nhả trước khi gọi action, nên ghi ở đây không bị chặn
+                    repository.delete(ids.get(599));
+                }
+            });
+
+            assertThat(visited, hasSize(598));
+            assertThat(visited.get(0).getTitle(), equalTo("Book 1"));
+        }
+    }
+}
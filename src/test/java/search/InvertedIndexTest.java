@@ -0,0 +1,168 @@
+package search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class InvertedIndexTest {
+
+    private static long[] sorted(long[] keys) {
+        long[] copy = keys.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void should_match_all_query_tokens_case_insensitively() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1L, "Java Programming", "Author One");
+        index.put(2L, "Advanced JAVA", "Author Two");
+        index.put(3L, "Cooking", "Chef");
+
+        assertThat(sorted(index.search("java")), equalTo(new long[]{1L, 2L}));
+        assertThat(index.search("java programming"), equalTo(new long[]{1L}));
+        assertThat(index.search("C++/Java Programming!@#$%").length, equalTo(0));
+        assertThat(index.search("!!!").length, equalTo(0));
+        assertThat(index.search("missing").length, equalTo(0));
+    }
+
+    @Test
+    public void should_reindex_on_put_and_forget_on_remove() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1L, "Old Title");
+
+        index.put(1L, "New Title");
+        assertThat(index.search("old").length, equalTo(0));
+        assertThat(index.search("new"), equalTo(new long[]{1L}));
+
+        index.remove(1L);
+        assertThat(index.search("title").length, equalTo(0));
+        assertThat(index.size(), equalTo(0));
+        assertThat(index.termCount(), equalTo(0));
+    }
+
+    @Test
+    public void should_stay_consistent_after_many_updates_and_compactions() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 0; id < 500; id++) {
+            index.put(id, "common", "group" + (id % 5));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (long id = 0; id < 500; id += 2) {
+                index.put(id, "common", "group" + ((id + round) % 5));
+            }
+        }
+        for (long id = 0; id < 500; id += 10) {
+            index.remove(id);
+        }
+
+        assertThat(index.size(), equalTo(450));
+        assertThat(index.search("common").length, equalTo(450));
+        long expected = 0;
+        for (long id = 0; id < 500; id++) {
+            long group = id % 2 == 0 ? (id + 19) % 5 : id % 5;
+            if (id % 10 != 0 && group == 3) {
+                expected++;
+            }
+        }
+        assertThat((long) index.search("common group3").length, equalTo(expected));
+    }
+
+    @Test
+    public void should_rank_weighted_fields_and_frequent_terms_first() {
+        InvertedIndex index = new InvertedIndex();
+        int[] weights = {3, 1};
+        index.put(1L, weights, "Cooking", "a short note about java");
+        index.put(2L, weights, "Java", "java java");
+        index.put(3L, weights, "Java Programming", "a long book about many other topics");
+        index.put(4L, weights, "Gardening", "nothing here");
+
+        RankedResult result = index.searchRanked("java", 0, 10, null);
+
+        assertThat(result.totalHits(), equalTo(3));
+        assertThat(new long[]{result.key(0), result.key(1), result.key(2)}, equalTo(new long[]{2L, 3L, 1L}));
+        assertThat(result.score(0) > result.score(1) && result.score(1) > result.score(2), equalTo(true));
+        assertThat(result.nextCursor(), equalTo(null));
+    }
+
+    @Test
+    public void should_page_by_offset_and_cursor_in_the_same_order() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 0; id < 1_000; id++) {
+            index.put(id, "common " + "word ".repeat((int) (id % 7)), "filler " + "x ".repeat((int) (id % 13)));
+        }
+        RankedResult all = index.searchRanked("common", 0, 1_000, null);
+        assertThat(all.size(), equalTo(1_000));
+
+        int position = 0;
+        SearchCursor cursor = null;
+        do {
+            RankedResult page = index.searchRanked("common", 0, 64, cursor);
+            RankedResult byOffset = index.searchRanked("common", position, 64, null);
+            for (int i = 0; i < page.size(); i++) {
+                assertThat(page.key(i), equalTo(all.key(position + i)));
+                assertThat(byOffset.key(i), equalTo(all.key(position + i)));
+            }
+            position += page.size();
+            cursor = page.nextCursor() == null ? null : SearchCursor.decode(page.nextCursor().encode());
+        } while (cursor != null);
+
+        assertThat(position, equalTo(1_000));
+        assertThat(index.searchRanked("common word", 0, 5, null).totalHits(), equalTo(1_000 - 1_000 / 7 - 1));
+    }
+
+    @Test
+    public void should_find_misspelled_terms_within_edit_distance() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1L, "Introduction to Algorithms");
+        index.put(2L, "Algorithm Design");
+        index.put(3L, "Grokking Algorithms", "Illustrated");
+        index.put(4L, "Cooking");
+
+        RankedResult typo = index.searchFuzzy("algoritms", 2, 10, TimeUnit.SECONDS.toNanos(1));
+        assertThat(sorted(keysOf(typo)), equalTo(new long[]{1L, 2L, 3L}));
+        assertThat(typo.score(0), equalTo(-1.0));
+        assertThat(typo.isPartial(), equalTo(false));
+
+        assertThat(keysOf(index.searchFuzzy("algoritms ilustrated", 1, 10, TimeUnit.SECONDS.toNanos(1))), equalTo(new long[]{3L}));
+        assertThat(index.searchFuzzy("algoritms", 0, 10, TimeUnit.SECONDS.toNanos(1)).size(), equalTo(0));
+        assertThat(index.searchFuzzy("zzzzzz", 2, 10, TimeUnit.SECONDS.toNanos(1)).size(), equalTo(0));
+
+        index.remove(2L);
+        assertThat(sorted(keysOf(index.searchFuzzy("algoritm", 2, 10, TimeUnit.SECONDS.toNanos(1)))), equalTo(new long[]{1L, 3L}));
+    }
+
+    @Test
+    public void should_rank_exact_matches_first_and_mark_partial_results() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1L, "java");
+        index.put(2L, "jave");
+        index.put(3L, "jav");
+
+        RankedResult result = index.searchFuzzy("java", 2, 10, TimeUnit.SECONDS.toNanos(1));
+        assertThat(keysOf(result), equalTo(new long[]{1L, 2L, 3L}));
+        assertThat(index.searchFuzzy("java", 2, 10, 0).isPartial(), equalTo(true));
+    }
+
+    @Test
+    public void should_compute_bounded_edit_distance_with_transpositions() {
+        assertThat(NGramIndex.distance("algoritms", "algorithms", 2), equalTo(1));
+        assertThat(NGramIndex.distance("jvaa", "java", 2), equalTo(1));
+        assertThat(NGramIndex.distance("java", "java", 0), equalTo(0));
+        assertThat(NGramIndex.distance("kitten", "sitting", 3), equalTo(3));
+        assertThat(NGramIndex.distance("kitten", "sitting", 2), equalTo(3));
+        assertThat(NGramIndex.distance("a", "abcd", 1), equalTo(2));
+    }
+
+    private static long[] keysOf(RankedResult result) {
+        long[] keys = new long[result.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = result.key(i);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,88 @@
+package search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PrefixIndexTest {
+
+    @Test
+    public void should_complete_any_token_prefix_by_weight() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("Java Programming");
+        index.add("JavaScript: The Good Parts");
+        index.add("JavaScript: The Good Parts");
+        index.add("Effective Java");
+        index.add("Cooking");
+
+        assertThat(index.complete("java", 10).get(0), equalTo("JavaScript: The Good Parts"));
+        assertThat(index.complete("JAVA", 10), containsInAnyOrder("JavaScript: The Good Parts", "Java Programming", "Effective Java"));
+        assertThat(index.complete("prog", 10), contains("Java Programming"));
+        assertThat(index.complete("java p", 10), contains("Java Programming"));
+        assertThat(index.complete("javas", 1), contains("JavaScript: The Good Parts"));
+        assertThat(index.complete("xyz", 10), empty());
+        assertThat(index.complete("  ", 10), empty());
+    }
+
+    @Test
+    public void should_lower_weight_and_drop_entries_on_remove() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("Java");
+        index.add("Java");
+        index.add("Javelin");
+
+        index.remove("java");
+        assertThat(index.complete("jav", 10), containsInAnyOrder("Java", "Javelin"));
+        index.remove("Java");
+        assertThat(index.complete("jav", 10), contains("Javelin"));
+        index.remove("Javelin");
+        assertThat(index.complete("j", 10), empty());
+        assertThat(index.size(), equalTo(0));
+    }
+
+    @Test
+    public void should_match_brute_force_after_random_adds_and_removes() {
+        String[] words = {"an", "ant", "anthem", "bat", "batch", "bath", "b", "cat", "catalog", "dog"};
+        Random random = new Random(42);
+        PrefixIndex index = new PrefixIndex();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int step = 0; step < 5_000; step++) {
+            String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            if (random.nextInt(3) == 0 && counts.containsKey(text)) {
+                index.remove(text);
+                counts.merge(text, -1, Integer::sum);
+                counts.remove(text, 0);
+            } else {
+                index.add(text);
+                counts.merge(text, 1, Integer::sum);
+            }
+        }
+        for (String prefix : new String[]{"a", "an", "ant", "b", "ba", "bat", "batc", "c", "cata", "d", "an b", "z"}) {
+            List<String> expected = new ArrayList<>();
+            for (String text : counts.keySet()) {
+                for (int i = 0; i >= 0; i = text.indexOf(' ', i) < 0 ? -1 : text.indexOf(' ', i) + 1) {
+                    if (text.startsWith(prefix, i)) {
+                        expected.add(text);
+                        break;
+                    }
+                }
+            }
+            List<String> actual = index.complete(prefix.toUpperCase(Locale.ROOT), 1_000);
+            assertThat(prefix, actual, containsInAnyOrder(expected.toArray()));
+            for (int i = 1; i < actual.size(); i++) {
+                assertThat(counts.get(actual.get(i - 1)) >= counts.get(actual.get(i)), equalTo(true));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PasswordVerifierTest {
+
+    @Test
+    public void should_hash_with_random_salt_and_verify() {
+        PasswordHasher hasher = new PasswordHasher(1_000);
+
+        String first = hasher.hash("123456");
+        String second = hasher.hash("123456");
+
+        assertThat(first, startsWith("pbkdf2$1000$"));
+        assertThat(first, not(equalTo(second)));
+        assertTrue(hasher.matches("123456", first));
+        assertFalse(hasher.matches("654321", first));
+        assertFalse(hasher.matches(null, first));
+        assertFalse(hasher.matches("123456", "pbkdf2$broken"));
+    }
+
+    @Test
+    public void should_verify_hash_made_with_other_cost_and_legacy_plaintext() {
+        String cheap = new PasswordHasher(500).hash("secret");
+        PasswordHasher hasher = new PasswordHasher(2_000);
+
+        assertTrue(hasher.matches("secret", cheap));
+        assertTrue(hasher.matches("secret", "secret"));
+        assertFalse(hasher.matches("secre", "secret"));
+    }
+
+    @Test
+    public void should_reject_early_when_queue_is_full() {
+        try (PasswordVerifier verifier = new PasswordVerifier(PasswordConfig.builder()
+                .iterations(300_000).threads(1).queueCapacity(1).build())) {
+            String encoded = new PasswordHasher(300_000).hash("123456");
+
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(verifier.verify("123456", encoded));
+            }
+
+            assertTrue(futures.get(0).join());
+            CompletionException rejected = assertThrows(CompletionException.class, () -> futures.get(4).join());
+            assertThat(rejected.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+    }
+}
@@ -8,8 +8,12 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repositories.IBookRepository;
+import stock.StockEngine;
+import stock.StockMovement;
+import stock.StockReason;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,6 +32,9 @@ public class BookServiceTest {
     @Mock
     IBookRepository bookRepository;
 
+    @Spy
+    StockEngine stockEngine = new StockEngine();
+
     @InjectMocks
     BookService bookService;
 
@@ -599,9 +606,9 @@ public class BookServiceTest {
 
         // Assert
         assertTrue(result);
-        assertThat(book.getStockQuantity(), equalTo(initialStock + quantityToAdd));
+        assertThat(stockEngine.available(book.getId()), equalTo(initialStock + quantityToAdd));
         verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).update(eq(bookId), any(Book.class));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
 
     @Test
@@ -626,7 +633,7 @@ public class BookServiceTest {
 
         // Assert
         assertFalse(result);
-        assertThat(book.getStockQuantity(), equalTo(initialStock)); // Stock should remain unchanged
+        assertThat(stockEngine.available(book.getId()), equalTo(initialStock)); // Stock should remain unchanged
         verify(bookRepository, times(1)).findById(bookId);
         verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
@@ -670,9 +677,9 @@ public class BookServiceTest {
 
         // Assert
         assertTrue(result);
-        assertThat(book.getStockQuantity(), equalTo(initialStock)); // Should remain unchanged
+        assertThat(stockEngine.available(book.getId()), equalTo(initialStock)); // Should remain unchanged
         verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).update(eq(bookId), any(Book.class));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
 
     @Test
@@ -697,9 +704,9 @@ public class BookServiceTest {
 
         // Assert
         assertTrue(result);
-        assertThat(book.getStockQuantity(), equalTo(0));
+        assertThat(stockEngine.available(book.getId()), equalTo(0));
         verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).update(eq(bookId), any(Book.class));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
 
     @Test
@@ -724,7 +731,7 @@ public class BookServiceTest {
 
         // Assert
         assertFalse(result);
-        assertThat(book.getStockQuantity(), equalTo(initialStock)); // Stock should remain unchanged
+        assertThat(stockEngine.available(book.getId()), equalTo(initialStock)); // Stock should remain unchanged
         verify(bookRepository, times(1)).findById(bookId);
         verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
@@ -751,9 +758,9 @@ public class BookServiceTest {
 
         // Assert
         assertTrue(result);
-        assertThat(book.getStockQuantity(), equalTo(initialStock + largeQuantityToAdd));
+        assertThat(stockEngine.available(book.getId()), equalTo(initialStock + largeQuantityToAdd));
         verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).update(eq(bookId), any(Book.class));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
 
     @Test
@@ -778,8 +785,28 @@ public class BookServiceTest {
 
         // Assert
         assertTrue(result);
-        assertThat(book.getStockQuantity(), equalTo(initialStock + quantityToAdd));
+        assertThat(stockEngine.available(book.getId()), equalTo(initialStock + quantityToAdd));
         verify(bookRepository, times(1)).findById(negativeBookId);
-        verify(bookRepository, times(1)).update(eq(negativeBookId), any(Book.class));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
+    }
+
+    @Test
+    public void should_apply_stock_edit_as_delta_and_keep_concurrent_reservations() {
+        long bookId = 3L;
+        Book stored = Book.builder().id(bookId).title("T").author("A").price(1.0).stockQuantity(10).build();
+        when(bookRepository.findById(bookId)).thenAnswer(invocation -> stored.toBuilder().build());
+        when(bookRepository.update(eq(bookId), any(Book.class))).thenAnswer(invocation -> invocation.getArgument(1));
+        stockEngine.track(bookId, 10);
+        stockEngine.tryReserve(bookId, 4);
+
+        Book renamed = bookService.updateBook(bookId, stored.toBuilder().title("New").stockQuantity(6).build());
+        assertThat(renamed.getStockQuantity(), equalTo(6));
+        assertThat(stockEngine.ledger().history(bookId).size(), equalTo(1));
+
+        bookService.updateBook(bookId, stored.toBuilder().stockQuantity(9).build());
+        assertThat(stockEngine.available(bookId), equalTo(9));
+        StockMovement last = stockEngine.ledger().history(bookId).get(1);
+        assertThat(last.reason(), equalTo(StockReason.ADJUSTMENT));
+        assertThat(last.delta(), equalTo(3));
     }
 }
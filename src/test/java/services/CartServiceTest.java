@@ -10,13 +10,27 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repositories.IBookRepository;
 import repositories.ICartItemRepository;
 import repositories.ICartRepository;
 import repositories.IUserRepository;
-
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryCartItemRepository;
+import repositories.InMemoryCartRepository;
+import repositories.InMemoryUserRepository;
+import stock.StockEngine;
+import stock.StockReservations;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -39,6 +53,12 @@ public class CartServiceTest {
     @Mock
     ICartItemRepository cartItemRepository;
 
+    @Spy
+    StockEngine stockEngine = new StockEngine();
+
+    @Spy
+    StockReservations stockReservations = new StockReservations(stockEngine);
+
     @InjectMocks
     CartService cartService;
 
@@ -169,4 +189,115 @@ public class CartServiceTest {
 
         verify(cartRepository).findByUserId(userId);
     }
+
+    @Test
+    void should_create_cart_with_item_map_when_user_has_no_cart() {
+        long userId = 1L;
+        User user = User.builder().id(userId).build();
+        when(userRepository.findById(userId)).thenReturn(user);
+        when(bookRepository.findById(10L)).thenReturn(Book.builder().id(10L).stockQuantity(5).build());
+        when(cartRepository.findByUserId(userId)).thenReturn(null);
+        when(cartRepository.create(any(Cart.class))).thenAnswer(inv -> {
+            Cart c = inv.getArgument(0);
+            c.setId(7L);
+            return c;
+        });
+
+        long cartId = cartService.addItem(userId, 10L, 2);
+
+        assertThat(cartId, equalTo(7L));
+        verify(cartRepository).create(argThat(cart -> cart.getItems().getOrDefault(10L, 0) == 2));
+        verifyNoInteractions(cartItemRepository);
+    }
+
+    @Test
+    void should_accumulate_quantity_and_move_single_item_into_map() {
+        long userId = 1L;
+        User user = User.builder().id(userId).build();
+        Book oldBook = Book.builder().id(10L).stockQuantity(5).build();
+        Book newBook = Book.builder().id(20L).stockQuantity(3).build();
+        Cart cart = Cart.builder().id(7L).user(user)
+                .cartItem(CartItem.builder().id(1L).book(oldBook).quantity(1).build())
+                .build();
+        cart.getItems().put(20L, 2);
+        when(userRepository.findById(userId)).thenReturn(user);
+        when(bookRepository.findById(20L)).thenReturn(newBook);
+        when(cartRepository.findByUserId(userId)).thenReturn(cart);
+
+        cartService.addItem(userId, 20L, 5); // 2 + 5 nhưng stock chỉ 3
+
+        assertThat(cart.getCartItem(), equalTo(null));
+        assertThat(cart.getItems().getOrDefault(10L, 0), equalTo(1));
+        assertThat(cart.getItems().getOrDefault(20L, 0), equalTo(3));
+        verify(cartRepository).update(7L, cart);
+    }
+
+    @Test
+    void should_change_and_remove_items_of_existing_cart() {
+        Cart cart = Cart.builder().id(7L).build();
+        cart.getItems().put(10L, 1);
+        cart.getItems().put(20L, 1);
+        when(cartRepository.findById(7L)).thenReturn(cart);
+        when(bookRepository.findById(10L)).thenReturn(Book.builder().id(10L).stockQuantity(9).build());
+
+        cartService.changeQuantity(7L, 10L, 4);
+        cartService.changeQuantity(7L, 20L, 0);
+
+        assertThat(cart.getItems().size(), equalTo(1));
+        assertThat(cart.getItems().getOrDefault(10L, 0), equalTo(4));
+        assertThrows(IllegalArgumentException.class, () -> cartService.changeQuantity(7L, 30L, 1));
+        assertThrows(IllegalArgumentException.class, () -> cartService.addItem(1L, 10L, 0));
+        verify(cartRepository, times(2)).update(7L, cart);
+    }
+
+    @Test
+    void should_keep_one_cart_and_every_line_when_a_user_adds_items_concurrently() throws Exception {
+        InMemoryUserRepository users = new InMemoryUserRepository();
+        InMemoryBookRepository books = new InMemoryBookRepository();
+        InMemoryCartRepository carts = new InMemoryCartRepository();
+        StockEngine engine = new StockEngine();
+        StockReservations reservations = new StockReservations(engine);
+        CartService service = new CartService(users, books, new InMemoryCartItemRepository(), carts, engine, reservations);
+        int threads = 8;
+        int rounds = 50;
+        long[] bookIds = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            bookIds[t] = books.create(Book.builder().title("B" + t).author("A").stockQuantity(1_000).build()).getId();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                long userId = users.create(User.builder().email("u" + round + "@example.com").build()).getId();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Long>> adds = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long bookId = bookIds[t];
+                    adds.add(executor.submit(() -> {
+                        start.await();
+                        service.addItem(userId, bookId, 1);
+                        return service.addItem(userId, bookId, 1);
+                    }));
+                }
+                start.countDown();
+                long cartId = adds.get(0).get(30, TimeUnit.SECONDS);
+                for (Future<Long> add : adds) {
+                    assertThat(add.get(30, TimeUnit.SECONDS), equalTo(cartId));
+                }
+                Cart cart = carts.findById(cartId);
+                for (long bookId : bookIds) {
+                    assertThat(cart.getItems().getOrDefault(bookId, 0), equalTo(2));
+                    assertThat(reservations.held(cartId, bookId), equalTo(2));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(carts.size(), equalTo(rounds));
+        for (long bookId : bookIds) {
+            // mọi hàng đang giữ đều thuộc một dòng trong giỏ: không có hàng bị giữ mà mất dòng
+            assertThat(engine.available(bookId), equalTo(1_000 - 2 * rounds));
+        }
+    }
 }
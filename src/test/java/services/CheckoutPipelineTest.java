@@ -0,0 +1,133 @@
+package services;
+
+import models.Book;
+import models.Cart;
+import models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryCartRepository;
+import repositories.InMemoryOrderRepository;
+import stock.StockEngine;
+import stock.StockReservations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CheckoutPipelineTest {
+    private final InMemoryBookRepository bookRepository = new InMemoryBookRepository();
+    private final InMemoryCartRepository cartRepository = new InMemoryCartRepository();
+    private final InMemoryOrderRepository orderRepository = new InMemoryOrderRepository();
+    private final StockEngine stockEngine = new StockEngine();
+    private final OrderService orderService = new OrderService(cartRepository, orderRepository, bookRepository,
+            stockEngine, new StockReservations(stockEngine));
+    private final CheckoutPipeline pipeline = new CheckoutPipeline(orderService, cartRepository,
+            PipelineConfig.builder().partitions(2).ringSize(4_096).batchSize(32).build());
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+    }
+
+    private long newCart(long userId, long bookId, int quantity) {
+        Cart cart = Cart.builder().user(User.builder().id(userId).build()).build();
+        cart.getItems().put(bookId, quantity);
+        return cartRepository.create(cart).getId();
+    }
+
+    @Test
+    public void should_sell_exactly_the_stock_when_checkouts_flood_one_book() throws InterruptedException {
+        int stock = 300;
+        int buyers = 1_000;
+        Book book = bookRepository.create(Book.builder().title("Hot").author("A").price(1.0).stockQuantity(stock).build());
+        long[] cartIds = new long[buyers];
+        for (int i = 0; i < buyers; i++) {
+            cartIds[i] = newCart(i, book.getId(), 1);
+        }
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (long cartId : cartIds) {
+            futures.add(CompletableFuture.supplyAsync(() -> pipeline.submit(cartId), executor).thenCompose(f -> f));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int sold = 0;
+        for (CompletableFuture<Long> future : futures) {
+            try {
+                assertThat(orderRepository.findById(future.join()).getQuantity(), equalTo(1));
+                sold++;
+            } catch (CompletionException e) {
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+        assertThat(sold, equalTo(stock));
+        assertThat(stockEngine.available(book.getId()), equalTo(0));
+    }
+
+    @Test
+    public void should_fail_future_like_synchronous_checkout() {
+        Book book = bookRepository.create(Book.builder().title("T").author("A").price(1.0).stockQuantity(1).build());
+        long tooMany = newCart(1L, book.getId(), 5);
+
+        CompletionException shortage = assertThrows(CompletionException.class, () -> pipeline.submit(tooMany).join());
+        CompletionException missing = assertThrows(CompletionException.class, () -> pipeline.submit(987_654L).join());
+
+        assertThat(shortage.getCause().getMessage(), equalTo("Not enough stock"));
+        assertThat(missing.getCause(), instanceOf(NotFoundException.class));
+    }
+
+    @Test
+    public void should_pass_through_the_original_exception_of_a_failed_cart() {
+        long cartId = newCart(1L, 424_242L, 1);
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> pipeline.submit(cartId).join());
+
+        assertThat(failure.getCause(), instanceOf(NotFoundException.class));
+        assertThat(failure.getCause().getMessage(), equalTo("Book not found"));
+    }
+
+    @Test
+    public void should_finish_every_accepted_checkout_when_closed_while_submitting() throws InterruptedException {
+        Book book = bookRepository.create(Book.builder().title("T").author("A").price(1.0).stockQuantity(100_000).build());
+        List<CompletableFuture<Long>> accepted = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long userId = t;
+            submitters.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    try {
+                        CompletableFuture<Long> future = pipeline.submit(newCart(userId, book.getId(), 1));
+                        synchronized (accepted) {
+                            accepted.add(future);
+                        }
+                    } catch (RuntimeException e) {
+                        assertThat(e, instanceOf(RejectedExecutionException.class));
+                    }
+                }
+            }, executor));
+        }
+        Thread.sleep(5);
+        pipeline.close();
+        CompletableFuture.allOf(submitters.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+
+        for (CompletableFuture<Long> future : accepted) {
+            assertThat(future.completeOnTimeout(-1L, 10, TimeUnit.SECONDS).join() > 0, equalTo(true));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdempotencyStoreTest {
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private IdempotencyStore store(int maxKeys) {
+        return new IdempotencyStore(IdempotencyConfig.builder().maxKeys(maxKeys).ttl(Duration.ofMinutes(1)).build(),
+                clock::get);
+    }
+
+    @Test
+    public void should_return_first_result_and_error_for_duplicates() {
+        IdempotencyStore store = store(10);
+
+        assertThat(store.execute("a", "1", () -> 100L + runs.incrementAndGet()), equalTo(101L));
+        assertThat(store.execute("a", "1", () -> 100L + runs.incrementAndGet()), equalTo(101L));
+        IllegalStateException first = assertThrows(IllegalStateException.class, () -> store.execute("b", "1", () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("Not enough stock");
+        }));
+        IllegalStateException again = assertThrows(IllegalStateException.class,
+                () -> store.execute("b", "1", runs::incrementAndGet));
+
+        assertThat(again, equalTo(first));
+        assertThat(runs.get(), equalTo(2));
+        assertThrows(IllegalArgumentException.class, () -> store.execute("a", "2", runs::incrementAndGet));
+    }
+
+    @Test
+    public void should_forget_keys_after_ttl_or_when_full_and_not_remember_transient_errors() {
+        IdempotencyStore store = store(2);
+        store.execute("a", "1", runs::incrementAndGet);
+        store.execute("b", "1", runs::incrementAndGet);
+        store.execute("c", "1", runs::incrementAndGet);
+        assertThat(store.size(), equalTo(2));
+
+        store.execute("a", "1", runs::incrementAndGet); // "a" đã bị đẩy ra
+        clock.addAndGet(Duration.ofMinutes(2).toMillis());
+        store.execute("c", "1", runs::incrementAndGet); // "c" đã hết hạn
+        assertThrows(RejectedExecutionException.class, () -> store.execute("d", "1", () -> {
+            throw new RejectedExecutionException("busy");
+        }));
+        store.execute("d", "1", runs::incrementAndGet);
+
+        assertThat(runs.get(), equalTo(6));
+        assertThat(store.size(), equalTo(2));
+    }
+
+    @Test
+    public void should_run_once_when_duplicates_race() throws InterruptedException {
+        IdempotencyStore store = store(10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sameResult = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            executor.submit(() -> {
+                start.await();
+                long orderId = store.execute("retry", "7", () -> 1_000L + runs.incrementAndGet());
+                if (orderId == 1_001L) {
+                    sameResult.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(runs.get(), equalTo(1));
+        assertThat(sameResult.get(), equalTo(100));
+    }
+
+    @Test
+    public void should_keep_in_flight_keys_when_full_and_reject_new_key_when_all_are_in_flight() throws Exception {
+        IdempotencyStore store = store(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch aInside = new CountDownLatch(1);
+        CompletableFuture<Long> a = CompletableFuture.supplyAsync(
+                () -> store.execute("a", "1", () -> blockUntil(aInside, release, 100L + runs.incrementAndGet())));
+        aInside.await();
+
+        store.execute("b", "1", runs::incrementAndGet);
+        store.execute("c", "1", runs::incrementAndGet); // "b" bị đẩy ra, "a" đang chạy thì không
+        CountDownLatch dInside = new CountDownLatch(1);
+        CompletableFuture<Long> d = CompletableFuture.supplyAsync(
+                () -> store.execute("d", "1", () -> blockUntil(dInside, release, 0L)));
+        dInside.await(); // "c" bị đẩy ra, còn "a" và "d" đều đang chạy
+
+        assertThrows(RejectedExecutionException.class, () -> store.execute("e", "1", runs::incrementAndGet));
+        assertThat(store.size(), equalTo(2));
+
+        release.countDown();
+        assertThat(a.get(30, TimeUnit.SECONDS), equalTo(101L));
+        d.get(30, TimeUnit.SECONDS);
+        assertThat(store.execute("a", "1", () -> 100L + runs.incrementAndGet()), equalTo(101L));
+        assertThat(runs.get(), equalTo(3));
+    }
+
+    private static long blockUntil(CountDownLatch inside, CountDownLatch release, long value) {
+        inside.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    @Test
+    public void should_not_count_transient_failures_against_the_key_limit() {
+        IdempotencyStore store = store(2);
+        store.execute("a", "1", runs::incrementAndGet);
+        for (int i = 0; i < 5; i++) {
+            String key = "busy-" + i;
+            assertThrows(RejectedExecutionException.class, () -> store.execute(key, "1", () -> {
+                throw new RejectedExecutionException("busy");
+            }));
+        }
+        store.execute("b", "1", runs::incrementAndGet);
+
+        assertThat(store.size(), equalTo(2));
+        assertThat(store.execute("a", "1", runs::incrementAndGet), equalTo(1));
+        assertThat(runs.get(), equalTo(2));
+    }
+}
@@ -5,14 +5,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repositories.IBookRepository;
 import repositories.ICartRepository;
 import repositories.IOrderRepository;
+import stock.StockEngine;
+import stock.StockMovement;
+import stock.StockReason;
+import stock.StockReservations;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -30,6 +37,15 @@ public class OrderServiceTest {
     @Mock
     ICartRepository cartRepository;
 
+    @Spy
+    StockEngine stockEngine = new StockEngine();
+
+    @Spy
+    StockReservations stockReservations = new StockReservations(stockEngine);
+
+    @Spy
+    IdempotencyStore idempotencyStore = new IdempotencyStore();
+
     @InjectMocks
     OrderService orderService;
 
@@ -57,8 +73,9 @@ public class OrderServiceTest {
         long orderId = orderService.checkoutCart(cartId);
 
         assertThat(orderId, equalTo(999L));
-        assertThat(book.getStockQuantity(), equalTo(3)); // 5 - 2
-        verify(bookRepository).update(book.getId(), book);
+        assertThat(stockEngine.available(book.getId()), equalTo(3)); // 5 - 2
+        verify(orderRepository).create(argThat(order -> order.getUserId() == 1L));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
         verify(orderRepository).create(any(Order.class));
         verify(cartRepository).delete(cartId);
     }
@@ -135,8 +152,11 @@ public class OrderServiceTest {
 
         orderService.checkoutCart(cartId);
 
-        assertThat(book.getStockQuantity(), equalTo(6));
-        verify(bookRepository).update(book.getId(), book);
+        assertThat(stockEngine.available(book.getId()), equalTo(6));
+        assertThat(stockEngine.ledger().history(book.getId()).get(1),
+                equalTo(new StockMovement(book.getId(), -4, StockReason.CHECKOUT, 300L,
+                        stockEngine.ledger().history(book.getId()).get(1).time())));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
     }
 
     @Test
@@ -146,14 +166,71 @@ public class OrderServiceTest {
         Order order = Order.builder().id(orderId).book(book).quantity(2).build();
 
         when(orderRepository.findById(orderId)).thenReturn(order);
+        when(bookRepository.findById(1L)).thenReturn(book);
+
+        orderService.cancelOrder(orderId);
+
+        assertThat(stockEngine.available(book.getId()), equalTo(5)); // 3 + 2
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
+        verify(orderRepository).delete(orderId);
+    }
+
+    @Test
+    void should_skip_restock_when_cancelling_single_book_order_of_deleted_book() {
+        long orderId = 100L;
+        Book book = Book.builder().id(1L).stockQuantity(3).build();
+        Order order = Order.builder().id(orderId).book(book).quantity(2).build();
+
+        when(orderRepository.findById(orderId)).thenReturn(order);
+        when(bookRepository.findById(1L)).thenReturn(null);
 
         orderService.cancelOrder(orderId);
 
-        assertThat(book.getStockQuantity(), equalTo(5)); // 3 + 2
-        verify(bookRepository).update(book.getId(), book);
+        assertThat(stockEngine.isTracked(book.getId()), equalTo(false));
+        assertThat(stockEngine.ledger().history(book.getId()).isEmpty(), equalTo(true));
         verify(orderRepository).delete(orderId);
     }
 
+    @Test
+    void should_restore_stock_once_when_cancel_is_retried_with_same_key() {
+        long orderId = 100L;
+        Book book = Book.builder().id(1L).stockQuantity(3).build();
+        when(orderRepository.findById(orderId))
+                .thenReturn(Order.builder().id(orderId).book(book).quantity(2).build())
+                .thenReturn(null);
+        when(bookRepository.findById(1L)).thenReturn(book);
+
+        orderService.cancelOrder(orderId, "cancel-1");
+        orderService.cancelOrder(orderId, "cancel-1");
+
+        assertThat(stockEngine.available(book.getId()), equalTo(5)); // 3 + 2, một lần
+        assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrder(orderId, "cancel-2"));
+        verify(orderRepository, times(2)).findById(orderId);
+    }
+
+    @Test
+    void should_reject_second_cancel_while_first_is_running() throws Exception {
+        long orderId = 100L;
+        Book book = Book.builder().id(1L).stockQuantity(3).build();
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderRepository.findById(orderId)).thenAnswer(inv -> {
+            inside.countDown();
+            release.await();
+            return Order.builder().id(orderId).book(book).quantity(2).build();
+        });
+        when(bookRepository.findById(1L)).thenReturn(book);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> orderService.cancelOrder(orderId));
+        inside.await();
+        assertThrows(IllegalStateException.class, () -> orderService.cancelOrder(orderId));
+        release.countDown();
+        first.join();
+
+        assertThat(stockEngine.available(book.getId()), equalTo(5));
+        verify(orderRepository, times(1)).delete(orderId);
+    }
+
     @Test
     void should_throw_exception_when_cancel_non_existing_order() {
         long orderId = 200L;
@@ -195,4 +272,154 @@ public class OrderServiceTest {
         assertThat(orders.isEmpty(), equalTo(true));
         verify(orderRepository).findByUserId(userId);
     }
+
+    @Test
+    void should_cap_page_size_when_viewing_orders_by_page() {
+        long userId = 1L;
+        Order order = Order.builder().id(101L).userId(userId).quantity(1).build();
+        when(orderRepository.findByUserId(userId, 100L, OrderService.MAX_PAGE_SIZE)).thenReturn(List.of(order));
+
+        List<Order> orders = orderService.viewOrders(userId, 100L, Integer.MAX_VALUE);
+
+        assertThat(orders.size(), equalTo(1));
+        assertThrows(IllegalArgumentException.class, () -> orderService.viewOrders(userId, 0L, 0));
+    }
+
+    @Test
+    void should_checkout_all_items_of_cart_into_one_order() {
+        long cartId = 1L;
+        Book first = Book.builder().id(10L).stockQuantity(5).build();
+        Book second = Book.builder().id(20L).stockQuantity(3).build();
+        Cart cart = Cart.builder().id(cartId).user(User.builder().id(4L).build()).build();
+        cart.getItems().put(10L, 2);
+        cart.getItems().put(20L, 3);
+
+        when(cartRepository.findById(cartId)).thenReturn(cart);
+        when(bookRepository.findById(10L)).thenReturn(first);
+        when(bookRepository.findById(20L)).thenReturn(second);
+        when(orderRepository.create(any(Order.class))).thenAnswer(inv -> {
+            Order o = inv.getArgument(0);
+            o.setId(500L);
+            return o;
+        });
+
+        long orderId = orderService.checkoutCart(cartId);
+
+        assertThat(orderId, equalTo(500L));
+        assertThat(stockEngine.available(first.getId()), equalTo(3));
+        assertThat(stockEngine.available(second.getId()), equalTo(0));
+        verify(orderRepository, times(1)).create(argThat(order -> order.getQuantity() == 5
+                && order.getUserId() == 4L
+                && order.getItems().getOrDefault(10L, 0) == 2
+                && order.getItems().getOrDefault(20L, 0) == 3));
+        verify(cartRepository).delete(cartId);
+    }
+
+    @Test
+    void should_release_reserved_lines_when_one_item_is_short() {
+        long cartId = 1L;
+        Book first = Book.builder().id(10L).stockQuantity(5).build();
+        Book second = Book.builder().id(20L).stockQuantity(1).build();
+        Cart cart = Cart.builder().id(cartId).user(new User()).build();
+        cart.getItems().put(10L, 2);
+        cart.getItems().put(20L, 3);
+
+        when(cartRepository.findById(cartId)).thenReturn(cart);
+        when(bookRepository.findById(10L)).thenReturn(first);
+        when(bookRepository.findById(20L)).thenReturn(second);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> orderService.checkoutCart(cartId));
+
+        assertThat(ex.getMessage(), equalTo("Not enough stock"));
+        // thứ tự duyệt dòng không cố định; track không ghi đè bộ đếm đã có
+        stockEngine.track(10L, 5);
+        stockEngine.track(20L, 1);
+        assertThat(stockEngine.available(10L), equalTo(5));
+        assertThat(stockEngine.available(20L), equalTo(1));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void should_restore_stock_of_every_item_when_cancel_multi_item_order() {
+        long orderId = 100L;
+        Book first = Book.builder().id(10L).stockQuantity(1).build();
+        Book second = Book.builder().id(20L).stockQuantity(0).build();
+        Order order = Order.builder().id(orderId).quantity(5).build();
+        order.getItems().put(10L, 2);
+        order.getItems().put(20L, 3);
+
+        when(orderRepository.findById(orderId)).thenReturn(order);
+        when(bookRepository.findById(10L)).thenReturn(first);
+        when(bookRepository.findById(20L)).thenReturn(second);
+
+        orderService.cancelOrder(orderId);
+
+        assertThat(stockEngine.available(first.getId()), equalTo(3));
+        assertThat(stockEngine.available(second.getId()), equalTo(3));
+        verify(orderRepository).delete(orderId);
+    }
+
+    @Test
+    void should_checkout_batch_with_one_reservation_per_book_and_report_each_cart() {
+        Book hot = Book.builder().id(10L).stockQuantity(5).build();
+        Book calm = Book.builder().id(20L).stockQuantity(100).build();
+        for (long cartId = 1; cartId <= 3; cartId++) {
+            Cart cart = Cart.builder().id(cartId).user(User.builder().id(cartId).build())
+                    .cartItem(CartItem.builder().book(hot).quantity(2).build())
+                    .build();
+            when(cartRepository.findById(cartId)).thenReturn(cart);
+        }
+        Cart multi = Cart.builder().id(5L).user(User.builder().id(5L).build()).build();
+        multi.getItems().put(20L, 1);
+        when(cartRepository.findById(5L)).thenReturn(multi);
+        when(cartRepository.findById(4L)).thenReturn(null);
+        when(bookRepository.findById(20L)).thenReturn(calm);
+        when(orderRepository.createAll(anyList())).thenAnswer(inv -> {
+            List<Order> orders = inv.getArgument(0);
+            long id = 900L;
+            for (Order order : orders) {
+                order.setId(id++);
+            }
+            return orders;
+        });
+
+        List<CheckoutOutcome> outcomes = orderService.checkoutCarts(new long[]{1L, 2L, 3L, 4L, 5L, 5L});
+
+        assertThat(outcomes.stream().map(CheckoutOutcome::getOrderId).toList(),
+                equalTo(List.of(900L, 901L, 0L, 0L, 902L, 0L)));
+        assertThat(outcomes.get(2).getError(), equalTo("Not enough stock"));
+        assertThat(outcomes.get(3).getError(), equalTo("Cart not found"));
+        assertThat(outcomes.get(5).getError(), equalTo("Duplicate cart"));
+        assertThat(stockEngine.available(hot.getId()), equalTo(1));
+        assertThat(stockEngine.available(calm.getId()), equalTo(99));
+        verify(bookRepository, never()).update(anyLong(), any(Book.class));
+        verify(orderRepository, times(1)).createAll(anyList());
+        verify(orderRepository, never()).create(any(Order.class));
+        verify(cartRepository, never()).delete(3L);
+    }
+
+    @Test
+    void should_checkout_with_stock_held_by_cart_when_others_took_the_rest() {
+        long cartId = 1L;
+        Book book = Book.builder().id(100L).stockQuantity(3).build();
+        Cart cart = Cart.builder().id(cartId).user(User.builder().id(1L).build()).build();
+        cart.getItems().put(100L, 2);
+        when(cartRepository.findById(cartId)).thenReturn(cart);
+        when(bookRepository.findById(100L)).thenReturn(book);
+        when(orderRepository.create(any(Order.class))).thenAnswer(inv -> {
+            Order o = inv.getArgument(0);
+            o.setId(999L);
+            return o;
+        });
+        stockEngine.track(100L, 3);
+        stockReservations.hold(cartId, 100L, 2);
+        stockEngine.tryReserve(100L, 1); // giỏ khác lấy nốt phần còn lại
+
+        orderService.checkoutCart(cartId);
+
+        assertThat(stockEngine.available(100L), equalTo(0));
+        assertThat(stockReservations.size(), equalTo(0));
+        assertThat(stockEngine.ledger().balances().getOrDefault(100L, -1), equalTo(1)); // 3 - 2, phần giỏ khác lấy chưa được chốt
+    }
 }
@@ -7,14 +7,20 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import repositories.IUserRepository;
+import security.PasswordConfig;
+import security.PasswordVerifier;
+
+import java.util.function.UnaryOperator;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +29,9 @@ public class UserServiceTest {
     @Mock
     IUserRepository repository;
 
+    @Spy
+    PasswordVerifier passwordVerifier = new PasswordVerifier(PasswordConfig.builder().iterations(1_000).build());
+
     @InjectMocks
     UserService service;
 
@@ -32,24 +41,26 @@ public class UserServiceTest {
 
     @Test
     public void should_return_registered_user_with_email_not_in_used() {
-        when(repository.findByEmail("user@gmail.com")).thenReturn(null);
-        when(repository.create(any(User.class))).thenReturn(userDefault);
+        when(repository.createIfEmailAbsent(any(User.class), any())).thenAnswer(
+                invocation -> invocation.<UnaryOperator<User>>getArgument(1).apply(invocation.getArgument(0)));
 
-        User user = service.createUser(userDefault);
+        User user = service.createUser(userDefault.toBuilder().build());
 
         assertThat(user, notNullValue());
         assertThat(user.getId(), equalTo(1L));
-        verify(repository, times(1)).create(any(User.class));
+        assertThat(user.getPassword().startsWith("pbkdf2$"), equalTo(true));
+        verify(repository, never()).findByEmail(any());
     }
 
     @Test
     public void should_return_registered_user_with_email_is_in_used() {
         User exitingUser = User.builder().id(1L).email("user@gmail.com").build();
 
-        when(repository.findByEmail("user@gmail.com")).thenReturn(exitingUser);
+        when(repository.createIfEmailAbsent(eq(exitingUser), any())).thenReturn(null);
 
         assertThrows(IllegalArgumentException.class, () -> service.createUser(exitingUser));
         verify(repository, times(0)).create(any(User.class));
+        verify(passwordVerifier, never()).hash(any());
     }
 
     @Test
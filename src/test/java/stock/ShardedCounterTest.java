@@ -0,0 +1,98 @@
+package stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedCounterTest {
+
+    @Test
+    public void should_take_from_other_shards_when_home_shard_runs_dry() {
+        ShardedCounter counter = new ShardedCounter(10, 8);
+
+        // 10 chia cho 8 ô: ô của thread này có tối đa 2
+        assertTrue(counter.tryTake(7));
+        assertThat(counter.get(), equalTo(3));
+        assertFalse(counter.tryTake(4));
+        assertTrue(counter.tryTake(3));
+        assertThat(counter.get(), equalTo(0));
+    }
+
+    @Test
+    public void should_refuse_everything_after_retire() {
+        ShardedCounter counter = new ShardedCounter(5, 4);
+        assertTrue(counter.give(2));
+
+        assertThat(counter.retire(), equalTo(7));
+        assertThat(counter.retire(), equalTo(StockCounter.RETIRED));
+        assertFalse(counter.tryTake(1));
+        assertFalse(counter.give(1));
+        assertThat(counter.getAndSet(3), equalTo(StockCounter.RETIRED));
+        assertTrue(counter.isRetired());
+    }
+
+    @Test
+    public void should_not_oversell_hot_book_under_contention() throws InterruptedException {
+        StockEngine engine = new StockEngine(new StockLedger(), 8);
+        engine.track(1L, 1_000);
+        engine.setHot(1L, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+
+        for (int i = 0; i < 3_000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (engine.tryReserve(1L, 1)) {
+                    sold.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(sold.get(), equalTo(1_000));
+        assertThat(engine.available(1L), equalTo(0));
+    }
+
+    @Test
+    public void should_keep_stock_when_hot_mode_toggles_during_checkouts() throws InterruptedException {
+        StockEngine engine = new StockEngine(new StockLedger(), 4);
+        engine.track(1L, 10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger sold = new AtomicInteger();
+
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    if (engine.tryReserve(1L, 2)) {
+                        sold.addAndGet(2);
+                        engine.release(1L, 1);
+                        sold.decrementAndGet();
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < 200; i++) {
+            engine.setHot(1L, i % 2 == 0);
+        }
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(engine.available(1L) + sold.get(), equalTo(10_000));
+    }
+}
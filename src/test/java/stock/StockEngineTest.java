@@ -0,0 +1,138 @@
+package stock;
+
+import models.Book;
+import models.Cart;
+import models.CartItem;
+import models.User;
+import org.junit.jupiter.api.Test;
+import repositories.InMemoryBookRepository;
+import repositories.InMemoryCartRepository;
+import repositories.InMemoryOrderRepository;
+import services.OrderService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StockEngineTest {
+
+    @Test
+    public void should_reserve_and_release_tracked_stock() {
+        StockEngine engine = new StockEngine();
+        engine.track(1L, 5);
+
+        assertTrue(engine.tryReserve(1L, 5));
+        assertFalse(engine.tryReserve(1L, 1));
+        engine.release(1L, 2);
+
+        assertThat(engine.available(1L), equalTo(2));
+    }
+
+    @Test
+    public void should_keep_first_seed_and_overwrite_on_reset() {
+        StockEngine engine = new StockEngine();
+        engine.track(1L, 5);
+        engine.track(1L, 100);
+        assertThat(engine.available(1L), equalTo(5));
+
+        engine.reset(1L, 7);
+        assertThat(engine.available(1L), equalTo(7));
+
+        engine.forget(1L);
+        assertFalse(engine.isTracked(1L));
+    }
+
+    @Test
+    public void should_reject_untracked_book_and_negative_quantity() {
+        StockEngine engine = new StockEngine();
+
+        assertThrows(IllegalStateException.class, () -> engine.tryReserve(1L, 1));
+        engine.track(1L, 1);
+        assertThrows(IllegalArgumentException.class, () -> engine.tryReserve(1L, -1));
+        assertThrows(IllegalArgumentException.class, () -> engine.release(1L, -1));
+    }
+
+    @Test
+    public void should_never_oversell_when_checkouts_race_on_one_book() throws InterruptedException {
+        int stock = 500;
+        int buyers = 2_000;
+        InMemoryBookRepository bookRepository = new InMemoryBookRepository();
+        InMemoryCartRepository cartRepository = new InMemoryCartRepository();
+        StockEngine engine = new StockEngine();
+        OrderService orderService = new OrderService(cartRepository, new InMemoryOrderRepository(),
+                bookRepository, engine, new StockReservations(engine));
+        Book book = bookRepository.create(Book.builder().title("Hot").author("A").price(1.0).stockQuantity(stock).build());
+        for (int i = 0; i < buyers; i++) {
+            cartRepository.create(Cart.builder()
+                    .user(User.builder().id((long) i).build())
+                    .cartItem(CartItem.builder().id(i + 1L).book(bookRepository.findById(book.getId())).quantity(1).build())
+                    .build());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        for (long cartId = 1; cartId <= buyers; cartId++) {
+            long id = cartId;
+            executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.checkoutCart(id);
+                    sold.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    // hết hàng
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(sold.get(), equalTo(stock));
+        assertThat(engine.available(book.getId()), equalTo(0));
+        assertThat(engine.ledger().balances().getOrDefault(book.getId(), -1), equalTo(0));
+        assertThat(engine.ledger().history(book.getId()).size(), equalTo(1 + stock));
+    }
+
+    @Test
+    public void should_rebuild_counters_from_ledger() {
+        StockEngine engine = new StockEngine();
+        engine.track(1L, 5);
+        assertTrue(engine.tryReserve(1L, 2));
+        engine.record(1L, -2, StockReason.CHECKOUT, 77L);
+        assertTrue(engine.tryReserve(1L, 1)); // giữ chỗ chưa chốt thì không có trong sổ
+        engine.restock(1L, 4, StockReason.CANCEL, 70L);
+        engine.track(3L, 9);
+        engine.forget(3L);
+
+        StockEngine reopened = new StockEngine(engine.ledger());
+
+        assertThat(reopened.available(1L), equalTo(7));
+        assertThat(reopened.available(3L), equalTo(0));
+    }
+
+    @Test
+    public void should_carry_stock_over_when_book_becomes_hot() {
+        StockEngine engine = new StockEngine();
+        engine.track(1L, 5);
+
+        engine.setHot(1L, true);
+        assertTrue(engine.isHot(1L));
+        assertTrue(engine.tryReserve(1L, 4));
+        engine.reset(1L, 9);
+        engine.setHot(1L, false);
+
+        assertFalse(engine.isHot(1L));
+        assertThat(engine.available(1L), equalTo(9));
+        assertThrows(IllegalStateException.class, () -> engine.setHot(2L, true));
+    }
+}
@@ -0,0 +1,143 @@
+package stock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StockLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void should_sum_movements_and_keep_history_per_book() {
+        StockLedger ledger = new StockLedger();
+        ledger.append(1L, 10, StockReason.OPENING, 0L);
+        ledger.append(2L, 3, StockReason.OPENING, 0L);
+        ledger.append(1L, -4, StockReason.CHECKOUT, 100L);
+        ledger.append(1L, 4, StockReason.CANCEL, 100L);
+        ledger.append(1L, -1, StockReason.CHECKOUT, 101L);
+
+        assertThat(ledger.balances().getOrDefault(1L, 0), equalTo(9));
+        assertThat(ledger.balances().getOrDefault(2L, 0), equalTo(3));
+        List<StockMovement> history = ledger.history(1L);
+        assertThat(history.size(), equalTo(4));
+        assertThat(history.get(1).reason(), equalTo(StockReason.CHECKOUT));
+        assertThat(history.get(1).orderId(), equalTo(100L));
+    }
+
+    @Test
+    public void should_fold_old_entries_into_snapshots_and_drop_removed_books() {
+        StockLedger ledger = new StockLedger(10);
+        ledger.append(1L, 1_000, StockReason.OPENING, 0L);
+        ledger.append(2L, 5, StockReason.OPENING, 0L);
+        ledger.append(2L, -5, StockReason.REMOVED, 0L);
+        for (int i = 0; i < 1_000; i++) {
+            ledger.append(1L, -1, StockReason.CHECKOUT, i);
+            assertThat(ledger.size(), lessThanOrEqualTo(1 + 2 * 10));
+        }
+
+        assertThat(ledger.balances().getOrDefault(1L, -1), equalTo(0));
+        assertThat(ledger.balances().containsKey(2L), equalTo(false));
+        assertThat(ledger.history(1L).get(0).reason(), equalTo(StockReason.SNAPSHOT));
+        assertThat(ledger.history(1L).get(ledger.history(1L).size() - 1).orderId(), equalTo(999L));
+    }
+
+    @Test
+    public void should_reopen_file_after_compaction_and_cut_partial_entry() throws IOException {
+        Path file = directory.resolve("stock.ledger");
+        try (StockLedger ledger = StockLedger.open(file, 4)) {
+            ledger.append(1L, 50, StockReason.OPENING, 0L);
+            for (int i = 0; i < 20; i++) {
+                ledger.append(1L, -2, StockReason.CHECKOUT, i);
+            }
+            ledger.append(7L, 3, StockReason.ADJUSTMENT, 0L);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        try (StockLedger reopened = StockLedger.open(file, 4)) {
+            assertThat(reopened.balances().getOrDefault(1L, -1), equalTo(10));
+            assertThat(reopened.balances().getOrDefault(7L, -1), equalTo(3));
+            assertThat((Files.size(file) - 8) % StockLedger.ENTRY_SIZE, equalTo(0L));
+            reopened.append(1L, -10, StockReason.CHECKOUT, 99L);
+        }
+        try (StockLedger again = StockLedger.open(file, 4)) {
+            assertThat(again.balances().getOrDefault(1L, -1), equalTo(0));
+        }
+    }
+
+    @Test
+    public void should_keep_every_entry_appended_concurrently_during_background_compaction() throws Exception {
+        Path file = directory.resolve("concurrent.ledger");
+        int threads = 8;
+        int perThread = 20_000;
+        try (StockLedger ledger = StockLedger.open(file, 1_000)) {
+            ledger.append(1L, threads * perThread, StockReason.OPENING, 0L);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                long bookId = 10L + t;
+                executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ledger.append(1L, -1, StockReason.CHECKOUT, i);
+                        ledger.append(bookId, 1, StockReason.ADJUSTMENT, i);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+            assertThat(ledger.balances().getOrDefault(1L, -1), equalTo(0));
+            assertThat(ledger.balances().getOrDefault(13L, -1), equalTo(perThread));
+        }
+        try (StockLedger reopened = StockLedger.open(file, 1_000)) {
+            assertThat(reopened.balances().getOrDefault(1L, -1), equalTo(0));
+            for (int t = 0; t < threads; t++) {
+                assertThat(reopened.balances().getOrDefault(10L + t, -1), equalTo(perThread));
+            }
+            assertThat(reopened.size(), lessThan(1 + 2 * threads * perThread));
+        }
+    }
+
+    @Test
+    public void should_return_from_await_durable_only_after_the_entry_reached_the_file() throws Exception {
+        Path file = directory.resolve("durable.ledger");
+        try (StockLedger ledger = StockLedger.open(file, LedgerConfig.builder().build())) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        long sequence = ledger.append(1L, 1, StockReason.ADJUSTMENT, i);
+                        ledger.awaitDurable(sequence);
+                        assertTrue(Files.size(file) >= 8 + (sequence + 1) * StockLedger.ENTRY_SIZE);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package stock;
+
+import org.junit.jupiter.api.Test;
+import utils.LongIntHashMap;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StockReservationsTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final StockEngine engine = new StockEngine();
+    private final StockReservations reservations = new StockReservations(engine,
+            ReservationConfig.builder().ttl(Duration.ofMinutes(15)).tick(Duration.ofSeconds(1)).build(), clock::get);
+
+    @Test
+    public void should_hold_at_most_available_stock_and_release_surplus() {
+        engine.track(1L, 5);
+
+        assertThat(reservations.hold(10L, 1L, 3), equalTo(3));
+        assertThat(reservations.hold(20L, 1L, 4), equalTo(2));
+        assertThat(engine.available(1L), equalTo(0));
+
+        assertThat(reservations.hold(10L, 1L, 1), equalTo(1));
+        reservations.release(20L, 1L);
+
+        assertThat(engine.available(1L), equalTo(4));
+        assertThat(reservations.size(), equalTo(1));
+    }
+
+    @Test
+    public void should_return_stock_when_hold_expires_and_extend_on_change() {
+        engine.track(1L, 5);
+        engine.track(2L, 5);
+        reservations.hold(10L, 1L, 2);
+        reservations.hold(20L, 2L, 2);
+
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+        reservations.hold(20L, 2L, 3);
+        clock.addAndGet(Duration.ofMinutes(6).toMillis());
+
+        assertThat(reservations.expire(), equalTo(1));
+        assertThat(engine.available(1L), equalTo(5));
+        assertThat(reservations.held(20L, 2L), equalTo(3));
+
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+        assertThat(reservations.expire(), equalTo(1));
+        assertThat(engine.available(2L), equalTo(5));
+        assertThat(reservations.size(), equalTo(0));
+    }
+
+    @Test
+    public void should_hand_held_stock_to_checkout_once() {
+        engine.track(1L, 5);
+        engine.track(2L, 5);
+        reservations.hold(10L, 1L, 3);
+        reservations.hold(10L, 2L, 1);
+        LongIntHashMap wanted = new LongIntHashMap();
+        wanted.put(1L, 2);
+
+        LongIntHashMap claimed = reservations.claim(10L, wanted);
+
+        assertThat(claimed.getOrDefault(1L, 0), equalTo(2));
+        assertThat(claimed.containsKey(2L), equalTo(false));
+        assertThat(engine.available(1L), equalTo(3));
+        assertThat(engine.available(2L), equalTo(5));
+        assertThat(reservations.claim(10L, wanted).isEmpty(), equalTo(true));
+
+        clock.addAndGet(Duration.ofHours(1).toMillis());
+        assertThat(reservations.expire(), equalTo(0));
+        assertThat(engine.available(1L), equalTo(3));
+    }
+}
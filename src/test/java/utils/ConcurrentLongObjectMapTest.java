@@ -0,0 +1,118 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentLongObjectMapTest {
+
+    @Test
+    public void should_put_get_and_remove_including_zero_and_negative_keys() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(4);
+
+        map.put(0L, "zero");
+        map.put(-1L, "negative");
+        map.put(Long.MAX_VALUE, "max");
+
+        assertThat(map.get(0L), equalTo("zero"));
+        assertThat(map.get(-1L), equalTo("negative"));
+        assertThat(map.get(Long.MAX_VALUE), equalTo("max"));
+        assertThat(map.size(), equalTo(3));
+
+        assertThat(map.remove(-1L), equalTo("negative"));
+        assertThat(map.get(-1L), nullValue());
+        assertThat(map.size(), equalTo(2));
+    }
+
+    @Test
+    public void should_keep_existing_value_on_put_if_absent() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+
+        assertThat(map.putIfAbsent(7L, "first"), nullValue());
+        assertThat(map.putIfAbsent(7L, "second"), equalTo("first"));
+        assertThat(map.get(7L), equalTo("first"));
+    }
+
+    @Test
+    public void should_remove_key_when_compute_returns_null() {
+        ConcurrentLongObjectMap<Integer> map = new ConcurrentLongObjectMap<>();
+        map.put(1L, 10);
+
+        map.compute(1L, (key, old) -> old + 1);
+        assertThat(map.get(1L), equalTo(11));
+
+        map.compute(1L, (key, old) -> null);
+        assertThat(map.get(1L), nullValue());
+        assertThat(map.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void should_reject_null_values() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+
+        assertThrows(NullPointerException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    public void should_behave_like_hash_map_under_random_operations() {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(2);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 2_500;
+            switch (random.nextInt(3)) {
+                case 0 -> assertThat(map.put(key, (long) i), equalTo(expected.put(key, (long) i)));
+                case 1 -> assertThat(map.remove(key), equalTo(expected.remove(key)));
+                default -> assertThat(map.get(key), equalTo(expected.get(key)));
+            }
+        }
+
+        assertThat(map.size(), equalTo(expected.size()));
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void should_not_lose_updates_when_many_threads_write() throws InterruptedException {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    map.put(base + i, base + i);
+                    map.compute(-1L, (key, old) -> old == null ? 1L : old + 1);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(map.size(), equalTo(threads * perThread + 1));
+        assertThat(map.get(-1L), equalTo((long) threads * perThread));
+        for (long key = 0; key < (long) threads * perThread; key++) {
+            assertThat(map.get(key), equalTo(key));
+        }
+    }
+}
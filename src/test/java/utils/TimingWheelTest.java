@@ -0,0 +1,77 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelTest {
+
+    @Test
+    public void should_fire_each_timer_at_its_tick_across_all_levels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 0);
+        Random random = new Random(42);
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            // tới 64^3 tick: đủ để đi qua ba lần đổ tầng
+            long deadline = 1 + random.nextInt(64 * 64 * 64) * 10L;
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> late = new ArrayList<>();
+        int fired = 0;
+        for (long now = 0; wheel.size() > 0; now += 10) {
+            long at = now;
+            fired += wheel.advance(now, deadline -> {
+                // hết hạn ở tick đầu tiên không sớm hơn hạn
+                if (deadline > at || at - deadline >= 10) {
+                    late.add(deadline);
+                }
+            });
+        }
+
+        assertThat(fired, equalTo(count));
+        assertThat(late, equalTo(List.of()));
+    }
+
+    @Test
+    public void should_cancel_and_reschedule_in_place() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 0);
+        TimingWheel.Timer<String> a = wheel.schedule("a", 5_000);
+        TimingWheel.Timer<String> b = wheel.schedule("b", 5_000);
+        wheel.reschedule(b, 70_000);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(69_000, fired::add);
+        assertThat(fired, equalTo(List.of()));
+        wheel.advance(70_000, fired::add);
+
+        assertThat(fired, equalTo(List.of("b")));
+        assertFalse(b.isScheduled());
+        assertThat(wheel.size(), equalTo(0));
+    }
+
+    @Test
+    public void should_fire_past_deadline_on_next_tick_and_far_deadline_after_span() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 1_000);
+        wheel.schedule("past", 10);
+        wheel.schedule("far", 1_000 + (1L << 24) + 5);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1_001, fired::add);
+        assertThat(fired, equalTo(List.of("past")));
+
+        wheel.advance(1_000 + (1L << 24) + 4, fired::add);
+        assertThat(fired, equalTo(List.of("past")));
+        wheel.advance(1_000 + (1L << 24) + 5, fired::add);
+        assertThat(fired, equalTo(List.of("past", "far")));
+    }
+}
@@ -0,0 +1,215 @@
+package web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.finaltest.FinalTestApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = FinalTestApplication.class, properties = {"app.password.iterations=1000", "app.data.dir="})
+@AutoConfigureMockMvc
+public class ApiControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private JsonNode postJson(String url, String body, int expectedStatus) throws Exception {
+        MvcResult result = mockMvc.perform(post(url).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().is(expectedStatus))
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void should_register_login_and_hide_password() throws Exception {
+        JsonNode user = postJson("/api/users",
+                "{\"username\":\"quang\",\"password\":\"123456\",\"email\":\"api-login@gmail.com\"}", 201);
+        assertThat(user.has("password"), equalTo(false));
+
+        MvcResult login = mockMvc.perform(post("/api/users/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"api-login@gmail.com\",\"password\":\"123456\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(login))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(user.get("id").asLong()));
+
+        MvcResult wrong = mockMvc.perform(post("/api/users/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"api-login@gmail.com\",\"password\":\"bad\"}"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(wrong))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Wrong password"));
+    }
+
+    @Test
+    public void should_add_items_checkout_and_page_orders() throws Exception {
+        long userId = postJson("/api/users",
+                "{\"username\":\"buyer\",\"password\":\"123456\",\"email\":\"api-buyer@gmail.com\"}", 201)
+                .get("id").asLong();
+        long bookId = postJson("/api/books",
+                "{\"title\":\"REST in Practice\",\"author\":\"Webber\",\"price\":20.0,\"stockQuantity\":5}", 201)
+                .get("id").asLong();
+
+        long cartId = postJson("/api/users/" + userId + "/cart/items",
+                "{\"bookId\":" + bookId + ",\"quantity\":2}", 200).get("cartId").asLong();
+        mockMvc.perform(get("/api/users/" + userId + "/cart"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items['" + bookId + "']").value(2));
+
+        long orderId = postJson("/api/carts/" + cartId + "/checkout", "", 201).get("orderId").asLong();
+
+        mockMvc.perform(get("/api/users/" + userId + "/orders").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(orderId))
+                .andExpect(jsonPath("$[0].quantity").value(2));
+        mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(jsonPath("$.stockQuantity").value(3));
+    }
+
+    @Test
+    public void should_checkout_through_async_pipeline() throws Exception {
+        long userId = postJson("/api/users",
+                "{\"username\":\"async\",\"password\":\"123456\",\"email\":\"api-async@gmail.com\"}", 201)
+                .get("id").asLong();
+        long bookId = postJson("/api/books",
+                "{\"title\":\"Java Concurrency in Practice\",\"author\":\"Goetz\",\"price\":40.0,\"stockQuantity\":2}", 201)
+                .get("id").asLong();
+        long cartId = postJson("/api/users/" + userId + "/cart/items",
+                "{\"bookId\":" + bookId + ",\"quantity\":1}", 200).get("cartId").asLong();
+
+        MvcResult checkout = mockMvc.perform(post("/api/carts/" + cartId + "/checkout-async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(checkout))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.orderId").isNumber());
+        mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(jsonPath("$.stockQuantity").value(1));
+    }
+
+    @Test
+    public void should_return_same_order_when_checkout_is_retried_with_idempotency_key() throws Exception {
+        long userId = postJson("/api/users",
+                "{\"username\":\"retry\",\"password\":\"123456\",\"email\":\"api-retry@gmail.com\"}", 201)
+                .get("id").asLong();
+        long bookId = postJson("/api/books",
+                "{\"title\":\"Release It!\",\"author\":\"Nygard\",\"price\":35.0,\"stockQuantity\":3}", 201)
+                .get("id").asLong();
+        long cartId = postJson("/api/users/" + userId + "/cart/items",
+                "{\"bookId\":" + bookId + ",\"quantity\":1}", 200).get("cartId").asLong();
+
+        String first = mockMvc.perform(post("/api/carts/" + cartId + "/checkout").header("Idempotency-Key", "k-1"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(post("/api/carts/" + cartId + "/checkout").header("Idempotency-Key", "k-1"))
+                .andExpect(status().isCreated())
+                .andExpect(content().json(first));
+        mockMvc.perform(get("/api/books/" + bookId))
+                .andExpect(jsonPath("$.stockQuantity").value(2));
+    }
+
+    @Test
+    public void should_map_service_errors_to_http_status() throws Exception {
+        mockMvc.perform(get("/api/books/987654"))
+                .andExpect(status().isNotFound());
+        postJson("/api/books", "{\"title\":\"\",\"author\":\"A\",\"price\":1.0}", 400);
+        postJson("/api/carts/987654/checkout", "", 404);
+    }
+
+    @Test
+    public void should_search_with_typos_through_fuzzy_endpoint() throws Exception {
+        postJson("/api/books", "{\"title\":\"Introduction to Algorithms\",\"author\":\"Cormen\",\"price\":90.0}", 201);
+
+        mockMvc.perform(get("/api/books/fuzzy").param("q", "algoritms"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value("Introduction to Algorithms"))
+                .andExpect(jsonPath("$.partial").value(false));
+        mockMvc.perform(get("/api/books/fuzzy").param("q", "algoritms").param("maxEdits", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void should_import_csv_body_and_return_counts() throws Exception {
+        String csv = "title,author,price\nDomain-Driven Design,Evans,50\n,Nobody,1\n";
+
+        mockMvc.perform(post("/api/books/import").param("format", "csv")
+                        .contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejectSample[0]").value("2,Title cannot be empty"));
+        mockMvc.perform(post("/api/books/import").param("format", "xml").content(""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void should_stream_catalog_export_as_ndjson() throws Exception {
+        postJson("/api/books", "{\"title\":\"Streaming Systems\",\"author\":\"Akidau\",\"price\":45.0}", 201);
+
+        String body = mockMvc.perform(get("/api/books/export").param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.contains("\"title\":\"Streaming Systems\""), equalTo(true));
+    }
+
+    @Test
+    public void should_expose_call_metrics_through_actuator() throws Exception {
+        mockMvc.perform(get("/api/books/987654"));
+
+        mockMvc.perform(get("/actuator/metrics/app.calls")
+                        .param("tag", "component:bookService")
+                        .param("tag", "method:getBookById")
+                        .param("tag", "outcome:error"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value").isNotEmpty());
+    }
+
+    @Test
+    public void should_reject_requests_over_concurrency_limit() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), response, new MockFilterChain());
+
+        assertThat(response.getStatus(), equalTo(503));
+        assertThat(response.getHeader("Retry-After"), equalTo("1"));
+    }
+
+    @Test
+    public void should_release_permit_only_when_async_request_completes() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users/login");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> req.startAsync());
+        assertThat(filter.availablePermits(), equalTo(0));
+
+        request.getAsyncContext().complete();
+        assertThat(filter.availablePermits(), equalTo(1));
+    }
+}